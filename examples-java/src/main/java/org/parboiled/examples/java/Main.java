@@ -60,6 +60,18 @@ public class Main {
         }
         time(start);
 
+        System.out.print("Creating the rule graph... :");
+        start = System.currentTimeMillis();
+        parser.CompilationUnit();
+        time(start);
+
+        System.out.print("Creating 100 more parser instances using BaseParser.newInstanceSharingRules() ... :");
+        start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            parser = parser.newInstanceSharingRules();
+        }
+        time(start);
+
         start = System.currentTimeMillis();
         File baseDir = args.length == 1 ? new File(args[0]) : null;
         if (baseDir == null || !baseDir.exists()) baseDir = new File(".");
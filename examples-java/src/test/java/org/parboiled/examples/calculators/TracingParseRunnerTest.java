@@ -16,17 +16,33 @@
 
 package org.parboiled.examples.calculators;
 
+import org.parboiled.Context;
+import org.parboiled.MatcherContext;
 import org.parboiled.Parboiled;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.common.Predicate;
 import org.parboiled.common.StringBuilderSink;
+import org.parboiled.common.Tuple2;
+import org.parboiled.errors.ParseError;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.BinaryTraceReader;
+import org.parboiled.parserunners.BinaryTraceWriter;
+import org.parboiled.support.DefaultValueStack;
 import org.parboiled.support.ParsingResult;
 import org.testng.annotations.Test;
 import org.parboiled.parserunners.TracingParseRunner;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.parboiled.common.Predicates.*;
 import static org.parboiled.errors.ErrorUtils.printParseErrors;
 import static org.parboiled.support.Filters.rules;
 import static org.parboiled.support.Filters.rulesBelow;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 public class TracingParseRunnerTest {
 
@@ -88,4 +104,79 @@ public class TracingParseRunnerTest {
                 "..(7)../Parens/')', failed, cursor at 1:7 after \"2*(4+5\"\n" +
                 "..(7)../Parens, failed, cursor at 1:7 after \"2*(4+5\"\n");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBinaryTraceReplay() throws Exception {
+        CalculatorParser1 parser = Parboiled.createParser(CalculatorParser1.class);
+        Predicate<?> filter = and(rules(parser.Number(), parser.Parens()), not(rulesBelow(parser.Digits())));
+        String input = "2*(4+5";
+
+        StringBuilderSink log = new StringBuilderSink();
+        new TracingParseRunner<Integer>(parser.InputLine()).withFilter(filter).withLog(log).run(input);
+
+        File file = File.createTempFile("parboiled", ".trace");
+        try {
+            BinaryTraceWriter trace = new BinaryTraceWriter(parser.InputLine(), file);
+            ParsingResult<Integer> result = new TracingParseRunner<Integer>(parser.InputLine()).withTrace(trace)
+                    .run(input);
+            trace.close();
+            assertEquals(printParseErrors(result), "" +
+                    "Unexpected end of input, expected Digit, '*', '/', '+', '-' or ')' (line 1, pos 7):\n" +
+                    "2*(4+5\n" +
+                    "      ^\n");
+
+            StringBuilderSink replayed = new StringBuilderSink();
+            BinaryTraceReader reader = new BinaryTraceReader(parser.InputLine(), file);
+            reader.replay(new DefaultInputBuffer(input.toCharArray()), filter, replayed);
+            reader.close();
+            assertEquals(replayed.toString(), log.toString());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBinaryTraceLargeIndices() throws Exception {
+        CalculatorParser1 parser = Parboiled.createParser(CalculatorParser1.class);
+        Matcher number = (Matcher) parser.Number();
+        // stands in for an input of more than a billion characters
+        DefaultInputBuffer inputBuffer = new DefaultInputBuffer("2".toCharArray()) {
+            @Override
+            public char charAt(int index) {
+                return '2';
+            }
+        };
+
+        File file = File.createTempFile("parboiled", ".trace");
+        try {
+            BinaryTraceWriter trace = new BinaryTraceWriter(parser.InputLine(), file);
+            MatcherContext<Integer> context = new MatcherContext<Integer>(inputBuffer,
+                    new DefaultValueStack<Integer>(), new ArrayList<ParseError>(),
+                    new BasicParseRunner<Integer>(parser.InputLine()), number, true);
+            context.setStartIndex(Integer.MAX_VALUE - 10);
+            context.setCurrentIndex(Integer.MAX_VALUE);
+            trace.startRun();
+            trace.enter(context);
+            trace.exit(context, true);
+            trace.close();
+
+            final List<Tuple2<Context<?>, Boolean>> events = new ArrayList<Tuple2<Context<?>, Boolean>>();
+            BinaryTraceReader reader = new BinaryTraceReader(parser.InputLine(), file);
+            reader.replay(inputBuffer, new Predicate<Tuple2<Context<?>, Boolean>>() {
+                public boolean apply(Tuple2<Context<?>, Boolean> event) {
+                    events.add(event);
+                    return false;
+                }
+            }, new StringBuilderSink());
+            reader.close();
+
+            assertEquals(events.size(), 1);
+            assertSame(events.get(0).a.getMatcher(), number);
+            assertEquals(events.get(0).a.getStartIndex(), Integer.MAX_VALUE - 10);
+            assertEquals(events.get(0).a.getCurrentIndex(), Integer.MAX_VALUE);
+            assertEquals(events.get(0).b, Boolean.TRUE);
+        } finally {
+            file.delete();
+        }
+    }
+}
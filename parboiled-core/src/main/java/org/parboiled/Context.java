@@ -154,6 +154,18 @@ public interface Context<V> {
      */
     String getMatch();
 
+    /**
+     * <p>Returns a view onto the input text matched by the rule immediately preceding the action expression that is
+     * currently being evaluated. Other than {@link #getMatch()} this method does not copy the matched text into a
+     * new String. This call can only be used in actions that are part of a Sequence rule and are not at first
+     * position in this Sequence.</p>
+     * <p>The returned view is reused by subsequent calls and therefore only valid until the next call of this method.
+     * Use its toString() method to obtain a String copy of the matched input text.</p>
+     *
+     * @return a view onto the input text matched by the immediately preceding subcontext
+     */
+    CharSequence getMatchView();
+
     /**
      * <p>Returns the first character of the input text matched by the rule immediately preceding the action
      * expression that is currently being evaluated. This call can only be used in actions that are part of a Sequence
@@ -26,8 +26,10 @@ public interface ContextAware<V> {
     /**
      * Called immediately before any parser action method invocation. Informs the object containing the
      * action about the context to be used for the coming action call.
+     * Called again with null once the action has finished, so that the object does not keep the context (and with it
+     * the input) of a finished parsing run.
      *
-     * @param context the context
+     * @param context the context, or null if the action has finished
      */
     void setContext(Context<V> context);
 
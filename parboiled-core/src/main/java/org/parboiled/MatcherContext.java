@@ -77,6 +77,7 @@ public class MatcherContext<V> implements Context<V> {
     private boolean hasError;
     private boolean nodeSuppressed;
     private boolean inErrorRecovery;
+    private MatchView matchView; // lazily created
 
     /**
      * Initializes a new root MatcherContext.
@@ -155,8 +156,17 @@ public class MatcherContext<V> implements Context<V> {
 
     public MatcherPath getPath() {
         if (path == null) {
-            path = new MatcherPath(new MatcherPath.Element(matcher, startIndex, level),
-                    parent != null ? parent.getPath() : null);
+            // we build the missing path elements top-down rather than recursively,
+            // so that even very deep context stacks do not exhaust the thread stack
+            MatcherContext<V> top = this;
+            while (top.parent != null && top.parent.path == null) top = top.parent;
+            MatcherContext<V> context = top;
+            while (true) {
+                context.path = new MatcherPath(new MatcherPath.Element(context.matcher, context.startIndex,
+                        context.level), context.parent != null ? context.parent.path : null);
+                if (context == this) break;
+                context = context.subContext;
+            }
         }
         return path;
     }
@@ -188,8 +198,10 @@ public class MatcherContext<V> implements Context<V> {
     }
 
     public boolean inPredicate() {
-        return matcher instanceof TestMatcher || matcher instanceof TestNotMatcher ||
-                parent != null && parent.inPredicate();
+        for (MatcherContext<V> context = this; context != null; context = context.parent) {
+            if (context.matcher instanceof TestMatcher || context.matcher instanceof TestNotMatcher) return true;
+        }
+        return false;
     }
 
     public boolean inErrorRecovery() {
@@ -214,6 +226,17 @@ public class MatcherContext<V> implements Context<V> {
         return inputBuffer.extract(prevContext.startIndex, prevContext.currentIndex);
     }
 
+    public CharSequence getMatchView() {
+        checkActionContext();
+        MatcherContext prevContext = subContext;
+        if (matchView == null) matchView = new MatchView();
+        if (hasError) {
+            Node prevNode = prevContext.node;
+            return matchView.set(prevNode != null ? ParseTreeUtils.getNodeText(prevNode, inputBuffer) : "");
+        }
+        return matchView.set(inputBuffer, prevContext.startIndex, prevContext.currentIndex);
+    }
+
     public char getFirstMatchChar() {
         checkActionContext();
         int ix = subContext.startIndex;
@@ -298,9 +321,8 @@ public class MatcherContext<V> implements Context<V> {
     }
 
     public void markError() {
-        if (!hasError) {
-            hasError = true;
-            if (parent != null) parent.markError();
+        for (MatcherContext<V> context = this; context != null && !context.hasError; context = context.parent) {
+            context.hasError = true;
         }
     }
 
@@ -323,6 +345,29 @@ public class MatcherContext<V> implements Context<V> {
         }
     }
 
+    /**
+     * Completes the match of this context with the result of an earlier parsing run rather than by running its
+     * matcher: moves the current index to the given end index and, unless nodes are suppressed, attaches the given
+     * node with all its indices shifted by the given delta. Since the matcher is not run again the node tree must
+     * have been created without any value stack changes, its node values are therefore updated to the current top
+     * of the value stack.
+     *
+     * @param endIndex   the end index of the match
+     * @param node       the node created for the match in the earlier run, or null
+     * @param indexDelta the delta to shift the node indices by
+     */
+    public void reuseMatch(int endIndex, Node<V> node, int indexDelta) {
+        setCurrentIndex(endIndex);
+        if (!nodeSuppressed && node != null) {
+            V value = valueStack.isEmpty() ? null : valueStack.peek();
+            this.node = indexDelta == 0 && node.getValue() == value ? node :
+                    NodeImpl.relocate(node, indexDelta, value);
+            if (parent != null) {
+                parent.subNodes = parent.subNodes.prepend(this.node);
+            }
+        }
+    }
+
     public final MatcherContext<V> getBasicSubContext() {
         if (subContext == null) {
             // init new level
@@ -23,6 +23,7 @@ import org.parboiled.common.StringUtils;
 import org.parboiled.matchers.Matcher;
 import org.parboiled.trees.ImmutableTreeNode;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -46,6 +47,15 @@ class NodeImpl<V> extends ImmutableTreeNode<Node<V>> implements Node<V> {
         this.hasError = hasError;
     }
 
+    // creates a node without acquiring any children, for subclasses providing their own
+    private NodeImpl(Matcher matcher, int startIndex, int endIndex, V value, boolean hasError) {
+        this.matcher = matcher;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.value = value;
+        this.hasError = hasError;
+    }
+
     public Matcher getMatcher() {
         return matcher;
     }
@@ -70,6 +80,55 @@ class NodeImpl<V> extends ImmutableTreeNode<Node<V>> implements Node<V> {
         return hasError;
     }
 
+    /**
+     * Creates a view of the given node tree with all start and end indices shifted by the given delta and all
+     * node values replaced by the given value. The view is created in constant time, its sub nodes are only
+     * created when they are first navigated to.
+     *
+     * @param node  the root of the tree to relocate
+     * @param delta the index delta
+     * @param value the value of the relocated nodes
+     * @return the relocated node
+     */
+    static <V> Node<V> relocate(Node<V> node, int delta, V value) {
+        return new RelocatedNode<V>(node, delta, value);
+    }
+
+    private static class RelocatedNode<V> extends NodeImpl<V> {
+        private final Node<V> original;
+        private final int delta; // the delta between the indices of this node and the ones of the original
+        private volatile List<Node<V>> children;
+
+        private RelocatedNode(Node<V> node, int delta, V value) {
+            super(node.getMatcher(), node.getStartIndex() + delta, node.getEndIndex() + delta, value,
+                    node.hasError());
+            if (node instanceof RelocatedNode) {
+                // do not stack views, so that repeated relocations stay constant time
+                RelocatedNode<V> relocated = (RelocatedNode<V>) node;
+                this.original = relocated.original;
+                this.delta = relocated.delta + delta;
+            } else {
+                this.original = node;
+                this.delta = delta;
+            }
+        }
+
+        @Override
+        public List<Node<V>> getChildren() {
+            if (children == null) {
+                List<Node<V>> originalChildren = new ArrayList<Node<V>>(original.getChildren());
+                ImmutableLinkedList<Node<V>> relocatedChildren = ImmutableLinkedList.nil();
+                for (int i = originalChildren.size() - 1; i >= 0; i--) {
+                    relocatedChildren = relocatedChildren.prepend(
+                            new RelocatedNode<V>(originalChildren.get(i), delta, getValue()));
+                }
+                children = relocatedChildren;
+                acquireChildren();
+            }
+            return children;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
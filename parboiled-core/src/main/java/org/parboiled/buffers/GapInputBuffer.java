@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.buffers;
+
+import org.parboiled.common.IntArrayStack;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import java.util.Arrays;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * An editable InputBuffer for documents that change in small steps, e.g. in an editor. The characters are kept in a
+ * gap buffer, so that an edit only costs time proportional to the size of the edit and the distance to the
+ * previous edit, rather than to the size of the document.
+ * CAUTION: Since edits are applied in place, parsing results created on this buffer reflect all later edits.
+ */
+public class GapInputBuffer implements InputBuffer {
+    private char[] chars;
+    private int gapStart;
+    private int gapEnd;
+
+    // the indices of the newline characters, built lazily and dropped on every edit
+    private int[] newlines;
+
+    /**
+     * Constructs a new GapInputBuffer holding a copy of the given chars.
+     *
+     * @param input the chars
+     */
+    public GapInputBuffer(char[] input) {
+        checkArgNotNull(input, "input");
+        chars = Arrays.copyOf(input, input.length + 16);
+        gapStart = input.length;
+        gapEnd = chars.length;
+    }
+
+    /**
+     * @return the number of characters in the buffer
+     */
+    public int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Replaces the given range of characters with the given text.
+     *
+     * @param offset        the index of the first replaced character
+     * @param removedLength the number of characters to remove at the offset
+     * @param insertedText  the text to insert at the offset
+     */
+    public void replace(int offset, int removedLength, CharSequence insertedText) {
+        checkArgNotNull(insertedText, "insertedText");
+        checkArgument(0 <= offset && offset <= length(), "offset out of range");
+        checkArgument(0 <= removedLength && offset + removedLength <= length(), "removedLength out of range");
+        moveGap(offset);
+        gapEnd += removedLength;
+        int inserted = insertedText.length();
+        if (gapEnd - gapStart < inserted) growGap(inserted);
+        for (int i = 0; i < inserted; i++) {
+            chars[gapStart++] = insertedText.charAt(i);
+        }
+        newlines = null;
+    }
+
+    private void moveGap(int index) {
+        if (index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(chars, index, chars, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void growGap(int minGap) {
+        int tail = chars.length - gapEnd;
+        char[] grown = new char[Math.max(chars.length * 2, gapStart + minGap + tail + 16)];
+        System.arraycopy(chars, 0, grown, 0, gapStart);
+        System.arraycopy(chars, gapEnd, grown, grown.length - tail, tail);
+        chars = grown;
+        gapEnd = grown.length - tail;
+    }
+
+    public char charAt(int index) {
+        if (0 <= index && index < gapStart) return chars[index];
+        int length = length();
+        return 0 <= index && index < length ? chars[index + gapEnd - gapStart] :
+                index - length > 100000 ? throwParsingException() : Chars.EOI;
+    }
+
+    private char throwParsingException() {
+        throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, " +
+                "verify that your grammar does not consume EOI indefinitely!");
+    }
+
+    public boolean test(int index, char[] characters) {
+        int len = characters.length;
+        if (index < 0 || index > length() - len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (charAt(index + i) != characters[i]) return false;
+        }
+        return true;
+    }
+
+    public String extract(int start, int end) {
+        if (start < 0) start = 0;
+        if (end >= length()) end = length();
+        if (end <= start) return "";
+        if (end <= gapStart) return new String(chars, start, end - start);
+        int gap = gapEnd - gapStart;
+        if (start >= gapStart) return new String(chars, start + gap, end - start);
+        return new StringBuilder(end - start)
+                .append(chars, start, gapStart - start)
+                .append(chars, gapEnd, end - gapStart)
+                .toString();
+    }
+
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    public Position getPosition(int index) {
+        buildNewlines();
+        int j = Arrays.binarySearch(newlines, index);
+        int line = j >= 0 ? j : -(j + 1);
+        int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    public int getOriginalIndex(int index) {
+        return index;
+    }
+
+    public String extractLine(int lineNumber) {
+        buildNewlines();
+        checkArgument(0 < lineNumber && lineNumber <= newlines.length + 1);
+        int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : length();
+        if (charAt(end - 1) == '\r') end--;
+        return extract(start, end);
+    }
+
+    public int getLineCount() {
+        buildNewlines();
+        return newlines.length + 1;
+    }
+
+    private void buildNewlines() {
+        if (newlines == null) {
+            IntArrayStack newlines = new IntArrayStack();
+            for (int i = 0, length = length(); i < length; i++) {
+                if (charAt(i) == '\n') {
+                    newlines.push(i);
+                }
+            }
+            this.newlines = new int[newlines.size()];
+            newlines.getElements(this.newlines, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return extract(0, length());
+    }
+}
@@ -86,8 +86,8 @@ public class Reference<T> {
      * @return the previous value
      */
     public T getAndSet(T value) {
-        T t = this.value;
-        this.value = value;
+        T t = get();
+        set(value);
         return t;
     }
     
@@ -98,20 +98,21 @@ public class Reference<T> {
      * @return the new value
      */
     public T setAndGet(T value) {
-        return this.value = value;
+        set(value);
+        return value;
     }
 
     /**
      * @return true if this Reference holds a non-null value
      */
     public boolean isSet() {
-        return value != null;
+        return get() != null;
     }
 
     /**
      * @return true if this Reference holds a null value
      */
     public boolean isNotSet() {
-        return value == null;
+        return get() == null;
     }
 }
@@ -515,4 +515,118 @@ public final class StringUtils {
         return str.substring(pos, pos + len);
     }
 
+    /**
+     * Parses the given characters as a signed decimal integer, like {@link Integer#parseInt(String)} but without
+     * creating a String instance first.
+     *
+     * @param chars the characters to parse
+     * @return the integer value
+     * @throws NumberFormatException if the characters do not form a parsable integer
+     */
+    public static int parseInt(CharSequence chars) {
+        return (int) parseLong(chars, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses the given characters as a signed decimal long, like {@link Long#parseLong(String)} but without
+     * creating a String instance first.
+     *
+     * @param chars the characters to parse
+     * @return the long value
+     * @throws NumberFormatException if the characters do not form a parsable long
+     */
+    public static long parseLong(CharSequence chars) {
+        return parseLong(chars, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static long parseLong(CharSequence chars, long min, long max) {
+        int len = chars.length();
+        if (len == 0) throw numberFormatException(chars);
+        int i = 0;
+        boolean negative = false;
+        long limit = -max;
+        char first = chars.charAt(0);
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+                limit = min;
+            } else if (first != '+') throw numberFormatException(chars);
+            if (len == 1) throw numberFormatException(chars);
+            i++;
+        }
+        // accumulate negatively, since the negative range is larger than the positive one
+        long multmin = limit / 10;
+        long result = 0;
+        while (i < len) {
+            int digit = Character.digit(chars.charAt(i++), 10);
+            if (digit < 0 || result < multmin) throw numberFormatException(chars);
+            result *= 10;
+            if (result < limit + digit) throw numberFormatException(chars);
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses the given characters as a double, like {@link Double#parseDouble(String)}.
+     * Plain decimal numbers with up to 15 significant digits (and at most 22 fraction digits) are parsed without
+     * creating a String instance first, all other inputs are delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param chars the characters to parse
+     * @return the double value
+     * @throws NumberFormatException if the characters do not form a parsable double
+     */
+    public static double parseDouble(CharSequence chars) {
+        int len = chars.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (chars.charAt(0) == '-' || chars.charAt(0) == '+')) {
+            negative = chars.charAt(0) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1; // -1 as long as we have not seen a decimal point
+        for (; i < len; i++) {
+            char c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else break;
+        }
+        // both the mantissa and the power of ten are exactly representable as doubles,
+        // so a single division yields the correctly rounded result
+        if (i == len && digits > 0 && digits <= 15 && fractionDigits <= 22) {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : (double) mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(chars.toString());
+    }
+
+    /**
+     * Computes the hash code of the given characters in the same way as {@link String#hashCode()}.
+     *
+     * @param chars the characters
+     * @return the hash code the String with the given characters has
+     */
+    public static int hashCode(CharSequence chars) {
+        int hash = 0;
+        for (int i = 0, len = chars.length(); i < len; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+    }
+
+    private static NumberFormatException numberFormatException(CharSequence chars) {
+        return new NumberFormatException("For input string: \"" + chars + '"');
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * A thread-safe counter spreading its updates over a number of cells (selected by the id of the updating thread),
+ * so that threads updating it concurrently rarely contend for the same cell. Reading the counter sums up all cells.
+ */
+public class StripedCounter {
+    private static final int PADDING = 8; // use one cache line of 64 bytes per cell
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Creates a counter with one cell per available processor.
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a counter with at least the given number of cells.
+     *
+     * @param stripes the number of cells, will be rounded up to the next power of two
+     */
+    public StripedCounter(int stripes) {
+        checkArgument(stripes > 0, "stripes must be positive");
+        int cellCount = Integer.highestOneBit(stripes);
+        if (cellCount < stripes) cellCount <<= 1;
+        cells = new AtomicLongArray(cellCount * PADDING);
+        mask = cellCount - 1;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        long id = Thread.currentThread().getId();
+        cells.getAndAdd(((int) (id ^ (id >>> 32)) & mask) * PADDING, delta);
+    }
+
+    /**
+     * @return the sum of all updates so far, not an atomic snapshot if there are concurrent updates
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) sum += cells.get(i);
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < cells.length(); i += PADDING) cells.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
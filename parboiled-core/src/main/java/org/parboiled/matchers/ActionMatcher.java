@@ -109,6 +109,12 @@ public class ActionMatcher extends AbstractMatcher {
             context.getParseErrors().add(new ActionError(context.getInputBuffer(), context.getCurrentIndex(),
                     e.getMessage(), context.getPath(), e));
             return false;
+        } finally {
+            if (!contextAwares.isEmpty()) {
+                for (ContextAware contextAware : contextAwares) {
+                    contextAware.setContext(null);
+                }
+            }
         }
     }
 
@@ -79,6 +79,8 @@ public interface Matcher extends Rule, GraphNode<Matcher> {
      * The matcher implementations themselves completely ignore the contents of this property. It purely serves as a
      * performance optimization for ParseRunners and/or MatchHandlers and saves these from the need to use
      * Map&lt;Matcher, XYZ&gt; structures for associating internal objects with matchers.
+     * Note that setting a tag modifies the rule graph, so a grammar whose matchers are tagged during a parsing run
+     * cannot safely be shared by several threads. None of the built-in ParseRunners use tags.
      *
      * @param tagObject the tag object
      */
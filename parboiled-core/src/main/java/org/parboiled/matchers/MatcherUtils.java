@@ -16,6 +16,14 @@
 
 package org.parboiled.matchers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public final class MatcherUtils {
     
     private MatcherUtils() {}
@@ -26,4 +34,46 @@ public final class MatcherUtils {
         if (matcher instanceof MemoMismatchesMatcher) return unwrap(MemoMismatchesMatcher.unwrap(matcher));
         return matcher; 
     }
+
+    /**
+     * Determines all matchers reachable from the given root matcher that neither are nor (transitively) contain
+     * an {@link ActionMatcher}. The outcome of such a matcher only depends on the input and the start position,
+     * which allows for reusing it across parsing runs.
+     *
+     * @param root the root matcher
+     * @return the set of action free matchers, comparing by identity
+     */
+    public static Set<Matcher> getActionFreeMatchers(Matcher root) {
+        List<Matcher> matchers = new ArrayList<Matcher>();
+        Map<Matcher, Boolean> hasActions = new IdentityHashMap<Matcher, Boolean>();
+        LinkedList<Matcher> todo = new LinkedList<Matcher>();
+        todo.add(root);
+        while (!todo.isEmpty()) {
+            Matcher matcher = todo.removeFirst();
+            if (hasActions.containsKey(matcher)) continue;
+            hasActions.put(matcher, matcher instanceof ActionMatcher);
+            matchers.add(matcher);
+            todo.addAll(matcher.getChildren());
+        }
+        // propagate the action flags up through the (potentially cyclic) rule graph until nothing changes anymore
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Matcher matcher : matchers) {
+                if (hasActions.get(matcher)) continue;
+                for (Matcher child : matcher.getChildren()) {
+                    if (hasActions.get(child)) {
+                        hasActions.put(matcher, true);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        Set<Matcher> actionFree = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        for (Matcher matcher : matchers) {
+            if (!hasActions.get(matcher)) actionFree.add(matcher);
+        }
+        return actionFree;
+    }
 }
@@ -34,7 +34,7 @@ public class ProxyMatcher implements Matcher, Cloneable {
     private boolean subnodesSuppressed;
     private boolean nodeSkipped;
     private boolean memoMismatches;
-    private boolean dirty;
+    private volatile boolean dirty; // volatile, so that lazy application is safe if the rule graph is shared
 
     public List<Matcher> getChildren() {
         if (dirty) apply();
@@ -128,7 +128,8 @@ public class ProxyMatcher implements Matcher, Cloneable {
         return target.toString();
     }
 
-    private void apply() {
+    private synchronized void apply() {
+        if (!dirty) return; // another thread was faster
         if (label != null) label(label);
         if (nodeSuppressed) suppressNode();
         if (subnodesSuppressed) suppressSubnodes();
@@ -221,6 +222,9 @@ public class ProxyMatcher implements Matcher, Cloneable {
      */
     public void arm(Matcher target) {
         this.target = checkArgNotNull(target, "target");
+        // apply all pending markers right away if we can, so the proxy does not have to change itself during parsing,
+        // only if the target is another proxy still waiting for its own target we have to do it lazily
+        if (dirty && !(target instanceof ProxyMatcher && ((ProxyMatcher) target).target == null)) apply();
     }
 
     /**
@@ -124,4 +124,35 @@ public class VarFramingMatcher implements Matcher {
         return matcher;
     }
 
-}
\ No newline at end of file
+    /**
+     * Enters a new execution frame for the action vars of the given matcher, if it is a VarFramingMatcher, including
+     * the ones of all directly nested VarFramingMatchers (i.e. of all matchers removed by {@link #unwrap(Matcher)}).
+     *
+     * @param matcher the matcher
+     */
+    public static void enterFrames(Matcher matcher) {
+        while (matcher instanceof VarFramingMatcher) {
+            VarFramingMatcher varFramingMatcher = (VarFramingMatcher) matcher;
+            for (Var var : varFramingMatcher.variables) {
+                var.enterFrame();
+            }
+            matcher = varFramingMatcher.inner;
+        }
+    }
+
+    /**
+     * Exits the execution frames entered by {@link #enterFrames(Matcher)} for the given matcher, innermost first.
+     *
+     * @param matcher the matcher
+     */
+    public static void exitFrames(Matcher matcher) {
+        if (matcher instanceof VarFramingMatcher) {
+            VarFramingMatcher varFramingMatcher = (VarFramingMatcher) matcher;
+            exitFrames(varFramingMatcher.inner);
+            for (Var var : varFramingMatcher.variables) {
+                var.exitFrame();
+            }
+        }
+    }
+
+}
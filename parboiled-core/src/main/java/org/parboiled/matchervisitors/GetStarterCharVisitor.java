@@ -19,8 +19,6 @@ package org.parboiled.matchervisitors;
 import org.parboiled.matchers.*;
 import org.parboiled.support.Characters;
 
-import java.util.Random;
-
 /**
  * Returns the first character a given matcher can start a match with.
  * For all complex matchers, i.e. the ones not always matching just one character, the visitor returns null.
@@ -39,12 +37,11 @@ public class GetStarterCharVisitor extends DefaultMatcherVisitor<Character> {
             return characters.getChars()[0];
         }
 
-        // for substractive sets we try to randomly choose a fitting character
-        Random random = new Random();
-        char c;
-        do {
-            c = (char) random.nextInt(Character.MAX_VALUE);
-        } while (!Character.isDefined(c) || !characters.contains(c));
+        // for substractive sets we choose the first fitting character, starting with the printable ones
+        char c = ' ';
+        while (!Character.isDefined(c) || !characters.contains(c)) {
+            c = (char) (c + 1);
+        }
         return c;
     }
 
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.matchervisitors;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.matchers.*;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.matchers.MatcherUtils.getActionFreeMatchers;
+import static org.parboiled.matchers.MatcherUtils.unwrap;
+
+/**
+ * Holds the results of the static grammar analyses required during error reporting and recovery
+ * (single character matchers, starter chars, empty matches, follow matchers and action free matchers) for all
+ * matchers of a rule graph. The analyses are performed once upon construction, afterwards all queries are simple
+ * table lookups, so an instance can be shared by any number of parsing runs and threads. Use {@link #of(Matcher)}
+ * for sharing the analysis of a rule graph among all parse runners for it.
+ * Matchers not reachable from the root matcher (e.g. wrappers created ad-hoc by parse runners) are analyzed with
+ * the respective visitors on every query.
+ */
+public class GrammarAnalysis {
+    private static final IsSingleCharMatcherVisitor isSingleCharMatcherVisitor = new IsSingleCharMatcherVisitor();
+    private static final GetStarterCharVisitor getStarterCharVisitor = new GetStarterCharVisitor();
+    private static final CanMatchEmptyVisitor canMatchEmptyVisitor = new CanMatchEmptyVisitor();
+
+    // the analyses of the rule graphs run so far, held softly since every analysis references its root matcher
+    private static final Map<Matcher, SoftReference<GrammarAnalysis>> cache =
+            new WeakHashMap<Matcher, SoftReference<GrammarAnalysis>>();
+
+    private final Map<Matcher, Info> infos = new IdentityHashMap<Matcher, Info>();
+
+    /**
+     * Returns the analysis of the rule graph below the given root matcher, performing it only if no analysis of the
+     * same root matcher has been performed before (or if it has been discarded under memory pressure).
+     *
+     * @param root the root matcher
+     * @return the analysis
+     */
+    public static GrammarAnalysis of(Matcher root) {
+        checkArgNotNull(root, "root");
+        synchronized (cache) {
+            SoftReference<GrammarAnalysis> ref = cache.get(root);
+            GrammarAnalysis analysis = ref != null ? ref.get() : null;
+            if (analysis == null) {
+                analysis = new GrammarAnalysis(root);
+                cache.put(root, new SoftReference<GrammarAnalysis>(analysis));
+            }
+            return analysis;
+        }
+    }
+
+    public GrammarAnalysis(Matcher root) {
+        checkArgNotNull(root, "root");
+        List<Matcher> matchers = new ArrayList<Matcher>();
+        LinkedList<Matcher> todo = new LinkedList<Matcher>();
+        todo.add(root);
+        while (!todo.isEmpty()) {
+            Matcher matcher = todo.removeFirst();
+            if (infos.containsKey(matcher)) continue;
+            Info info = new Info();
+            info.singleChar = matcher.accept(isSingleCharMatcherVisitor);
+            info.starterChar = matcher.accept(getStarterCharVisitor);
+            infos.put(matcher, info);
+            matchers.add(matcher);
+            todo.addAll(matcher.getChildren());
+        }
+
+        // determine the matchers that can match empty by propagating through the (potentially cyclic) rule graph
+        // until nothing changes anymore
+        CanMatchEmptyStep canMatchEmptyStep = new CanMatchEmptyStep();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Matcher matcher : matchers) {
+                Info info = infos.get(matcher);
+                if (!info.canMatchEmpty && matcher.accept(canMatchEmptyStep)) {
+                    info.canMatchEmpty = true;
+                    changed = true;
+                }
+            }
+        }
+
+        for (Matcher matcher : matchers) {
+            analyzeFollowers(matcher, infos.get(matcher));
+        }
+        for (Matcher matcher : getActionFreeMatchers(root)) {
+            infos.get(matcher).actionFree = true;
+        }
+    }
+
+    /**
+     * @param matcher the matcher
+     * @return true if the given matcher is a basic single character matcher
+     */
+    public boolean isSingleCharMatcher(Matcher matcher) {
+        Info info = infos.get(matcher);
+        return info != null ? info.singleChar : matcher.accept(isSingleCharMatcherVisitor);
+    }
+
+    /**
+     * @param matcher the matcher
+     * @return the first character the given matcher can start a match with, or null for complex matchers
+     */
+    public Character getStarterChar(Matcher matcher) {
+        Info info = infos.get(matcher);
+        return info != null ? info.starterChar : matcher.accept(getStarterCharVisitor);
+    }
+
+    /**
+     * @param matcher the matcher
+     * @return true if the given matcher can legally succeed with an empty match
+     */
+    public boolean canMatchEmpty(Matcher matcher) {
+        Info info = infos.get(matcher);
+        return info != null ? info.canMatchEmpty : matcher.accept(canMatchEmptyVisitor);
+    }
+
+    /**
+     * @param matcher the matcher
+     * @return true if the given matcher neither is nor (transitively) contains an action,
+     *         false if it does or if it is not part of the analyzed rule graph
+     */
+    public boolean isActionFree(Matcher matcher) {
+        Info info = infos.get(matcher);
+        return info != null && info.actionFree;
+    }
+
+    /**
+     * Determines the matchers that can legally follow the matcher of the given context according to the grammar,
+     * with the same semantics as the {@link FollowMatchersVisitor}.
+     *
+     * @param currentContext the context of the current matcher
+     * @return the list of follow matchers
+     */
+    public List<Matcher> getFollowMatchers(MatcherContext currentContext) {
+        List<Matcher> followMatchers = new ArrayList<Matcher>();
+        for (MatcherContext context = currentContext.getParent(); context != null; context = context.getParent()) {
+            Matcher matcher = context.getMatcher();
+            Info info = infos.get(matcher);
+            if (info == null) {
+                info = new Info();
+                analyzeFollowers(matcher, info);
+            }
+            if (info.followEnds != null) {
+                List<Matcher> children = matcher.getChildren();
+                int start = context.getIntTag() + 1;
+                if (start < children.size()) {
+                    int end = info.followEnds[start];
+                    if (end < children.size()) {
+                        followMatchers.addAll(children.subList(start, end + 1));
+                        return followMatchers;
+                    }
+                    followMatchers.addAll(children.subList(start, children.size()));
+                }
+            } else if (info.repeated != null) {
+                followMatchers.add(info.repeated);
+            }
+        }
+        return followMatchers;
+    }
+
+    private void analyzeFollowers(Matcher matcher, Info info) {
+        Matcher inner = unwrap(matcher);
+        if (inner instanceof SequenceMatcher) {
+            // followEnds[i] is the index of the first child at or after i that cannot match empty
+            List<Matcher> children = inner.getChildren();
+            info.followEnds = new int[children.size()];
+            int end = children.size();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                if (!canMatchEmpty(children.get(i))) end = i;
+                info.followEnds[i] = end;
+            }
+        } else if (inner instanceof OneOrMoreMatcher) {
+            info.repeated = ((OneOrMoreMatcher) inner).subMatcher;
+        } else if (inner instanceof ZeroOrMoreMatcher) {
+            info.repeated = ((ZeroOrMoreMatcher) inner).subMatcher;
+        }
+    }
+
+    private static class Info {
+        private boolean singleChar;
+        private Character starterChar;
+        private boolean canMatchEmpty;
+        private boolean actionFree;
+        private int[] followEnds; // only for sequences
+        private Matcher repeated; // the sub matcher of OneOrMore and ZeroOrMore matchers
+    }
+
+    /**
+     * Determines whether a matcher can match empty given the current results for its sub matchers.
+     */
+    private class CanMatchEmptyStep extends DefaultMatcherVisitor<Boolean> {
+
+        @Override
+        public Boolean visit(ActionMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(CustomMatcher matcher) {
+            return matcher.canMatchEmpty();
+        }
+
+        @Override
+        public Boolean visit(EmptyMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(FirstOfMatcher matcher) {
+            for (Matcher child : matcher.getChildren()) {
+                if (canMatchEmpty(child)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean visit(OptionalMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(SequenceMatcher matcher) {
+            for (Matcher child : matcher.getChildren()) {
+                if (!canMatchEmpty(child)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Boolean visit(TestMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(TestNotMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(ZeroOrMoreMatcher matcher) {
+            return true;
+        }
+
+        @Override
+        public Boolean defaultValue(AbstractMatcher matcher) {
+            return false;
+        }
+    }
+}
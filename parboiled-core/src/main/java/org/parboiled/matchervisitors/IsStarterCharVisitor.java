@@ -27,9 +27,22 @@ public class IsStarterCharVisitor implements MatcherVisitor<Boolean> {
 
     private final CanMatchEmptyVisitor canMatchEmptyVisitor = new CanMatchEmptyVisitor();
     private final char starterChar;
+    private final GrammarAnalysis analysis;
 
     public IsStarterCharVisitor(char starterChar) {
+        this(starterChar, null);
+    }
+
+    /**
+     * Creates a new IsStarterCharVisitor that takes the empty match capabilities of sequence elements from the
+     * given analysis.
+     *
+     * @param starterChar the char to test
+     * @param analysis    the analysis of the rule graph, can be null
+     */
+    public IsStarterCharVisitor(char starterChar, GrammarAnalysis analysis) {
         this.starterChar = starterChar;
+        this.analysis = analysis;
     }
 
     public Boolean visit(ActionMatcher matcher) {
@@ -86,7 +99,7 @@ public class IsStarterCharVisitor implements MatcherVisitor<Boolean> {
     public Boolean visit(SequenceMatcher matcher) {
         for (Matcher child : matcher.getChildren()) {
             if (child.accept(this)) return true;
-            if (!child.accept(canMatchEmptyVisitor)) break;
+            if (!(analysis != null ? analysis.canMatchEmpty(child) : child.accept(canMatchEmptyVisitor))) break;
         }
         return false;
     }
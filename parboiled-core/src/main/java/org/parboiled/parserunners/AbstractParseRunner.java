@@ -37,6 +37,11 @@ public abstract class AbstractParseRunner<V> implements ParseRunner<V> {
     private List<ParseError> parseErrors;
     private ValueStack<V> valueStack;
     private Object initialValueStackSnapshot;
+    private ParseBudget budget;
+    private ParserMetrics metrics;
+    private FlightRecorder flightRecorder;
+    private BudgetMeter budgetMeter; // the meter of the current run, null if there is neither budget nor metrics
+    private boolean budgetInherited; // true if this runner performs passes of a run of another runner
 
     public AbstractParseRunner(Rule rule) {
         this.rootMatcher = checkArgNotNull((Matcher) rule, "rule");
@@ -71,6 +76,52 @@ public abstract class AbstractParseRunner<V> implements ParseRunner<V> {
         return valueStack;
     }    
 
+    /**
+     * Limits the resources each run of this runner may consume to the given budget.
+     *
+     * @param budget the budget, or null for no limits
+     * @return this instance
+     */
+    public ParseRunner<V> withBudget(ParseBudget budget) {
+        this.budget = budget;
+        this.budgetInherited = false;
+        return this;
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Makes this runner report the {@link RunMetrics} of each of its runs to the given metrics.
+     *
+     * @param metrics the metrics, or null for not collecting any metrics
+     * @return this instance
+     */
+    public ParseRunner<V> withMetrics(ParserMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public ParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Makes this runner record the most recent rule matching events of its runs with the given recorder.
+     *
+     * @param flightRecorder the recorder, or null for not recording any events
+     * @return this instance
+     */
+    public ParseRunner<V> withFlightRecorder(FlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+        return this;
+    }
+
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
     public ParsingResult<V> run(String input) {
         checkArgNotNull(input, "input");
         return run(input.toCharArray());
@@ -85,8 +136,58 @@ public abstract class AbstractParseRunner<V> implements ParseRunner<V> {
         getValueStack().restoreSnapshot(initialValueStackSnapshot);
     }
 
+    /**
+     * Starts metering a new run against the budget of this runner (if it has one) and collecting its metrics (if
+     * requested). Must be called at the beginning of every run, runners performing the passes of another runner's
+     * run simply continue the metering of that run.
+     */
+    protected void startRun() {
+        if (budgetInherited) return;
+        budgetMeter = budget != null || metrics != null ? new BudgetMeter(budget, metrics != null) : null;
+    }
+
+    /**
+     * Reports the metrics of the current run (if requested). Must be called at the end of every run.
+     *
+     * @param result the result of the run
+     * @return the result
+     */
+    protected ParsingResult<V> finishRun(ParsingResult<V> result) {
+        if (metrics != null && !budgetInherited) {
+            metrics.record(budgetMeter.createRunMetrics(rootMatcher, result.matched, result.parseErrors.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Makes this runner meter its runs as passes of the current run of the given runner (and record them with its
+     * flight recorder, if it has one).
+     *
+     * @param runner the runner whose current run this runner performs a pass of
+     * @return this instance
+     */
+    AbstractParseRunner<V> inheritBudget(AbstractParseRunner<?> runner) {
+        this.flightRecorder = runner.flightRecorder;
+        return inheritBudget(runner.budget, runner.budgetMeter);
+    }
+
+    AbstractParseRunner<V> inheritBudget(ParseBudget budget, BudgetMeter budgetMeter) {
+        this.budget = budget;
+        this.budgetMeter = budgetMeter;
+        this.budgetInherited = true;
+        return this;
+    }
+
+    // the meter of the current run, or null if this runner has neither a budget nor metrics
+    BudgetMeter getBudgetMeter() {
+        return budgetMeter;
+    }
+
     protected MatcherContext<V> createRootContext(InputBuffer inputBuffer, MatchHandler matchHandler,
                                                      boolean fastStringMatching) {
+        BudgetMeter meter = getBudgetMeter();
+        if (flightRecorder != null) matchHandler = flightRecorder.wrap(matchHandler);
+        if (meter != null) matchHandler = meter.wrap(matchHandler);
         return new MatcherContext<V>(inputBuffer, getValueStack(), getParseErrors(), matchHandler, rootMatcher,
                 fastStringMatching);
     }
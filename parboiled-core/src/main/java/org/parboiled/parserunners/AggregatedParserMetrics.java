@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.common.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ParserMetrics} implementation summing up the {@link RunMetrics} of all runs reported to it.
+ * Can be shared by any number of threads, the counters are striped to keep contention low.
+ */
+public class AggregatedParserMetrics implements ParserMetrics, AggregatedParserMetricsMBean {
+    private final StripedCounter runs = new StripedCounter();
+    private final StripedCounter failedRuns = new StripedCounter();
+    private final StripedCounter characters = new StripedCounter();
+    private final StripedCounter matcherInvocations = new StripedCounter();
+    private final StripedCounter rewinds = new StripedCounter();
+    private final StripedCounter memoHits = new StripedCounter();
+    private final StripedCounter memoMisses = new StripedCounter();
+    private final AtomicInteger maxMemoSize = new AtomicInteger();
+    private final StripedCounter nodes = new StripedCounter();
+    private final AtomicInteger maxValueStackSize = new AtomicInteger();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter recoveries = new StripedCounter();
+    private final StripedCounter totalNanoTime = new StripedCounter();
+
+    public void record(RunMetrics run) {
+        runs.increment();
+        if (!run.matched) failedRuns.increment();
+        characters.add(run.characters);
+        matcherInvocations.add(run.matcherInvocations);
+        rewinds.add(run.rewinds);
+        memoHits.add(run.memoHits);
+        memoMisses.add(run.memoMisses);
+        updateMax(maxMemoSize, run.memoSize);
+        nodes.add(run.nodes);
+        updateMax(maxValueStackSize, run.valueStackSize);
+        errors.add(run.errors);
+        recoveries.add(run.recoveries);
+        totalNanoTime.add(run.nanoTime);
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    public long getRuns() { return runs.get(); }
+
+    public long getFailedRuns() { return failedRuns.get(); }
+
+    public long getCharacters() { return characters.get(); }
+
+    public long getMatcherInvocations() { return matcherInvocations.get(); }
+
+    public long getRewinds() { return rewinds.get(); }
+
+    public long getMemoHits() { return memoHits.get(); }
+
+    public long getMemoMisses() { return memoMisses.get(); }
+
+    public int getMaxMemoSize() { return maxMemoSize.get(); }
+
+    public long getNodes() { return nodes.get(); }
+
+    public int getMaxValueStackSize() { return maxValueStackSize.get(); }
+
+    public long getErrors() { return errors.get(); }
+
+    public long getRecoveries() { return recoveries.get(); }
+
+    public long getTotalNanoTime() { return totalNanoTime.get(); }
+
+    /**
+     * Resets all counters, not atomic with regard to concurrently recorded runs.
+     */
+    public void reset() {
+        runs.reset();
+        failedRuns.reset();
+        characters.reset();
+        matcherInvocations.reset();
+        rewinds.reset();
+        memoHits.reset();
+        memoMisses.reset();
+        maxMemoSize.set(0);
+        nodes.reset();
+        maxValueStackSize.set(0);
+        errors.reset();
+        recoveries.reset();
+        totalNanoTime.reset();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+/**
+ * The management interface of {@link AggregatedParserMetrics}.
+ */
+public interface AggregatedParserMetricsMBean {
+
+    long getRuns();
+
+    long getFailedRuns();
+
+    long getCharacters();
+
+    long getMatcherInvocations();
+
+    long getRewinds();
+
+    long getMemoHits();
+
+    long getMemoMisses();
+
+    int getMaxMemoSize();
+
+    long getNodes();
+
+    int getMaxValueStackSize();
+
+    long getErrors();
+
+    long getRecoveries();
+
+    long getTotalNanoTime();
+
+    void reset();
+}
@@ -66,11 +66,12 @@ public class BasicParseRunner<V> extends AbstractParseRunner<V> implements Match
 
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
         resetValueStack();
         
         MatcherContext<V> rootContext = createRootContext(inputBuffer, this, true);
         boolean matched = rootContext.runMatcher();
-        return createParsingResult(matched, rootContext);
+        return finishRun(createParsingResult(matched, rootContext));
     }
 
     public boolean match(MatcherContext<?> context) {
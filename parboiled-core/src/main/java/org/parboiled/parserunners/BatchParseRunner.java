@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.Rule;
+import org.parboiled.common.Factory;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+import static org.parboiled.common.Preconditions.checkNotNull;
+
+/**
+ * Runs a rule against a whole batch of independent inputs in parallel.
+ * The inputs are split into chunks of {@link #getChunkSize()} consecutive inputs, which are distributed over
+ * either a user-supplied {@link ExecutorService} or a {@link ForkJoinPool} created for the duration of the run.
+ * Every worker thread obtains its rule from the given factory only once and reuses it for all inputs it parses,
+ * so the (potentially expensive) parser creation happens at most once per worker.
+ * The factory may also simply return one shared rule, since rule graphs can be used by several threads at once.
+ * Each input is parsed by a fresh {@link ParseRunner} created with {@link #createParseRunner(Rule)}, which is cheap
+ * and keeps the value stacks and error lists of the individual results independent.
+ *
+ * @param <V> the type of the value field of a parse tree node
+ */
+public class BatchParseRunner<V> {
+
+    /**
+     * Receives the results of a batch run as they become available.
+     * Note that the handler is called concurrently from the worker threads and in no particular order.
+     *
+     * @param <V> the type of the value field of a parse tree node
+     */
+    public interface ResultHandler<V> {
+        void handle(int index, String input, ParsingResult<V> result);
+    }
+
+    /**
+     * Aggregate throughput statistics of one batch run.
+     */
+    public static class Statistics {
+        public final int inputs;
+        public final int matched;
+        public final long characters;
+        public final long nanoTime;
+
+        public Statistics(int inputs, int matched, long characters, long nanoTime) {
+            this.inputs = inputs;
+            this.matched = matched;
+            this.characters = characters;
+            this.nanoTime = nanoTime;
+        }
+
+        public double getInputsPerSecond() {
+            return nanoTime > 0 ? inputs * 1e9 / nanoTime : 0.0;
+        }
+
+        public double getCharactersPerSecond() {
+            return nanoTime > 0 ? characters * 1e9 / nanoTime : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d inputs (%d matched), %d chars in %.2f ms -> %.2f inputs/sec, %.0f chars/sec",
+                    inputs, matched, characters, nanoTime / 1e6, getInputsPerSecond(), getCharactersPerSecond());
+        }
+    }
+
+    private final Factory<Rule> ruleFactory;
+    private final ExecutorService executor;
+    private int chunkSize = 16;
+    private Statistics statistics;
+
+    /**
+     * Creates a new BatchParseRunner that runs its batches on a fresh {@link ForkJoinPool}.
+     *
+     * @param ruleFactory the factory providing the root rule for each worker thread
+     */
+    public BatchParseRunner(Factory<Rule> ruleFactory) {
+        this(ruleFactory, null);
+    }
+
+    /**
+     * Creates a new BatchParseRunner that runs its batches on the given executor.
+     *
+     * @param ruleFactory the factory providing the root rule for each worker thread
+     * @param executor    the executor to use, or null for a fresh {@link ForkJoinPool} per run
+     */
+    public BatchParseRunner(Factory<Rule> ruleFactory, ExecutorService executor) {
+        this.ruleFactory = checkArgNotNull(ruleFactory, "ruleFactory");
+        this.executor = executor;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of consecutive inputs handed to a worker as one task. Larger chunks reduce the scheduling
+     * overhead for many small inputs, smaller ones balance the load better for few large inputs.
+     *
+     * @param chunkSize the chunk size, must be positive
+     * @return this instance
+     */
+    public BatchParseRunner<V> withChunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @return the statistics of the last completed batch run, or null if there was none
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Parses all given inputs and returns the results in input order.
+     *
+     * @param inputs the inputs
+     * @return the parsing results, one per input and in the same order
+     */
+    public List<ParsingResult<V>> run(Iterable<String> inputs) {
+        List<ParsingResult<V>> results = new ArrayList<ParsingResult<V>>();
+        process(inputs, null, results);
+        return results;
+    }
+
+    /**
+     * Parses all given inputs and hands each result to the given handler as soon as it is available.
+     * Results are not retained, so arbitrarily long input sequences can be processed.
+     *
+     * @param inputs  the inputs
+     * @param handler the handler receiving the results
+     */
+    public void run(Iterable<String> inputs, ResultHandler<V> handler) {
+        process(inputs, checkArgNotNull(handler, "handler"), null);
+    }
+
+    /**
+     * Creates the ParseRunner used for a single input. The default implementation creates a
+     * {@link ReportingParseRunner}. Override to use a different runner type.
+     *
+     * @param rule the root rule of the calling worker
+     * @return a new ParseRunner
+     */
+    protected ParseRunner<V> createParseRunner(Rule rule) {
+        return new ReportingParseRunner<V>(rule);
+    }
+
+    private void process(Iterable<String> inputs, ResultHandler<V> handler, List<ParsingResult<V>> results) {
+        checkArgNotNull(inputs, "inputs");
+        ExecutorService exec = executor != null ? executor : new ForkJoinPool();
+        ThreadLocal<Rule> rules = new ThreadLocal<Rule>();
+        AtomicLong matched = new AtomicLong();
+        AtomicLong characters = new AtomicLong();
+        // bound the number of outstanding chunks, so streaming inputs are not read ahead without limit
+        int maxPending = Runtime.getRuntime().availableProcessors() * 4;
+        LinkedList<Future<List<ParsingResult<V>>>> pending = new LinkedList<Future<List<ParsingResult<V>>>>();
+
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            Iterator<String> iterator = inputs.iterator();
+            while (iterator.hasNext()) {
+                List<String> chunk = new ArrayList<String>(chunkSize);
+                while (chunk.size() < chunkSize && iterator.hasNext()) {
+                    chunk.add(checkArgNotNull(iterator.next(), "input"));
+                }
+                pending.add(exec.submit(new Chunk(count, chunk, rules, handler, matched, characters)));
+                count += chunk.size();
+                if (pending.size() >= maxPending) collect(pending.removeFirst(), results);
+            }
+            while (!pending.isEmpty()) collect(pending.removeFirst(), results);
+        } finally {
+            for (Future<?> future : pending) future.cancel(true);
+            if (executor == null) exec.shutdown();
+        }
+        statistics = new Statistics(count, (int) matched.get(), characters.get(), System.nanoTime() - start);
+    }
+
+    private void collect(Future<List<ParsingResult<V>>> future, List<ParsingResult<V>> results) {
+        try {
+            List<ParsingResult<V>> chunkResults = future.get();
+            if (results != null) results.addAll(chunkResults);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParserRuntimeException(e, "Interrupted during batch parsing run");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new ParserRuntimeException(cause, "Error during batch parsing run");
+        }
+    }
+
+    private class Chunk implements Callable<List<ParsingResult<V>>> {
+        private final int firstIndex;
+        private final List<String> inputs;
+        private final ThreadLocal<Rule> rules;
+        private final ResultHandler<V> handler;
+        private final AtomicLong matched;
+        private final AtomicLong characters;
+
+        private Chunk(int firstIndex, List<String> inputs, ThreadLocal<Rule> rules, ResultHandler<V> handler,
+                      AtomicLong matched, AtomicLong characters) {
+            this.firstIndex = firstIndex;
+            this.inputs = inputs;
+            this.rules = rules;
+            this.handler = handler;
+            this.matched = matched;
+            this.characters = characters;
+        }
+
+        public List<ParsingResult<V>> call() {
+            Rule rule = rules.get();
+            if (rule == null) {
+                rule = checkNotNull(ruleFactory.create(), "ruleFactory must not return null");
+                rules.set(rule);
+            }
+            List<ParsingResult<V>> results = handler == null ? new ArrayList<ParsingResult<V>>(inputs.size()) : null;
+            int matchedCount = 0;
+            long charCount = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                String input = inputs.get(i);
+                ParsingResult<V> result = createParseRunner(rule).run(input);
+                if (result.matched) matchedCount++;
+                charCount += input.length();
+                if (handler != null) {
+                    handler.handle(firstIndex + i, input, result);
+                } else {
+                    results.add(result);
+                }
+            }
+            matched.addAndGet(matchedCount);
+            characters.addAndGet(charCount);
+            return results;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.Context;
+import org.parboiled.MatcherContext;
+import org.parboiled.Node;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.Predicate;
+import org.parboiled.common.Predicates;
+import org.parboiled.common.Sink;
+import org.parboiled.common.Tuple2;
+import org.parboiled.errors.ParseError;
+import org.parboiled.matchers.AbstractMatcher;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.matchervisitors.MatcherVisitor;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.MatchView;
+import org.parboiled.support.MatcherPath;
+import org.parboiled.support.Position;
+import org.parboiled.support.ValueStack;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkState;
+import static org.parboiled.parserunners.BinaryTraceWriter.*;
+
+/**
+ * Replays a trace recorded by a {@link BinaryTraceWriter}, rendering the log messages of the
+ * {@link TracingParseRunner} for the rule matching events selected by a filter. Since the filter is applied during
+ * the replay rather than during the parsing run, the same trace can be examined with any number of filters.
+ * The filters (like the ones provided by {@link org.parboiled.support.Filters}) receive contexts giving access to
+ * the matcher, the path, the input buffer and the indices of an event. The value stack, parse tree nodes and parse
+ * errors of the original run are not available.
+ */
+public class BinaryTraceReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<Matcher> matchers = new ArrayList<Matcher>();
+
+    /**
+     * Opens a trace file of runs of the given rule.
+     *
+     * @param rule the root rule of the traced runs
+     * @param file the trace file
+     */
+    public BinaryTraceReader(Rule rule, File file) {
+        this(rule, openChannel(file), 64 * 1024);
+    }
+
+    /**
+     * Opens a trace of runs of the given rule.
+     *
+     * @param rule       the root rule of the traced runs
+     * @param channel    the channel to read the trace from, closed when this reader is closed
+     * @param bufferSize the size of the read buffer in bytes
+     */
+    public BinaryTraceReader(Rule rule, FileChannel channel, int bufferSize) {
+        checkArgNotNull(rule, "rule");
+        this.channel = checkArgNotNull(channel, "channel");
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+        buffer.flip();
+
+        checkState(readInt() == MAGIC, "Not a parboiled trace");
+        checkState(readInt() == VERSION, "Unsupported trace version");
+        List<Matcher> graph = collectMatchers((Matcher) rule);
+        int count = readInt();
+        checkState(count == graph.size(), "The trace was recorded for another rule");
+        for (Matcher matcher : graph) {
+            checkState(matcher.getLabel().equals(readLabel()), "The trace was recorded for another rule");
+            matchers.add(matcher);
+        }
+    }
+
+    private static FileChannel openChannel(File file) {
+        checkArgNotNull(file, "file");
+        try {
+            return new FileInputStream(file).getChannel();
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Renders all rule matching events of the rest of the trace.
+     *
+     * @param inputBuffer the input of the traced runs
+     * @param log         the log to render to
+     * @return the number of rendered events
+     */
+    public int replay(InputBuffer inputBuffer, Sink<String> log) {
+        return replay(inputBuffer, Predicates.alwaysTrue(), log);
+    }
+
+    /**
+     * Renders the rule matching events of the rest of the trace selected by the given filter.
+     *
+     * @param inputBuffer the input of the traced runs
+     * @param filter      the filter selecting the events to render, must be of type
+     *                    Predicate&lt;Tuple2&lt;Context&lt;?&gt;, Boolean&gt;&gt; (see
+     *                    {@link TracingParseRunner#withFilter(Predicate)})
+     * @param log         the log to render to
+     * @return the number of rendered events
+     */
+    @SuppressWarnings({"unchecked"})
+    public int replay(InputBuffer inputBuffer, Predicate<?> filter, Sink<String> log) {
+        checkArgNotNull(inputBuffer, "inputBuffer");
+        Predicate<Tuple2<Context<?>, Boolean>> contextFilter =
+                (Predicate<Tuple2<Context<?>, Boolean>>) checkArgNotNull(filter, "filter");
+        checkArgNotNull(log, "log");
+        TracePrinter printer = new TracePrinter();
+        TraceContext current = null;
+        int count = 0;
+        while (ensureAvailable(1)) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case ENTER:
+                    int id = readInt();
+                    checkState(id >= 0 && id < matchers.size(), "Corrupt trace");
+                    int startIndex = readInt();
+                    current = new TraceContext(inputBuffer, current, matchers.get(id), startIndex);
+                    break;
+                case EXIT_FAILED:
+                case EXIT_MATCHED:
+                    checkState(current != null, "Corrupt trace");
+                    current.currentIndex = readInt();
+                    boolean matched = tag == EXIT_MATCHED;
+                    if (contextFilter.apply(new Tuple2<Context<?>, Boolean>(current, matched))) {
+                        count++;
+                        printer.print(current, matched, log);
+                    }
+                    current = current.parent;
+                    break;
+                case RUN_START:
+                    printer.startRun(log);
+                    current = null; // in case the previous run was aborted
+                    break;
+                case DEFINE:
+                    checkState(readInt() == matchers.size(), "Corrupt trace");
+                    matchers.add(new UnresolvedMatcher(readLabel()));
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt trace");
+            }
+        }
+        return count;
+    }
+
+    private int readInt() {
+        checkState(ensureAvailable(4), "Unexpected end of trace");
+        return buffer.getInt();
+    }
+
+    private String readLabel() {
+        byte[] bytes = new byte[readInt()];
+        int read = 0;
+        while (read < bytes.length) {
+            checkState(ensureAvailable(1), "Unexpected end of trace");
+            int n = Math.min(buffer.remaining(), bytes.length - read);
+            buffer.get(bytes, read, n);
+            read += n;
+        }
+        return new String(bytes, UTF8);
+    }
+
+    // returns false if the trace ends before the given number of bytes
+    private boolean ensureAvailable(int bytes) {
+        if (buffer.remaining() >= bytes) return true;
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) break;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= bytes;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The context of a replayed rule invocation.
+     */
+    private static class TraceContext implements Context<Object> {
+        private final InputBuffer inputBuffer;
+        private final TraceContext parent;
+        private final Matcher matcher;
+        private final int startIndex;
+        private final int level;
+        private int currentIndex;
+        private MatcherPath path;
+
+        private TraceContext(InputBuffer inputBuffer, TraceContext parent, Matcher matcher, int startIndex) {
+            this.inputBuffer = inputBuffer;
+            this.parent = parent;
+            this.matcher = matcher;
+            this.startIndex = startIndex;
+            this.currentIndex = startIndex;
+            this.level = parent != null ? parent.level + 1 : 0;
+        }
+
+        public Context<Object> getParent() { return parent; }
+
+        public InputBuffer getInputBuffer() { return inputBuffer; }
+
+        public Matcher getMatcher() { return matcher; }
+
+        public int getStartIndex() { return startIndex; }
+
+        public int getCurrentIndex() { return currentIndex; }
+
+        public char getCurrentChar() { return inputBuffer.charAt(currentIndex); }
+
+        public MatcherPath getPath() {
+            if (path == null) {
+                path = new MatcherPath(new MatcherPath.Element(matcher, startIndex, level),
+                        parent != null ? parent.getPath() : null);
+            }
+            return path;
+        }
+
+        public int getLevel() { return level; }
+
+        public boolean fastStringMatching() { return true; }
+
+        public boolean inErrorRecovery() { return false; }
+
+        public String getMatch() { return inputBuffer.extract(startIndex, currentIndex); }
+
+        public CharSequence getMatchView() { return new MatchView().set(inputBuffer, startIndex, currentIndex); }
+
+        public char getFirstMatchChar() { return inputBuffer.charAt(startIndex); }
+
+        public int getMatchStartIndex() { return startIndex; }
+
+        public int getMatchEndIndex() { return currentIndex; }
+
+        public int getMatchLength() { return currentIndex - startIndex; }
+
+        public Position getPosition() { return inputBuffer.getPosition(currentIndex); }
+
+        public IndexRange getMatchRange() { return new IndexRange(startIndex, currentIndex); }
+
+        public List<ParseError> getParseErrors() { throw notAvailable(); }
+
+        public List<Node<Object>> getSubNodes() { throw notAvailable(); }
+
+        public boolean inPredicate() { throw notAvailable(); }
+
+        public boolean isNodeSuppressed() { throw notAvailable(); }
+
+        public boolean hasError() { throw notAvailable(); }
+
+        public ValueStack<Object> getValueStack() { throw notAvailable(); }
+
+        private static UnsupportedOperationException notAvailable() {
+            return new UnsupportedOperationException("Not available in trace replays");
+        }
+    }
+
+    /**
+     * Stands in for a matcher outside of the rule graph, of which only the label was recorded.
+     */
+    private static class UnresolvedMatcher extends AbstractMatcher {
+        private UnresolvedMatcher(String label) {
+            super(label);
+        }
+
+        public boolean match(MatcherContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        public <R> R accept(MatcherVisitor<R> visitor) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.matchers.Matcher;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.matchers.MatcherUtils.unwrap;
+
+/**
+ * Records the rule matching events of a {@link TracingParseRunner} in a compact binary format.
+ * Every rule invocation is stored as an enter record (a tag byte, the ID of the matcher and the start index, 9 bytes)
+ * and an exit record (a tag byte for the match outcome and the end index, 5 bytes), the IDs are assigned to the
+ * matchers of the rule graph in a deterministic order and stored, together with the matcher labels, in the header
+ * of the trace.
+ * The records are buffered and written to a {@link FileChannel} in large blocks.
+ * Use a {@link BinaryTraceReader} to render (parts of) a trace as text.
+ */
+public class BinaryTraceWriter implements Closeable {
+    static final int MAGIC = 0x50425452; // "PBTR"
+    static final int VERSION = 2;
+    static final Charset UTF8 = Charset.forName("UTF8");
+
+    // the record tags, stored in the first byte of a record
+    static final byte ENTER = 0; // followed by the matcher ID and the start index
+    static final byte EXIT_FAILED = 1; // followed by the end index
+    static final byte EXIT_MATCHED = 2; // followed by the end index
+    static final byte RUN_START = 3;
+    static final byte DEFINE = 4; // followed by a matcher ID and label for a matcher outside of the rule graph
+
+    private final Matcher rootMatcher;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final Map<Matcher, Integer> ids = new IdentityHashMap<Matcher, Integer>();
+
+    /**
+     * Creates a new trace file for runs of the given rule.
+     *
+     * @param rule the root rule of the traced runs
+     * @param file the file to write the trace to, will be overwritten if it exists
+     */
+    public BinaryTraceWriter(Rule rule, File file) {
+        this(rule, openChannel(file), 64 * 1024);
+    }
+
+    /**
+     * Creates a new trace for runs of the given rule.
+     *
+     * @param rule       the root rule of the traced runs
+     * @param channel    the channel to write the trace to, closed when this writer is closed
+     * @param bufferSize the size of the write buffer in bytes
+     */
+    public BinaryTraceWriter(Rule rule, FileChannel channel, int bufferSize) {
+        this.rootMatcher = checkArgNotNull((Matcher) rule, "rule");
+        this.channel = checkArgNotNull(channel, "channel");
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+        List<Matcher> matchers = collectMatchers(rootMatcher);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(matchers.size());
+        for (int i = 0; i < matchers.size(); i++) {
+            ids.put(matchers.get(i), i);
+            putLabel(matchers.get(i).getLabel());
+        }
+    }
+
+    private static FileChannel openChannel(File file) {
+        checkArgNotNull(file, "file");
+        try {
+            return new FileOutputStream(file).getChannel();
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Determines the matchers of the rule graph below the given root matcher in a deterministic order,
+     * their indices in the returned list are their IDs in a trace.
+     *
+     * @param root the root matcher
+     * @return the matchers
+     */
+    static List<Matcher> collectMatchers(Matcher root) {
+        List<Matcher> matchers = new ArrayList<Matcher>();
+        Map<Matcher, Boolean> visited = new IdentityHashMap<Matcher, Boolean>();
+        LinkedList<Matcher> todo = new LinkedList<Matcher>();
+        todo.add(root);
+        while (!todo.isEmpty()) {
+            Matcher matcher = todo.removeFirst();
+            if (visited.containsKey(matcher)) continue;
+            visited.put(matcher, Boolean.TRUE);
+            matchers.add(matcher);
+            Matcher unwrapped = unwrap(matcher);
+            if (unwrapped != matcher) todo.add(unwrapped);
+            todo.addAll(matcher.getChildren());
+        }
+        return matchers;
+    }
+
+    public Matcher getRootMatcher() {
+        return rootMatcher;
+    }
+
+    public void startRun() {
+        ensureCapacity(1);
+        buffer.put(RUN_START);
+    }
+
+    public void enter(MatcherContext<?> context) {
+        Matcher matcher = context.getMatcher();
+        Integer id = ids.get(matcher);
+        if (id == null) {
+            // a matcher created on the fly, e.g. by an action
+            ids.put(matcher, id = ids.size());
+            ensureCapacity(5);
+            buffer.put(DEFINE).putInt(id);
+            putLabel(matcher.getLabel());
+        }
+        ensureCapacity(9);
+        buffer.put(ENTER).putInt(id).putInt(context.getStartIndex());
+    }
+
+    public void exit(MatcherContext<?> context, boolean matched) {
+        ensureCapacity(5);
+        buffer.put(matched ? EXIT_MATCHED : EXIT_FAILED).putInt(context.getCurrentIndex());
+    }
+
+    private void putLabel(String label) {
+        byte[] bytes = label.getBytes(UTF8);
+        ensureCapacity(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else {
+            flush();
+            write(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) flush();
+    }
+
+    /**
+     * Writes all buffered records to the channel.
+     */
+    public void flush() {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) channel.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
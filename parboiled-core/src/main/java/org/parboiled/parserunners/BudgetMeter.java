@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.support.Chars;
+
+/**
+ * Meters the resource consumption of one parsing run against a {@link ParseBudget} and, if requested, collects
+ * the {@link RunMetrics} of the run.
+ * A meter is not thread-safe, concurrent passes of one run have to use {@link #fork()}ed meters.
+ */
+class BudgetMeter {
+    private static final ParseBudget UNLIMITED = new ParseBudget();
+
+    private final ParseBudget budget;
+    private final boolean collectMetrics;
+    private final long startTime;
+    private long steps;
+    private long nodes;
+    private long nextCheck;
+    private long forkedSteps; // the consumption of the meter this one was forked from at the time of the fork
+    private long forkedNodes;
+
+    // the metrics only collected if requested, for forks these only count the consumption of the fork itself
+    private int maxIndex;
+    private boolean maxIndexAfterEoi; // true if the match ending at the max index consumed the EOI
+    private long rewinds;
+    private long memoHits;
+    private long memoMisses;
+    private int maxMemoSize;
+    private int maxValueStackSize;
+    private int recoveries;
+
+    BudgetMeter(ParseBudget budget, boolean collectMetrics) {
+        this(budget != null ? budget : UNLIMITED, collectMetrics, System.nanoTime());
+    }
+
+    private BudgetMeter(ParseBudget budget, boolean collectMetrics, long startTime) {
+        this.budget = budget;
+        this.collectMetrics = collectMetrics;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Creates a meter for a concurrent pass of the same run, starting out with the current consumption.
+     * The additional consumption of the pass can later be added to this meter with {@link #join(BudgetMeter)}.
+     */
+    BudgetMeter fork() {
+        BudgetMeter meter = new BudgetMeter(budget, collectMetrics, startTime);
+        meter.steps = meter.nextCheck = meter.forkedSteps = steps;
+        meter.nodes = meter.forkedNodes = nodes;
+        return meter;
+    }
+
+    void join(BudgetMeter fork) {
+        steps += fork.steps - fork.forkedSteps;
+        nodes += fork.nodes - fork.forkedNodes;
+        if (fork.maxIndex > maxIndex) {
+            maxIndex = fork.maxIndex;
+            maxIndexAfterEoi = fork.maxIndexAfterEoi;
+        }
+        rewinds += fork.rewinds;
+        memoHits += fork.memoHits;
+        memoMisses += fork.memoMisses;
+        maxMemoSize = Math.max(maxMemoSize, fork.maxMemoSize);
+        maxValueStackSize = Math.max(maxValueStackSize, fork.maxValueStackSize);
+        recoveries += fork.recoveries;
+    }
+
+    MatchHandler wrap(final MatchHandler inner) {
+        return new MatchHandler() {
+            public boolean match(MatcherContext<?> context) {
+                step(context);
+                boolean matched = inner.match(context);
+                if (matched) matched(context);
+                else mismatched(context);
+                return matched;
+            }
+        };
+    }
+
+    void step(MatcherContext<?> context) {
+        if (++steps > budget.getMaxSteps()) exceeded(ParseBudget.Limit.STEPS, context);
+        if (steps >= nextCheck) {
+            nextCheck = steps + budget.getCheckInterval();
+            if (budget.isCancelled()) exceeded(ParseBudget.Limit.CANCELLED, context);
+            if (System.nanoTime() - startTime > budget.getTimeoutNanos()) exceeded(ParseBudget.Limit.TIME, context);
+        }
+    }
+
+    void matched(MatcherContext<?> context) {
+        if (context.getNode() != null && ++nodes > budget.getMaxNodes()) {
+            exceeded(ParseBudget.Limit.NODES, context);
+        }
+        if (collectMetrics) {
+            int index = context.getCurrentIndex();
+            if (index > maxIndex) {
+                maxIndex = index;
+                maxIndexAfterEoi = context.getInputBuffer().charAt(index - 1) == Chars.EOI;
+            }
+            // value stack changes only happen in matching actions
+            int valueStackSize = context.getValueStack().size();
+            if (valueStackSize > maxValueStackSize) maxValueStackSize = valueStackSize;
+        }
+    }
+
+    void mismatched(MatcherContext<?> context) {
+        // the input consumed by the successful sub matches of a failed match is rewound,
+        // the input consumed by failed sub matches was already accounted for by these
+        if (collectMetrics) rewinds += context.getCurrentIndex() - context.getStartIndex();
+    }
+
+    void memoSize(int entries, MatcherContext<?> context) {
+        if (entries > budget.getMaxMemoEntries()) exceeded(ParseBudget.Limit.MEMO_ENTRIES, context);
+        if (entries > maxMemoSize) maxMemoSize = entries;
+    }
+
+    void memoHit() {
+        memoHits++;
+    }
+
+    void memoMiss() {
+        memoMisses++;
+    }
+
+    void recovery() {
+        recoveries++;
+    }
+
+    RunMetrics createRunMetrics(Matcher rootMatcher, boolean matched, int errors) {
+        int characters = maxIndexAfterEoi ? maxIndex - 1 : maxIndex;
+        return new RunMetrics(rootMatcher, matched, characters, steps, rewinds, memoHits, memoMisses, maxMemoSize,
+                nodes, maxValueStackSize, errors, recoveries, System.nanoTime() - startTime);
+    }
+
+    private void exceeded(ParseBudget.Limit limit, MatcherContext<?> context) {
+        throw new ParseBudgetExceededException(limit, context.getInputBuffer(), context.getCurrentIndex(),
+                context.getPath(), steps, nodes, System.nanoTime() - startTime);
+    }
+}
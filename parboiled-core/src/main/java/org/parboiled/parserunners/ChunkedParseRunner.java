@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Node;
+import org.parboiled.Rule;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.Predicate;
+import org.parboiled.errors.ParseError;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.matchers.CharMatcher;
+import org.parboiled.matchers.CustomMatcher;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.matchers.SequenceMatcher;
+import org.parboiled.support.Chars;
+import org.parboiled.support.DefaultValueStack;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.ParsingResult;
+import org.parboiled.support.Position;
+import org.parboiled.support.ValueStack;
+import org.parboiled.trees.ImmutableTreeNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+import static org.parboiled.matchers.MatcherUtils.unwrap;
+
+/**
+ * Parses one large input consisting of a sequence of independent items (lines, records, statements, ...) by
+ * splitting it into chunks and parsing the chunks concurrently.
+ * The input is cut into chunks of roughly {@link #getChunkSize()} characters, with every cut being moved forward
+ * to directly behind the next character satisfying the given boundary predicate (e.g. a newline).
+ * The given rule is then run against every chunk (which must be matched completely) with an independent context
+ * on a user-supplied {@link ExecutorService} or a {@link ForkJoinPool} created for the duration of the run.
+ * All chunks are parsed at their original position within the complete input, so parse tree nodes and parse errors
+ * carry global indices and positions.
+ * <p>Afterwards the chunk results are merged in input order: values are pushed onto the result value stack chunk by
+ * chunk, parse errors are concatenated and the children of the chunk rule nodes are collected under one root node
+ * for the rule spanning the whole input. If a chunk fails to match, for example because an item contains a boundary
+ * character and therefore straddles a cut, the chunk is re-parsed together with its successor and the joint result
+ * replaces both if it matches or only fails behind the cut. Note that every failed chunk contributes its own
+ * parse error, so errors following a failed chunk can be consequential errors of the first one.</p>
+ *
+ * @param <V> the type of the value field of a parse tree node
+ */
+public class ChunkedParseRunner<V> {
+    private final Rule rule;
+    private final Predicate<Character> boundary;
+    private final ExecutorService executor;
+    private int chunkSize = 1 << 20;
+
+    /**
+     * Creates a new ChunkedParseRunner that runs on a fresh {@link ForkJoinPool}.
+     *
+     * @param rule     the rule matching a sequence of items, e.g. {@code ZeroOrMore(Line())}
+     * @param boundary the predicate identifying the characters behind which the input may be cut
+     */
+    public ChunkedParseRunner(Rule rule, Predicate<Character> boundary) {
+        this(rule, boundary, null);
+    }
+
+    /**
+     * Creates a new ChunkedParseRunner that runs on the given executor.
+     *
+     * @param rule     the rule matching a sequence of items, e.g. {@code ZeroOrMore(Line())}
+     * @param boundary the predicate identifying the characters behind which the input may be cut
+     * @param executor the executor to use, or null for a fresh {@link ForkJoinPool} per run
+     */
+    public ChunkedParseRunner(Rule rule, Predicate<Character> boundary, ExecutorService executor) {
+        this.rule = checkArgNotNull(rule, "rule");
+        this.boundary = checkArgNotNull(boundary, "boundary");
+        this.executor = executor;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the approximate number of characters per chunk.
+     *
+     * @param chunkSize the chunk size, must be positive
+     * @return this instance
+     */
+    public ChunkedParseRunner<V> withChunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public ParsingResult<V> run(String input) {
+        checkArgNotNull(input, "input");
+        return run(input.toCharArray());
+    }
+
+    public ParsingResult<V> run(char[] input) {
+        checkArgNotNull(input, "input");
+        InputBuffer inputBuffer = new DefaultInputBuffer(input);
+        List<Integer> cuts = findCuts(input);
+        int chunks = cuts.size() - 1;
+
+        @SuppressWarnings("unchecked")
+        ParsingResult<V>[] results = new ParsingResult[chunks];
+        ExecutorService exec = executor != null ? executor : new ForkJoinPool();
+        List<Future<ParsingResult<V>>> futures = new ArrayList<Future<ParsingResult<V>>>(chunks);
+        try {
+            for (int i = 0; i < chunks; i++) {
+                final ChunkInputBuffer chunk = new ChunkInputBuffer(inputBuffer, cuts.get(i), cuts.get(i + 1));
+                futures.add(exec.submit(new Callable<ParsingResult<V>>() {
+                    public ParsingResult<V> call() {
+                        return parseChunk(chunk);
+                    }
+                }));
+            }
+            for (int i = 0; i < chunks; i++) {
+                results[i] = collect(futures.get(i));
+            }
+        } finally {
+            for (Future<?> future : futures) future.cancel(true);
+            if (executor == null) exec.shutdown();
+        }
+
+        // re-parse failed chunks together with their successor, an item might straddle the cut between them
+        for (int i = 0; i < chunks - 1; i++) {
+            if (results[i] != null && !results[i].matched) {
+                ParsingResult<V> joined =
+                        parseChunk(new ChunkInputBuffer(inputBuffer, cuts.get(i), cuts.get(i + 2)));
+                // if the joint run got past the cut the failure of the first chunk was caused by the cut
+                if (joined.matched || !joined.parseErrors.isEmpty() &&
+                        joined.parseErrors.get(0).getStartIndex() >= cuts.get(i + 1)) {
+                    results[i] = joined;
+                    results[i + 1] = null;
+                }
+            }
+        }
+        return merge(results, inputBuffer, input.length);
+    }
+
+    /**
+     * Creates the ParseRunner used for a single chunk. The default implementation creates a
+     * {@link ReportingParseRunner}. Override to use a different runner type.
+     *
+     * @param rule the rule to run
+     * @return a new ParseRunner
+     */
+    protected ParseRunner<V> createParseRunner(Rule rule) {
+        return new ReportingParseRunner<V>(rule);
+    }
+
+    private List<Integer> findCuts(char[] input) {
+        List<Integer> cuts = new ArrayList<Integer>();
+        cuts.add(0);
+        int ix = chunkSize;
+        while (ix < input.length) {
+            while (ix < input.length && !boundary.apply(input[ix - 1])) ix++;
+            if (ix >= input.length) break;
+            cuts.add(ix);
+            ix += chunkSize;
+        }
+        cuts.add(input.length);
+        return cuts;
+    }
+
+    private ParsingResult<V> parseChunk(ChunkInputBuffer chunk) {
+        // the chunk rule is framed by a matcher jumping to the chunk start and a check for the chunk end, so that
+        // the wrapped runner sees all nodes and errors at their global indices
+        Rule chunkRule = new SequenceMatcher(new Rule[] {
+                new SkipMatcher(chunk.start).suppressNode(), rule, new CharMatcher(Chars.EOI).suppressNode()
+        });
+        return createParseRunner(chunkRule).run(chunk);
+    }
+
+    private ParsingResult<V> collect(Future<ParsingResult<V>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParserRuntimeException(e, "Interrupted during chunked parsing run");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new ParserRuntimeException(cause, "Error during chunked parsing run");
+        }
+    }
+
+    private ParsingResult<V> merge(ParsingResult<V>[] results, InputBuffer inputBuffer, int length) {
+        Matcher matcher = unwrap((Matcher) rule);
+        boolean matched = true;
+        boolean hasError = false;
+        boolean hasTree = false;
+        ValueStack<V> valueStack = new DefaultValueStack<V>();
+        List<ParseError> parseErrors = new ArrayList<ParseError>();
+        List<Node<V>> children = new ArrayList<Node<V>>();
+
+        for (ParsingResult<V> result : results) {
+            if (result == null) continue; // merged into its predecessor
+            matched &= result.matched;
+            parseErrors.addAll(result.parseErrors);
+
+            List<V> values = new ArrayList<V>();
+            for (V value : result.valueStack) values.add(value);
+            Collections.reverse(values);
+            for (V value : values) valueStack.push(value);
+
+            if (result.parseTreeRoot != null) {
+                hasTree = true;
+                hasError |= result.parseTreeRoot.hasError();
+                for (Node<V> node : result.parseTreeRoot.getChildren()) {
+                    if (node.getMatcher() == matcher) {
+                        children.addAll(node.getChildren());
+                    } else {
+                        children.add(node);
+                    }
+                }
+            }
+        }
+
+        Node<V> root = hasTree ? new MergedNode<V>(matcher, children, 0, length,
+                valueStack.isEmpty() ? null : valueStack.peek(), hasError) : null;
+        return new ParsingResult<V>(matched, root, valueStack, parseErrors, inputBuffer);
+    }
+
+    /**
+     * A view of one chunk of the complete input buffer, using the global indices of the complete buffer but
+     * reporting EOI at the end of the chunk.
+     */
+    private static class ChunkInputBuffer implements InputBuffer {
+        private final InputBuffer buffer;
+        private final int start;
+        private final int end;
+
+        private ChunkInputBuffer(InputBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        public char charAt(int index) {
+            if (index < end) return buffer.charAt(index);
+            if (index - end > 100000) {
+                throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, " +
+                        "verify that your grammar does not consume EOI indefinitely!");
+            }
+            return Chars.EOI;
+        }
+
+        public boolean test(int index, char[] characters) {
+            return index + characters.length <= end && buffer.test(index, characters);
+        }
+
+        public String extract(int start, int end) {
+            return buffer.extract(start, Math.min(end, this.end));
+        }
+
+        public String extract(IndexRange range) {
+            return extract(range.start, range.end);
+        }
+
+        // the line information of the shared buffer is built lazily and therefore needs to be guarded
+
+        public Position getPosition(int index) {
+            synchronized (buffer) {
+                return buffer.getPosition(index);
+            }
+        }
+
+        public int getOriginalIndex(int index) {
+            return buffer.getOriginalIndex(index);
+        }
+
+        public String extractLine(int lineNumber) {
+            synchronized (buffer) {
+                return buffer.extractLine(lineNumber);
+            }
+        }
+
+        public int getLineCount() {
+            synchronized (buffer) {
+                return buffer.getLineCount();
+            }
+        }
+    }
+
+    /**
+     * Matches the empty string while moving the current index to the given chunk start.
+     */
+    private static class SkipMatcher extends CustomMatcher {
+        private final int start;
+
+        private SkipMatcher(int start) {
+            super("ChunkStart");
+            this.start = start;
+        }
+
+        public boolean match(MatcherContext context) {
+            context.advanceIndex(start - context.getCurrentIndex());
+            context.createNode();
+            return true;
+        }
+
+        public boolean isSingleCharMatcher() {
+            return false;
+        }
+
+        public boolean canMatchEmpty() {
+            return true;
+        }
+
+        public boolean isStarterChar(char c) {
+            return false;
+        }
+
+        public char getStarterChar() {
+            return Chars.EOI;
+        }
+    }
+
+    /**
+     * The root node of a merged parse tree.
+     */
+    private static class MergedNode<V> extends ImmutableTreeNode<Node<V>> implements Node<V> {
+        private final Matcher matcher;
+        private final int startIndex;
+        private final int endIndex;
+        private final V value;
+        private final boolean hasError;
+
+        private MergedNode(Matcher matcher, List<Node<V>> children, int startIndex, int endIndex, V value,
+                           boolean hasError) {
+            super(children);
+            this.matcher = matcher;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.value = value;
+            this.hasError = hasError;
+        }
+
+        public Matcher getMatcher() {
+            return matcher;
+        }
+
+        public String getLabel() {
+            return matcher.getLabel();
+        }
+
+        public int getStartIndex() {
+            return startIndex;
+        }
+
+        public int getEndIndex() {
+            return endIndex;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean hasError() {
+            return hasError;
+        }
+
+        @Override
+        public String toString() {
+            return '[' + getLabel() + ']';
+        }
+    }
+}
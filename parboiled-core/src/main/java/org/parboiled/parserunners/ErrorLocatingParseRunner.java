@@ -60,6 +60,7 @@ public class ErrorLocatingParseRunner<V> extends AbstractParseRunner<V> implemen
 
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
         resetValueStack();
         errorIndex = 0;
         
@@ -69,7 +70,7 @@ public class ErrorLocatingParseRunner<V> extends AbstractParseRunner<V> implemen
         if (!matched) {
             getParseErrors().add(new BasicParseError(inputBuffer, errorIndex, null));
         }
-        return createParsingResult(matched, rootContext);
+        return finishRun(createParsingResult(matched, rootContext));
     }
 
     public boolean match(MatcherContext<?> context) {
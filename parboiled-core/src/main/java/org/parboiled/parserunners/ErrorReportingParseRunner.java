@@ -21,7 +21,7 @@ import org.parboiled.MatcherContext;
 import org.parboiled.Rule;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.InvalidInputError;
-import org.parboiled.matchervisitors.IsSingleCharMatcherVisitor;
+import org.parboiled.matchervisitors.GrammarAnalysis;
 import org.parboiled.support.MatcherPath;
 import org.parboiled.support.ParsingResult;
 
@@ -37,11 +37,11 @@ import static org.parboiled.common.Preconditions.checkArgNotNull;
  * Instead its functionality is relied upon by the {@link ReportingParseRunner} and {@link RecoveringParseRunner} classes.
  */
 public class ErrorReportingParseRunner<V> extends AbstractParseRunner<V> implements MatchHandler {
-    private final IsSingleCharMatcherVisitor isSingleCharMatcherVisitor = new IsSingleCharMatcherVisitor();
     private final int errorIndex;
     private final MatchHandler inner;
     private final List<MatcherPath> failedMatchers = new ArrayList<MatcherPath>();
     private boolean seeking;
+    private GrammarAnalysis analysis;
 
     /**
      * Creates a new ErrorReportingParseRunner instance for the given rule and the given errorIndex.
@@ -69,9 +69,11 @@ public class ErrorReportingParseRunner<V> extends AbstractParseRunner<V> impleme
 
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
         resetValueStack();        
         failedMatchers.clear();
         seeking = errorIndex > 0;
+        if (analysis == null) analysis = GrammarAnalysis.of(getRootMatcher());
 
         // run without fast string matching to properly get to the error location
         MatcherContext<V> rootContext = createRootContext(inputBuffer, this, false);
@@ -79,7 +81,19 @@ public class ErrorReportingParseRunner<V> extends AbstractParseRunner<V> impleme
         if (!matched) {
             getParseErrors().add(new InvalidInputError(inputBuffer, errorIndex, failedMatchers, null));
         }
-        return createParsingResult(matched, rootContext);
+        return finishRun(createParsingResult(matched, rootContext));
+    }
+
+    /**
+     * Makes this runner use the given grammar analysis instead of the one of its root matcher, e.g. if the root
+     * matcher is a clone of the analyzed one.
+     *
+     * @param analysis the analysis
+     * @return this instance
+     */
+    ErrorReportingParseRunner<V> withAnalysis(GrammarAnalysis analysis) {
+        this.analysis = analysis;
+        return this;
     }
 
     public boolean match(MatcherContext<?> context) {
@@ -88,7 +102,7 @@ public class ErrorReportingParseRunner<V> extends AbstractParseRunner<V> impleme
             if (matched && seeking) {
                 seeking = false;
             }
-            if (!matched && !seeking && context.getMatcher().accept(isSingleCharMatcherVisitor)) {
+            if (!matched && !seeking && analysis.isSingleCharMatcher(context.getMatcher())) {
                 failedMatchers.add(context.getPath());
             }
         }
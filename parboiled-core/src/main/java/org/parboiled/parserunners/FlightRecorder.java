@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.StringUtils;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.support.Position;
+
+import static org.parboiled.common.Preconditions.checkArgument;
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * Keeps the last N rule matching events of the runs of a parse runner (see
+ * {@link AbstractParseRunner#withFlightRecorder(FlightRecorder)}) in a preallocated ring buffer, with very little
+ * overhead per event. If a run fails with an exception the decoded events are attached to the exception as a
+ * suppressed {@link Dump}, they can also be retrieved at any time with {@link #dump()}.
+ * A FlightRecorder must not be shared by runners running concurrently.
+ */
+public class FlightRecorder {
+    private final Matcher[] matchers;
+    private final int[] startIndices;
+    private final int[] endIndices; // the one's complement of the end index for mismatches
+    private final int[] levels;
+    private final int mask;
+    private long events; // the total number of events recorded
+    private int depth; // the current nesting depth of the wrapped handlers
+    private InputBuffer inputBuffer; // the input of the current run
+
+    /**
+     * Creates a new FlightRecorder keeping the given number of events.
+     *
+     * @param capacity the number of events to keep, will be rounded up to the next power of two
+     */
+    public FlightRecorder(int capacity) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        matchers = new Matcher[size];
+        startIndices = new int[size];
+        endIndices = new int[size];
+        levels = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the total number of events recorded so far
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    public void clear() {
+        events = 0;
+        inputBuffer = null;
+        for (int i = 0; i < matchers.length; i++) matchers[i] = null;
+    }
+
+    /**
+     * Wraps the given handler with one recording the outcome of every match.
+     *
+     * @param inner the handler to wrap
+     * @return the recording handler
+     */
+    public MatchHandler wrap(final MatchHandler inner) {
+        checkArgNotNull(inner, "inner");
+        return new MatchHandler() {
+            public boolean match(MatcherContext<?> context) {
+                if (depth++ == 0) inputBuffer = context.getInputBuffer();
+                try {
+                    boolean matched = inner.match(context);
+                    record(context, matched);
+                    return matched;
+                } catch (RuntimeException e) {
+                    if (depth == 1) attachDump(e);
+                    throw e;
+                } finally {
+                    depth--;
+                }
+            }
+        };
+    }
+
+    // starts the recording of a run on the given input, for runners not matching through a wrapped handler
+    void startRun(InputBuffer inputBuffer) {
+        if (depth == 0) this.inputBuffer = inputBuffer;
+    }
+
+    // records the outcome of the match of the given context
+    void record(MatcherContext<?> context, boolean matched) {
+        int i = (int) events++ & mask;
+        matchers[i] = context.getMatcher();
+        startIndices[i] = context.getStartIndex();
+        endIndices[i] = matched ? context.getCurrentIndex() : ~context.getCurrentIndex();
+        levels[i] = context.getLevel();
+    }
+
+    // attaches the decoded events to the given exception aborting a run, unless they are already attached
+    void attachDump(Throwable e) {
+        for (Throwable suppressed : e.getSuppressed()) {
+            if (suppressed instanceof Dump) return;
+        }
+        e.addSuppressed(new Dump(dump()));
+    }
+
+    /**
+     * Decodes the recorded events, oldest first. Each event is rendered on a line of its own, indented by the rule
+     * nesting level and giving the rule label, the input range and the outcome.
+     *
+     * @return the decoded events
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        int count = (int) Math.min(events, matchers.length);
+        sb.append("Last ").append(count).append(" of ").append(events).append(" rule matching events:\n");
+        for (long event = events - count; event < events; event++) {
+            int i = (int) event & mask;
+            boolean matched = endIndices[i] >= 0;
+            int endIndex = matched ? endIndices[i] : ~endIndices[i];
+            for (int level = 0; level < levels[i]; level++) sb.append("  ");
+            sb.append(StringUtils.escape(matchers[i].getLabel())).append(", ");
+            sb.append(matched ? "matched " : "failed ").append(format(startIndices[i])).append(" - ")
+                    .append(format(endIndex)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String format(int index) {
+        if (inputBuffer == null) return String.valueOf(index);
+        Position position = inputBuffer.getPosition(index);
+        return position.line + ":" + position.column;
+    }
+
+    /**
+     * The decoded events of a {@link FlightRecorder}, attached as a suppressed exception to the exceptions aborting
+     * a recorded parsing run.
+     */
+    public static class Dump extends RuntimeException {
+        public Dump(String events) {
+            super(events);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this; // the stack trace is of no interest
+        }
+    }
+}
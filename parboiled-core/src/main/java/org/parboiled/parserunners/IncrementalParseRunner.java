@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Node;
+import org.parboiled.Rule;
+import org.parboiled.buffers.GapInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParseError;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkState;
+import static org.parboiled.matchers.MatcherUtils.getActionFreeMatchers;
+
+/**
+ * A {@link ReportingParseRunner} for documents that are edited and re-parsed repeatedly, e.g. in an editor.
+ * During every basic parsing run it records the outcome of all composite rules that do not contain parser actions
+ * in a memo table, together with the consumed input range, the range of input looked at (including lookahead) and
+ * the created parse tree node. After a text edit has been applied with {@link #reparse(int, int, String)} all
+ * entries whose looked-at range overlaps the edit are dropped and the ones behind the edit are shifted, so that
+ * the following run only re-runs the matchers affected by the edit and reuses all other results, including their
+ * parse subtrees (with shifted indices).
+ * <p>The input is held in a {@link GapInputBuffer} and the memo table in a gap array of per-index columns, so
+ * applying an edit costs time proportional to the size of the edit plus the distance to the previous edit. Entries
+ * in front of an edit are checked against the log of the last {@value #EDIT_LOG_SIZE} edits when they are looked
+ * up, older entries are discarded. Reused parse subtrees are relocated lazily, the nodes of a relocated subtree are
+ * only created when the subtree is navigated. The re-run itself still walks the input from the start, skipping
+ * over every reused match in constant time.</p>
+ * <p>Rules containing actions are always re-run, since their effects on the value stack and on parser state cannot
+ * be replayed. Note that reused parse tree nodes are re-parented into the new parse tree, so the tree of an earlier
+ * parsing result must not be navigated upwards after a later run. The input buffer is edited in place, so the
+ * input buffer of an earlier parsing result reflects all later edits. If the edited input contains errors the error
+ * locating and reporting runs are performed in full, as with the regular {@link ReportingParseRunner}.</p>
+ *
+ * @param <V> the type of the value field of a parse tree node
+ */
+public class IncrementalParseRunner<V> extends ReportingParseRunner<V> implements MatchHandler {
+    private static final int EDIT_LOG_SIZE = 32;
+
+    private final Set<Matcher> memoizable = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+    private GapInputBuffer document;
+    private TrackingInputBuffer tracker;
+
+    // the memo table, one column of entries per input index (including the index behind the last char),
+    // kept in a gap array that follows the edits of the document
+    private Entry[] columns = new Entry[0];
+    private int gapStart;
+    private int gapEnd;
+    private int memoSize;
+
+    // the last edits, entry i holds the edit that created version i (modulo the log size)
+    private int version;
+    private final int[] editOffsets = new int[EDIT_LOG_SIZE];
+    private final int[] editRemoved = new int[EDIT_LOG_SIZE];
+    private final int[] editInserted = new int[EDIT_LOG_SIZE];
+
+    /**
+     * Creates a new IncrementalParseRunner instance for the given rule.
+     *
+     * @param rule the parser rule
+     */
+    public IncrementalParseRunner(Rule rule) {
+        super(rule);
+        analyzeRules();
+    }
+
+    @Override
+    public ParsingResult<V> run(char[] input) {
+        checkArgNotNull(input, "input");
+        document = new GapInputBuffer(input);
+        clearMemo(input.length);
+        return run(document);
+    }
+
+    @Override
+    public ParsingResult<V> run(InputBuffer inputBuffer) {
+        checkArgNotNull(inputBuffer, "inputBuffer");
+        if (inputBuffer != document) {
+            // an arbitrary buffer, which we can neither edit nor match against earlier results
+            document = null;
+            clearMemo(0);
+        }
+        withParseErrors(new ArrayList<ParseError>());
+        return super.run(inputBuffer);
+    }
+
+    /**
+     * Applies the given edit to the input of the last run and re-parses the result, reusing the results of all
+     * rule matches not affected by the edit.
+     *
+     * @param offset        the index of the first changed character
+     * @param removedLength the number of characters removed at the offset
+     * @param insertedText  the text inserted at the offset
+     * @return the ParsingResult for the edited input
+     */
+    public ParsingResult<V> reparse(int offset, int removedLength, String insertedText) {
+        checkState(document != null, "reparse(...) requires a preceding run on a String or char array");
+        document.replace(offset, removedLength, insertedText);
+
+        // the columns of the removed chars are dropped, the inserted chars get empty columns
+        int inserted = insertedText.length();
+        moveGap(offset);
+        for (int i = 0; i < removedLength; i++) {
+            for (Entry entry = columns[gapEnd]; entry != null; entry = entry.next) memoSize--;
+            columns[gapEnd++] = null;
+        }
+        if (gapEnd - gapStart < inserted) growGap(inserted);
+        gapStart += inserted;
+
+        // the entries in front of the edit are checked lazily against the edit log
+        version++;
+        int slot = version % EDIT_LOG_SIZE;
+        editOffsets[slot] = offset;
+        editRemoved[slot] = removedLength;
+        editInserted[slot] = inserted;
+        return run(document);
+    }
+
+    @Override
+    protected ParsingResult<V> runBasicMatch(InputBuffer inputBuffer) {
+        tracker = new TrackingInputBuffer(inputBuffer);
+        MatcherContext<V> rootContext = createRootContext(tracker, this, true);
+        boolean matched = rootContext.runMatcher();
+        tracker = null;
+        return new ParsingResult<V>(matched, rootContext.getNode(), getValueStack(), getParseErrors(), inputBuffer);
+    }
+
+    public boolean match(MatcherContext<?> context) {
+        Matcher matcher = context.getMatcher();
+        int index = context.getCurrentIndex();
+        if (!memoizable.contains(matcher) || index >= columnCount()) {
+            return matcher.match(context);
+        }
+        boolean nodeSuppressed = context.isNodeSuppressed();
+        Entry entry = lookup(matcher, index, nodeSuppressed);
+        if (entry == null) {
+            // mismatches do not depend on node suppression, we must find them in any case since otherwise
+            // the mismatch memoization of MemoMismatches rules might hide their lookahead from us
+            entry = lookup(matcher, index, !nodeSuppressed);
+            if (entry != null && entry.matched) entry = null;
+        }
+        BudgetMeter meter = getBudgetMeter();
+        if (entry != null) {
+            if (meter != null) meter.memoHit();
+            tracker.lookahead(index + entry.lookahead);
+            if (entry.matched) reuse(context, entry, index);
+            return entry.matched;
+        }
+        if (meter != null) meter.memoMiss();
+
+        int outerLookahead = tracker.maxIndex;
+        tracker.maxIndex = index;
+        boolean matched = matcher.match(context);
+        int lookahead = tracker.maxIndex;
+        tracker.maxIndex = Math.max(outerLookahead, lookahead);
+
+        int column = physical(index);
+        columns[column] = new Entry(matcher, nodeSuppressed, version, matched, context.getCurrentIndex() - index,
+                lookahead - index, context.getNode(), columns[column]);
+        memoSize++;
+        if (meter != null) meter.memoSize(memoSize, context);
+        return matched;
+    }
+
+    // finds the valid entry for the given matcher in the column of the given index, dropping outdated entries
+    private Entry lookup(Matcher matcher, int index, boolean nodeSuppressed) {
+        int column = physical(index);
+        Entry previous = null;
+        for (Entry entry = columns[column]; entry != null; entry = entry.next) {
+            if (isValid(entry, index)) {
+                if (entry.matcher == matcher && entry.nodeSuppressed == nodeSuppressed) return entry;
+                previous = entry;
+            } else {
+                if (previous == null) columns[column] = entry.next;
+                else previous.next = entry.next;
+                memoSize--;
+            }
+        }
+        return null;
+    }
+
+    // determines whether none of the edits since the entry was last validated touched the input it looked at
+    private boolean isValid(Entry entry, int index) {
+        if (entry.version == version) return true;
+        if (version - entry.version > EDIT_LOG_SIZE) return false;
+        for (int v = version; v > entry.version; v--) {
+            int slot = v % EDIT_LOG_SIZE;
+            int offset = editOffsets[slot];
+            if (index < offset) {
+                if (index + entry.lookahead >= offset) return false;
+            } else {
+                // the entry is behind the edit, since all columns inside of the edit are newer than the edit
+                index -= editInserted[slot] - editRemoved[slot];
+            }
+        }
+        entry.version = version;
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private <T> void reuse(MatcherContext<T> context, Entry entry, int index) {
+        Node<T> node = (Node<T>) entry.node;
+        context.reuseMatch(index + entry.length, node, node == null ? 0 : index - node.getStartIndex());
+        if (context.getNode() != null) {
+            // remember the relocated node, so we do not have to relocate it again during the next reuse
+            entry.node = context.getNode();
+        }
+    }
+
+    private int columnCount() {
+        return columns.length - (gapEnd - gapStart);
+    }
+
+    private int physical(int index) {
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+
+    private void clearMemo(int inputLength) {
+        columns = new Entry[inputLength + 1 + 16];
+        gapStart = inputLength + 1;
+        gapEnd = columns.length;
+        memoSize = 0;
+        version = 0;
+    }
+
+    // moves the gap to the given index, keeping all slots inside of the gap empty
+    private void moveGap(int index) {
+        if (index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(columns, index, columns, gapEnd - count, count);
+            Arrays.fill(columns, index, Math.min(gapStart, gapEnd - count), null);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(columns, gapEnd, columns, gapStart, count);
+            Arrays.fill(columns, Math.max(gapEnd, index), gapEnd + count, null);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void growGap(int minGap) {
+        int tail = columns.length - gapEnd;
+        Entry[] grown = new Entry[Math.max(columns.length * 2, gapStart + minGap + tail + 16)];
+        System.arraycopy(columns, 0, grown, 0, gapStart);
+        System.arraycopy(columns, gapEnd, grown, grown.length - tail, tail);
+        columns = grown;
+        gapEnd = grown.length - tail;
+    }
+
+    // determines the composite matchers, whose outcome only depends on the input, i.e. which contain no actions
+    private void analyzeRules() {
+        for (Matcher matcher : getActionFreeMatchers(getRootMatcher())) {
+            if (!matcher.getChildren().isEmpty()) memoizable.add(matcher);
+        }
+    }
+
+    private static class Entry {
+        private final Matcher matcher;
+        private final boolean nodeSuppressed;
+        private int version; // the document version the entry was last known to be valid in
+        private final boolean matched;
+        private final int length; // the number of chars consumed
+        private final int lookahead; // the distance of the highest input index looked at
+        private Node<?> node;
+        private Entry next; // the next entry in the same column
+
+        private Entry(Matcher matcher, boolean nodeSuppressed, int version, boolean matched, int length,
+                      int lookahead, Node<?> node, Entry next) {
+            this.matcher = matcher;
+            this.nodeSuppressed = nodeSuppressed;
+            this.version = version;
+            this.matched = matched;
+            this.length = length;
+            this.lookahead = lookahead;
+            this.node = node;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.StringUtils;
+import org.parboiled.errors.BasicParseError;
+import org.parboiled.errors.GrammarException;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.matchers.*;
+import org.parboiled.support.ParsingResult;
+
+import java.util.List;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.errors.ErrorUtils.printParseError;
+
+/**
+ * <p>A {@link ParseRunner} implementation that produces the same results as the {@link BasicParseRunner} but does
+ * not use the thread stack for descending into the rule graph. Instead of having the composite matchers call
+ * {@link MatcherContext#runMatcher()} on their sub contexts (which nests one or more JVM stack frames per rule level)
+ * this runner interprets the standard composite matchers (Sequence, FirstOf, OneOrMore, ZeroOrMore, Optional,
+ * Test and TestNot, including their VarFraming and MemoMismatches wrappers) itself, keeping the matching state of
+ * all open rule levels in heap-allocated arrays. The nesting depth of the input is therefore only limited by the
+ * available memory, not by the thread stack size.</p>
+ * <p>All other matchers (the character level matchers, actions and custom matchers) are run through a
+ * {@link MatchHandler}, which defaults to this runner itself but can be replaced by a custom
+ * {@link CompositeMatchHandler}. Since handing a decomposed composite matcher to the handler would require a
+ * recursive call, the custom handler is instead notified when the runner enters and exits it.</p>
+ */
+public class IterativeParseRunner<V> extends AbstractParseRunner<V> implements MatchHandler {
+
+    // the different ways of running a matcher at a given level
+    private static final int SEQUENCE = 1;
+    private static final int FIRST_OF = 2;
+    private static final int ONE_OR_MORE = 3;
+    private static final int ZERO_OR_MORE = 4;
+    private static final int OPTIONAL = 5;
+    private static final int TEST = 6;
+    private static final int TEST_NOT = 7;
+
+    private final CompositeMatchHandler inner;
+
+    // the explicit matching stack, indexed by context level
+    private Matcher[] matchers = new Matcher[64]; // the unwrapped composite matcher running at the level
+    private int[] kinds = new int[64];
+    private int[] childIndices = new int[64];
+    private int[] lastIndices = new int[64];
+    private int[] wrappers = new int[64]; // the number of VarFraming and MemoMismatches wrappers entered
+    private Object[] snapshots = new Object[64];
+
+    /**
+     * Creates a new IterativeParseRunner instance for the given rule.
+     *
+     * @param rule the parser rule
+     */
+    public IterativeParseRunner(Rule rule) {
+        this(rule, null);
+    }
+
+    /**
+     * Creates a new IterativeParseRunner instance for the given rule.
+     * The given handler is used for running all matchers that are not decomposed by this runner itself and is
+     * notified about the matching of all decomposed ones.
+     *
+     * @param rule  the parser rule
+     * @param inner another handler to delegate the leaf matching to, can be null
+     */
+    public IterativeParseRunner(Rule rule, CompositeMatchHandler inner) {
+        super(rule);
+        this.inner = inner;
+    }
+
+    public ParsingResult<V> run(InputBuffer inputBuffer) {
+        checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
+        resetValueStack();
+
+        MatcherContext<V> rootContext = createRootContext(inputBuffer, this, true);
+        boolean matched = runMatcher(rootContext);
+        return finishRun(createParsingResult(matched, rootContext));
+    }
+
+    public boolean match(MatcherContext<?> context) {
+        return context.getMatcher().match(context);
+    }
+
+    /**
+     * Runs the matcher of the given context (and all its sub matchers) without recursion.
+     * The behavior is identical to calling {@link MatcherContext#runMatcher()} on the context.
+     *
+     * @param rootContext the context to run
+     * @return true if the context matched
+     */
+    @SuppressWarnings({"unchecked"})
+    public boolean runMatcher(MatcherContext<?> rootContext) {
+        checkArgNotNull(rootContext, "rootContext");
+        int top = 0;
+        MatcherContext context = rootContext;
+        boolean matched = false;
+        boolean descend = true; // true if the context at top has just been entered, false if a sub context returned
+        // composites do not pass through the (metering and recording) context match handler
+        BudgetMeter meter = getBudgetMeter();
+        FlightRecorder recorder = getFlightRecorder();
+        if (recorder != null) recorder.startRun(rootContext.getInputBuffer());
+        try {
+            while (true) {
+                if (descend) {
+                    if (meter != null) meter.step(context);
+                    int kind = enter(context, top);
+                    if (kind > 0) {
+                        MatcherContext sub = startChildren(context, top, kind);
+                        if (sub != null) {
+                            context = sub;
+                            top++;
+                            continue;
+                        }
+                        matched = childIndices[top] >= 0; // the composite was already done without any children
+                    } else {
+                        matched = kind == 0;
+                    }
+                } else {
+                    MatcherContext sub = resume(context, top, matched);
+                    if (sub != null) {
+                        context = sub;
+                        top++;
+                        descend = true;
+                        continue;
+                    }
+                    matched = childIndices[top] >= 0;
+                }
+
+                // the context at top is done
+                if (meter != null) {
+                    if (matched) meter.matched(context);
+                    else meter.mismatched(context);
+                }
+                if (recorder != null) recorder.record(context, matched);
+                if (matchers[top] != null) {
+                    exitWrappers(context, top, matched);
+                    if (inner != null) inner.exitComposite(context, matched);
+                    matchers[top] = null;
+                    snapshots[top] = null;
+                }
+                MatcherContext parent = context.getParent();
+                if (matched && parent != null) {
+                    parent.setCurrentIndex(context.getCurrentIndex());
+                }
+                context.setMatcher(null); // "retire" the context
+                if (top == 0) return matched;
+                top--;
+                context = parent;
+                descend = false;
+            }
+        } catch (ParserRuntimeException e) {
+            throw recorded(e, recorder); // don't wrap, just bubble up
+        } catch (RecoveringParseRunner.TimeoutException e) {
+            throw recorded(e, recorder); // don't wrap, just bubble up
+        } catch (Throwable e) {
+            throw recorded(new ParserRuntimeException(e,
+                    printParseError(new BasicParseError(context.getInputBuffer(), context.getCurrentIndex(),
+                            StringUtils.escape(String.format("Error while parsing %s '%s' at input position",
+                                    context.getMatcher() instanceof ActionMatcher ? "action" : "rule",
+                                    context.getPath())))) + '\n' + e), recorder);
+        } finally {
+            for (int i = 0; i <= top && i < matchers.length; i++) {
+                matchers[i] = null;
+                snapshots[i] = null;
+            }
+        }
+    }
+
+    private static <E extends RuntimeException> E recorded(E e, FlightRecorder recorder) {
+        if (recorder != null) recorder.attachDump(e);
+        return e;
+    }
+
+    // Prepares the context at the given stack level.
+    // Returns the kind of composite if the context is to be decomposed, 0 if the matcher was run directly and
+    // matched or -1 if it was run directly and failed.
+    private int enter(MatcherContext context, int top) {
+        ensureCapacity(top);
+        matchers[top] = null;
+
+        Matcher outer = context.getMatcher();
+        Matcher core = MatcherUtils.unwrap(outer);
+        int kind = kindOf(core, context);
+        if (kind == 0) {
+            MatchHandler handler = inner != null ? inner : this;
+            return handler.match(context) ? 0 : -1;
+        }
+        if (inner != null) inner.enterComposite(context);
+
+        // enter all wrappers around the composite matcher, in the same order as their match methods would do it
+        int entered = 0;
+        Matcher matcher = outer;
+        while (matcher != core) {
+            if (matcher instanceof ProxyMatcher) {
+                matcher = ProxyMatcher.unwrap(matcher);
+            } else if (matcher instanceof VarFramingMatcher) {
+                VarFramingMatcher.enterFrames(matcher);
+                entered++;
+                matcher = VarFramingMatcher.unwrap(matcher);
+            } else if (matcher instanceof MemoMismatchesMatcher) {
+                if (context.hasMismatched()) {
+                    // we fail immediately, but still need to exit the wrappers entered so far
+                    matchers[top] = core;
+                    wrappers[top] = entered;
+                    exitWrappers(context, top, false);
+                    matchers[top] = null;
+                    if (inner != null) inner.exitComposite(context, false);
+                    return -1;
+                }
+                entered++;
+                matcher = MemoMismatchesMatcher.unwrap(matcher);
+            } else {
+                throw new IllegalStateException(); // unwrap(...) only removes the matchers handled above
+            }
+        }
+        matchers[top] = core;
+        kinds[top] = kind;
+        wrappers[top] = entered;
+        return kind;
+    }
+
+    private static int kindOf(Matcher matcher, MatcherContext context) {
+        // we only decompose the exact matcher classes we know the semantics of,
+        // all subclasses might override the match method and are therefore run directly
+        Class<?> clazz = matcher.getClass();
+        if (clazz == SequenceMatcher.class) return SEQUENCE;
+        if (clazz == FirstOfMatcher.class) return FIRST_OF;
+        if (clazz == StringMatcher.class) return context.fastStringMatching() ? 0 : SEQUENCE;
+        if (clazz == FirstOfStringsMatcher.class) return context.fastStringMatching() ? 0 : FIRST_OF;
+        if (clazz == OneOrMoreMatcher.class) return ONE_OR_MORE;
+        if (clazz == ZeroOrMoreMatcher.class) return ZERO_OR_MORE;
+        if (clazz == OptionalMatcher.class) return OPTIONAL;
+        if (clazz == TestMatcher.class) return TEST;
+        if (clazz == TestNotMatcher.class) return TEST_NOT;
+        return 0;
+    }
+
+    // starts the matching of the given composite, returning the sub context to run next
+    // or null, if the composite is already done
+    private MatcherContext startChildren(MatcherContext context, int top, int kind) {
+        Matcher matcher = matchers[top];
+        childIndices[top] = 0;
+        switch (kind) {
+            case SEQUENCE:
+                snapshots[top] = context.getValueStack().takeSnapshot();
+                if (matcher.getChildren().isEmpty()) {
+                    context.createNode();
+                    return null;
+                }
+                context.setIntTag(0);
+                return matcher.getChildren().get(0).getSubContext(context);
+            case FIRST_OF:
+                if (matcher.getChildren().isEmpty()) {
+                    childIndices[top] = -1;
+                    return null;
+                }
+                return matcher.getChildren().get(0).getSubContext(context);
+            case TEST:
+            case TEST_NOT:
+                snapshots[top] = context.getValueStack().takeSnapshot();
+                // fall through
+            default:
+                lastIndices[top] = context.getCurrentIndex();
+                return matcher.getChildren().get(0).getSubContext(context);
+        }
+    }
+
+    // continues the composite at the given level after its current sub context returned
+    // returns the next sub context to run or null, if the composite is done,
+    // in which case a negative child index signals a failed match
+    private MatcherContext resume(MatcherContext context, int top, boolean subMatched) {
+        Matcher matcher = matchers[top];
+        List<Matcher> children = matcher.getChildren();
+        switch (kinds[top]) {
+            case SEQUENCE: {
+                if (!subMatched) {
+                    // rule failed, so invalidate all stack actions the rule might have done
+                    context.getValueStack().restoreSnapshot(snapshots[top]);
+                    return fail(top);
+                }
+                int i = ++childIndices[top];
+                if (i < children.size()) {
+                    context.setIntTag(i);
+                    return children.get(i).getSubContext(context);
+                }
+                context.createNode();
+                return null;
+            }
+            case FIRST_OF: {
+                if (subMatched) {
+                    context.createNode();
+                    return null;
+                }
+                int i = ++childIndices[top];
+                if (i < children.size()) {
+                    return children.get(i).getSubContext(context);
+                }
+                return fail(top);
+            }
+            case ONE_OR_MORE:
+                if (childIndices[top] == 0) {
+                    if (!subMatched) return fail(top);
+                    childIndices[top] = 1;
+                    lastIndices[top] = context.getCurrentIndex();
+                    return children.get(0).getSubContext(context);
+                }
+                // fall through
+            case ZERO_OR_MORE:
+                if (subMatched) {
+                    int currentIndex = context.getCurrentIndex();
+                    if (currentIndex == lastIndices[top]) {
+                        throw new GrammarException("The inner rule of %s rule '%s' must not allow empty matches",
+                                kinds[top] == ONE_OR_MORE ? "OneOrMore" : "ZeroOrMore", context.getPath());
+                    }
+                    lastIndices[top] = currentIndex;
+                    return children.get(0).getSubContext(context);
+                }
+                context.createNode();
+                return null;
+            case OPTIONAL:
+                context.createNode();
+                return null;
+            case TEST:
+            case TEST_NOT:
+                if (subMatched == (kinds[top] == TEST_NOT)) return fail(top);
+                // reset location, Test matchers never advance
+                context.setCurrentIndex(lastIndices[top]);
+                // erase all value stack changes the the submatcher could have made
+                context.getValueStack().restoreSnapshot(snapshots[top]);
+                return null;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private MatcherContext fail(int top) {
+        childIndices[top] = -1;
+        return null;
+    }
+
+    // exits the wrappers entered for the given level, innermost first
+    private void exitWrappers(MatcherContext context, int top, boolean matched) {
+        int count = wrappers[top];
+        if (count == 0) return;
+        Matcher[] entered = new Matcher[count];
+        Matcher matcher = context.getMatcher();
+        int i = 0;
+        while (i < count) {
+            if (matcher instanceof ProxyMatcher) {
+                matcher = ProxyMatcher.unwrap(matcher);
+            } else if (matcher instanceof VarFramingMatcher) {
+                entered[i++] = matcher;
+                matcher = VarFramingMatcher.unwrap(matcher);
+            } else {
+                entered[i++] = matcher;
+                matcher = MemoMismatchesMatcher.unwrap(matcher);
+            }
+        }
+        while (i-- > 0) {
+            if (entered[i] instanceof VarFramingMatcher) {
+                VarFramingMatcher.exitFrames(entered[i]);
+            } else if (!matched) {
+                context.memoizeMismatch();
+            }
+        }
+    }
+
+    private void ensureCapacity(int top) {
+        if (top < matchers.length) return;
+        int size = matchers.length * 2;
+        matchers = copyOf(matchers, new Matcher[size]);
+        snapshots = copyOf(snapshots, new Object[size]);
+        kinds = copyOf(kinds, size);
+        childIndices = copyOf(childIndices, size);
+        lastIndices = copyOf(lastIndices, size);
+        wrappers = copyOf(wrappers, size);
+    }
+
+    private static <T> T[] copyOf(T[] array, T[] newArray) {
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static int[] copyOf(int[] array, int size) {
+        int[] newArray = new int[size];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    /**
+     * A {@link MatchHandler} for the {@link IterativeParseRunner}, which is not only handed the matchers the runner
+     * does not decompose itself, but is also notified about the matching of the decomposed composite matchers.
+     */
+    public interface CompositeMatchHandler extends MatchHandler {
+
+        /**
+         * Called before the runner starts matching the composite matcher of the given context.
+         *
+         * @param context the context
+         */
+        void enterComposite(MatcherContext<?> context);
+
+        /**
+         * Called after the composite matcher of the given context has completed, before the outcome is reported
+         * to the parent context.
+         *
+         * @param context the context
+         * @param matched true if the composite matched
+         */
+        void exitComposite(MatcherContext<?> context, boolean matched);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * A {@link ParserMetrics} implementation aggregating the {@link RunMetrics} per rule the runs started at
+ * (i.e. per grammar entry point) and publishing each of these aggregates as an MBean with the name
+ * "&lt;domain&gt;:type=ParserMetrics,parser=&lt;parser class name&gt;,rule=&lt;rule label&gt;".
+ * The MBeans are registered when the first run for their rule is recorded. Every parser class needs its own
+ * instance, so that equally named rules of different parsers do not share their MBean.
+ */
+public class JmxParserMetrics implements ParserMetrics {
+    private final MBeanServer server;
+    private final String domain;
+    private final Class<?> parserClass;
+    private final ConcurrentMap<String, AggregatedParserMetrics> rules =
+            new ConcurrentHashMap<String, AggregatedParserMetrics>();
+
+    /**
+     * Creates a new JmxParserMetrics instance registering its MBeans with the platform MBean server.
+     *
+     * @param domain      the domain of the MBean names
+     * @param parserClass the class of the parser whose runs are recorded
+     */
+    public JmxParserMetrics(String domain, Class<?> parserClass) {
+        this(ManagementFactory.getPlatformMBeanServer(), domain, parserClass);
+    }
+
+    /**
+     * Creates a new JmxParserMetrics instance.
+     *
+     * @param server      the MBean server to register the MBeans with
+     * @param domain      the domain of the MBean names
+     * @param parserClass the class of the parser whose runs are recorded
+     */
+    public JmxParserMetrics(MBeanServer server, String domain, Class<?> parserClass) {
+        this.server = checkArgNotNull(server, "server");
+        this.domain = checkArgNotNull(domain, "domain");
+        this.parserClass = checkArgNotNull(parserClass, "parserClass");
+    }
+
+    public void record(RunMetrics run) {
+        get(run.rootMatcher.getLabel()).record(run);
+    }
+
+    /**
+     * Returns the aggregated metrics of the runs started at the rule with the given label, registering the
+     * corresponding MBean if required.
+     *
+     * @param ruleLabel the label of the rule
+     * @return the aggregated metrics
+     */
+    public AggregatedParserMetrics get(String ruleLabel) {
+        AggregatedParserMetrics metrics = rules.get(ruleLabel);
+        if (metrics == null) {
+            AggregatedParserMetrics created = new AggregatedParserMetrics();
+            metrics = rules.putIfAbsent(ruleLabel, created);
+            if (metrics == null) {
+                metrics = created;
+                try {
+                    server.registerMBean(created, getObjectName(ruleLabel));
+                } catch (JMException e) {
+                    throw new RuntimeException("Could not register parser metrics MBean for rule " + ruleLabel, e);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    public ObjectName getObjectName(String ruleLabel) {
+        try {
+            return new ObjectName(domain + ":type=ParserMetrics,parser=" + ObjectName.quote(parserClass.getName()) +
+                    ",rule=" + ObjectName.quote(ruleLabel));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Illegal MBean name domain: " + domain, e);
+        }
+    }
+
+    /**
+     * Unregisters all MBeans registered by this instance.
+     */
+    public void unregister() {
+        for (String ruleLabel : rules.keySet()) {
+            try {
+                ObjectName name = getObjectName(ruleLabel);
+                if (server.isRegistered(name)) server.unregisterMBean(name);
+            } catch (JMException e) {
+                throw new RuntimeException("Could not unregister parser metrics MBean for rule " + ruleLabel, e);
+            }
+        }
+        rules.clear();
+    }
+}
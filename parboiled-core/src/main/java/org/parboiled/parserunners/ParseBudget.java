@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * Limits the resources a single parsing run (i.e. one call of one of the "run" methods of a {@link ParseRunner},
+ * including all parsing passes it performs internally) may consume.
+ * A budget can limit the number of matcher invocations, the number of entries in the memo tables of the runners
+ * keeping some, the number of parse tree nodes created and the wall-clock time of the run. Additionally a run can be
+ * cancelled from another thread with {@link #cancel()}.
+ * The time limit and the cancellation flag are only checked every {@link #getCheckInterval()} matcher invocations
+ * in order to keep the overhead low.
+ * If any limit is exceeded the run is aborted with a {@link ParseBudgetExceededException}.
+ * <p>A budget can be shared by several runners and threads, the consumption is metered per run.
+ * Note however that a cancelled budget stays cancelled and fails all subsequent runs.</p>
+ */
+public class ParseBudget {
+
+    /**
+     * The limits of a ParseBudget.
+     */
+    public enum Limit {
+        STEPS, MEMO_ENTRIES, NODES, TIME, CANCELLED
+    }
+
+    private long maxSteps = Long.MAX_VALUE;
+    private int maxMemoEntries = Integer.MAX_VALUE;
+    private long maxNodes = Long.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+    private int checkInterval = 1024;
+    private volatile boolean cancelled;
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Limits the number of matcher invocations per run.
+     *
+     * @param maxSteps the maximum number of matcher invocations
+     * @return this instance
+     */
+    public ParseBudget withMaxSteps(long maxSteps) {
+        checkArgument(maxSteps > 0, "maxSteps must be positive");
+        this.maxSteps = maxSteps;
+        return this;
+    }
+
+    public int getMaxMemoEntries() {
+        return maxMemoEntries;
+    }
+
+    /**
+     * Limits the size of the memo tables of runners memoizing rule outcomes, like the
+     * {@link IncrementalParseRunner} or the {@link RecoveringParseRunner}.
+     *
+     * @param maxMemoEntries the maximum number of memo entries
+     * @return this instance
+     */
+    public ParseBudget withMaxMemoEntries(int maxMemoEntries) {
+        checkArgument(maxMemoEntries >= 0, "maxMemoEntries must not be negative");
+        this.maxMemoEntries = maxMemoEntries;
+        return this;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Limits the number of parse tree nodes created per run.
+     *
+     * @param maxNodes the maximum number of parse tree nodes
+     * @return this instance
+     */
+    public ParseBudget withMaxNodes(long maxNodes) {
+        checkArgument(maxNodes >= 0, "maxNodes must not be negative");
+        this.maxNodes = maxNodes;
+        return this;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Limits the wall-clock time per run.
+     *
+     * @param timeoutMillis the maximum time in milliseconds
+     * @return this instance
+     */
+    public ParseBudget withTimeout(long timeoutMillis) {
+        checkArgument(timeoutMillis >= 0, "timeoutMillis must not be negative");
+        this.timeoutNanos = timeoutMillis > Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : timeoutMillis * 1000000;
+        return this;
+    }
+
+    public int getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * Sets the number of matcher invocations between two checks of the time limit and the cancellation flag.
+     *
+     * @param checkInterval the check interval, must be positive
+     * @return this instance
+     */
+    public ParseBudget withCheckInterval(int checkInterval) {
+        checkArgument(checkInterval > 0, "checkInterval must be positive");
+        this.checkInterval = checkInterval;
+        return this;
+    }
+
+    /**
+     * Cancels all current and future runs using this budget. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.MatcherPath;
+import org.parboiled.support.Position;
+
+/**
+ * Thrown when a parsing run exceeds one of the limits of its {@link ParseBudget}.
+ * Carries the state of the run at the time it was aborted.
+ */
+public class ParseBudgetExceededException extends ParserRuntimeException {
+    public final ParseBudget.Limit limit;
+    public final InputBuffer inputBuffer;
+    public final int index; // the input index the run was at
+    public final MatcherPath path; // the rule stack the run was in
+    public final long steps;
+    public final long nodes;
+    public final long nanoTime;
+
+    public ParseBudgetExceededException(ParseBudget.Limit limit, InputBuffer inputBuffer, int index,
+                                        MatcherPath path, long steps, long nodes, long nanoTime) {
+        super("Parse budget exceeded (%s) after %d steps, %d nodes and %.2f ms at %s in '%s'", limit, steps, nodes,
+                nanoTime / 1e6, format(inputBuffer, index), path);
+        this.limit = limit;
+        this.inputBuffer = inputBuffer;
+        this.index = index;
+        this.path = path;
+        this.steps = steps;
+        this.nodes = nodes;
+        this.nanoTime = nanoTime;
+    }
+
+    private static String format(InputBuffer inputBuffer, int index) {
+        Position position = inputBuffer.getPosition(index);
+        return "line " + position.line + ", pos " + position.column;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+/**
+ * The receiver of the {@link RunMetrics} of parsing runs (see {@link AbstractParseRunner#withMetrics(ParserMetrics)}).
+ * Implementations must be thread-safe if they are shared by runners running concurrently.
+ * See {@link AggregatedParserMetrics} and {@link JmxParserMetrics} for the built-in implementations.
+ */
+public interface ParserMetrics {
+
+    /**
+     * Called at the end of every completed parsing run.
+     *
+     * @param run the metrics of the run
+     */
+    void record(RunMetrics run);
+}
@@ -20,6 +20,7 @@ import org.parboiled.MatchHandler;
 import org.parboiled.MatcherContext;
 import org.parboiled.Rule;
 import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.ImmutableList;
 import org.parboiled.common.Predicate;
 import org.parboiled.common.StringUtils;
 import org.parboiled.matchers.Matcher;
@@ -30,18 +31,25 @@ import java.text.DecimalFormat;
 import java.util.*;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+import static org.parboiled.common.Preconditions.checkState;
 import static org.parboiled.common.Utils.humanize;
+import static org.parboiled.matchers.MatcherUtils.unwrap;
 
 /**
  * <p>The ProfilingParseRunner is a special {@link ParseRunner} implementation that "watches" a parser digest a number
  * of inputs and collects all sorts of statistical data on the what rules have matched how many times, the number
  * of reincovations of rules at identical input locations, and so on.</p>
- * <p>The ProfilingParseRunner is typically used during parser debugging and optimization, not in production.</p>
+ * <p>The ProfilingParseRunner is typically used during parser debugging and optimization, not in production.
+ * However, in its sampling mode (see {@link #withSampling(int)}) its overhead is low enough to also leave it
+ * running on production traffic.</p>
  *
  * @param <V>
  */
 public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements MatchHandler {
     private final Map<Rule, RuleReport> ruleReports = new HashMap<Rule, RuleReport>();
+    // the per-run statistics are kept here rather than in the matchers, so the rule graph itself is never modified
+    private final Map<Matcher, RuleStats> ruleStats = new IdentityHashMap<Matcher, RuleStats>();
     private int runMatches;
     private int totalRuns;
     private int totalMatches;
@@ -50,10 +58,14 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
     private int totalRemismatches;
     private long totalNanoTime;
     private long timeCorrection;
+    private int timingInterval;
+    private Sampler sampler;
+    private CallNode rootNode; // the root of the rule call tree, only recorded with stack profiling
+    private CallNode currentNode;
 
     private final DoWithMatcherVisitor.Action updateStatsAction = new DoWithMatcherVisitor.Action() {
         public void process(Matcher matcher) {
-            RuleStats ruleStats = (RuleStats) matcher.getTag();
+            RuleStats ruleStats = ProfilingParseRunner.this.ruleStats.get(matcher);
             int rematches = 0, remismatches = 0;
             for (Integer i : ruleStats.positionMatches.values()) {
                 if (i > 0) {
@@ -85,18 +97,63 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
         super(rule);
     }
 
+    /**
+     * Switches this runner to sampling mode, in which only the number of matches and mismatches (including the ones
+     * of sub rules) are counted for every rule invocation, in primitive arrays indexed by dense rule IDs.
+     * The time spent in a rule is only measured for randomly chosen rule invocations, on average every n-th one, and
+     * extrapolated from there. Since every invocation is timed with the same probability the extrapolated times are
+     * unbiased even for grammars calling their rules in regular patterns.
+     * Re-invocations of rules at identical input locations are not tracked in sampling mode and reported as zero.
+     * Must be called before the first run.
+     *
+     * @param timingInterval the interval between two timed rule invocations, must be positive
+     * @return this instance
+     */
+    public ProfilingParseRunner<V> withSampling(int timingInterval) {
+        checkArgument(timingInterval > 0, "timingInterval must be positive");
+        checkState(totalRuns == 0, "Sampling mode must be enabled before the first run");
+        checkState(rootNode == null, "Sampling mode cannot be combined with stack profiling");
+        this.timingInterval = timingInterval;
+        return this;
+    }
+
+    /**
+     * Enables the recording of the time spent in and the invocations of every distinct rule path, i.e. the call
+     * tree of the rules. The resulting {@link Report#stackReports} can be exported in the collapsed stack format
+     * understood by flame graph tools. Not available in sampling mode.
+     * Must be called before the first run.
+     *
+     * @return this instance
+     */
+    public ProfilingParseRunner<V> withStackProfiling() {
+        checkState(totalRuns == 0, "Stack profiling must be enabled before the first run");
+        checkState(timingInterval == 0, "Stack profiling cannot be combined with sampling mode");
+        if (rootNode == null) rootNode = new CallNode(null, null);
+        return this;
+    }
+
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
         resetValueStack();
         totalRuns++;
 
         MatcherContext<V> rootContext = createRootContext(inputBuffer, this, true);
+        if (timingInterval > 0) {
+            if (sampler == null) sampler = new Sampler(getRootMatcher(), timingInterval);
+            runMatches = 0;
+            long timeStamp = System.nanoTime();
+            boolean matched = rootContext.runMatcher();
+            totalNanoTime += System.nanoTime() - timeStamp;
+            return finishRun(createParsingResult(matched, rootContext));
+        }
+
         rootContext.getMatcher().accept(new DoWithMatcherVisitor(new DoWithMatcherVisitor.Action() {
             public void process(Matcher matcher) {
-                RuleStats ruleStats = (RuleStats) matcher.getTag();
+                RuleStats ruleStats = ProfilingParseRunner.this.ruleStats.get(matcher);
                 if (ruleStats == null) {
                     ruleStats = new RuleStats();
-                    matcher.setTag(ruleStats);
+                    ProfilingParseRunner.this.ruleStats.put(matcher, ruleStats);
                 } else {
                     ruleStats.clear();
                 }
@@ -104,24 +161,35 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
         }));
 
         runMatches = 0;
+        currentNode = rootNode;
         long timeStamp = System.nanoTime() - timeCorrection;
         boolean matched = rootContext.runMatcher();
         totalNanoTime += System.nanoTime() - timeCorrection - timeStamp;
 
         getRootMatcher().accept(new DoWithMatcherVisitor(updateStatsAction));
-        return createParsingResult(matched, rootContext);
+        return finishRun(createParsingResult(matched, rootContext));
     }
 
     public Report getReport() {
+        if (sampler != null) return sampler.createReport();
+        List<StackReport> stackReports = null;
+        if (rootNode != null) {
+            stackReports = new ArrayList<StackReport>();
+            for (CallNode node = rootNode.firstChild; node != null; node = node.nextSibling) {
+                node.collect(ImmutableList.<Matcher>of(), stackReports);
+            }
+        }
         return new Report(totalRuns, totalMatches, totalMismatches, totalRematches, totalRemismatches,
-                totalNanoTime, new ArrayList<RuleReport>(ruleReports.values()));
+                totalNanoTime, new ArrayList<RuleReport>(ruleReports.values()), stackReports);
     }
 
     public boolean match(MatcherContext<?> context) {
+        if (sampler != null) return sampler.match(context);
         long timeStamp = System.nanoTime();
         Matcher matcher = context.getMatcher();
-        RuleStats ruleStats = ((RuleStats) matcher.getTag());
+        RuleStats ruleStats = this.ruleStats.get(unwrap(matcher));
         int pos = context.getCurrentIndex();
+        CallNode node = currentNode != null ? currentNode = currentNode.getChild(unwrap(matcher)) : null;
 
         int subMatches = -++runMatches;
         int matchSubs = ruleStats.matchSubs;
@@ -137,6 +205,12 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
 
         time = System.nanoTime();
         ruleStats.nanoTime += time - timeCorrection - timeStamp;
+        if (node != null) {
+            node.invocations++;
+            if (matched) node.matches++;
+            node.nanoTime += time - timeCorrection - timeStamp;
+            currentNode = node.parent;
+        }
         timeStamp = time;
 
         subMatches += runMatches;
@@ -199,6 +273,183 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
         }
     }
 
+    /**
+     * A node of the rule call tree, i.e. one distinct rule path.
+     */
+    private static class CallNode {
+        private final Matcher matcher;
+        private final CallNode parent;
+        private CallNode firstChild;
+        private CallNode nextSibling;
+        private int invocations;
+        private int matches;
+        private long nanoTime; // including the time spent in sub rules
+
+        private CallNode(Matcher matcher, CallNode parent) {
+            this.matcher = matcher;
+            this.parent = parent;
+        }
+
+        private CallNode getChild(Matcher matcher) {
+            for (CallNode child = firstChild; child != null; child = child.nextSibling) {
+                if (child.matcher == matcher) return child;
+            }
+            CallNode child = new CallNode(matcher, this);
+            child.nextSibling = firstChild;
+            firstChild = child;
+            return child;
+        }
+
+        private void collect(ImmutableList<Matcher> parentPath, List<StackReport> reports) {
+            ImmutableList<Matcher> path = parentPath.append(matcher);
+            long selfNanoTime = nanoTime;
+            for (CallNode child = firstChild; child != null; child = child.nextSibling) {
+                selfNanoTime -= child.nanoTime;
+                child.collect(path, reports);
+            }
+            reports.add(new StackReport(path, invocations, matches, Math.max(selfNanoTime, 0)));
+        }
+    }
+
+    /**
+     * Collects the rule statistics in sampling mode.
+     */
+    private class Sampler {
+        private final List<Matcher> matchers = new ArrayList<Matcher>(); // the (unwrapped) matchers by ID
+        private final Matcher[][] children; // the (unwrapped) child matchers by ID
+        private final int[][] childIds;
+        private final int[] matches;
+        private final int[] mismatches;
+        private final int[] matchSubs;
+        private final int[] mismatchSubs;
+        private final long[] nanoTime;
+        private final int interval;
+        private final double logNotTimed; // the logarithm of the probability of an invocation not being timed
+        private final Random random = new Random();
+        private int countdown;
+        // the ID of the matcher running at every context level (-1 for untracked ones) and the index of the child
+        // matched last at that level, which is where the search for the next child matcher starts
+        private int[] levelIds = new int[64];
+        private int[] levelChildren = new int[64];
+
+        private Sampler(Matcher root, int interval) {
+            // assign dense IDs to all rules, wrapper matchers share the ID of the matcher they wrap
+            Map<Matcher, Integer> ids = new IdentityHashMap<Matcher, Integer>();
+            LinkedList<Matcher> todo = new LinkedList<Matcher>();
+            todo.add(unwrap(root));
+            while (!todo.isEmpty()) {
+                Matcher matcher = todo.removeFirst();
+                if (ids.containsKey(matcher)) continue;
+                ids.put(matcher, matchers.size());
+                matchers.add(matcher);
+                for (Matcher child : matcher.getChildren()) todo.add(unwrap(child));
+            }
+            int count = matchers.size();
+            children = new Matcher[count][];
+            childIds = new int[count][];
+            for (int i = 0; i < count; i++) {
+                List<Matcher> matcherChildren = matchers.get(i).getChildren();
+                children[i] = new Matcher[matcherChildren.size()];
+                childIds[i] = new int[matcherChildren.size()];
+                for (int j = 0; j < children[i].length; j++) {
+                    children[i][j] = unwrap(matcherChildren.get(j));
+                    childIds[i][j] = ids.get(children[i][j]);
+                }
+            }
+            matches = new int[count];
+            mismatches = new int[count];
+            matchSubs = new int[count];
+            mismatchSubs = new int[count];
+            nanoTime = new long[count];
+            this.interval = interval;
+            this.logNotTimed = Math.log(1.0 - 1.0 / interval);
+            this.countdown = nextCountdown();
+        }
+
+        // the number of invocations up to and including the next timed one, geometrically distributed so that every
+        // invocation is timed with the same probability, independently of the call patterns of the grammar
+        private int nextCountdown() {
+            if (interval == 1) return 1;
+            return 1 + (int) Math.min(Math.log(1.0 - random.nextDouble()) / logNotTimed, Integer.MAX_VALUE - 1);
+        }
+
+        // determines the ID of the matcher of the given context from the one of its parent, without any hashing
+        private int findId(MatcherContext<?> context) {
+            int level = context.getLevel();
+            if (level >= levelIds.length) {
+                levelIds = Arrays.copyOf(levelIds, level * 2);
+                levelChildren = Arrays.copyOf(levelChildren, level * 2);
+            }
+            levelChildren[level] = 0;
+            Matcher matcher = unwrap(context.getMatcher());
+            int id = -1;
+            if (level == 0) {
+                if (matcher == matchers.get(0)) id = 0;
+            } else {
+                int parentId = levelIds[level - 1];
+                if (parentId >= 0) {
+                    Matcher[] candidates = children[parentId];
+                    int start = levelChildren[level - 1];
+                    for (int k = start, n = candidates.length; k < start + n; k++) {
+                        int j = k < n ? k : k - n;
+                        if (candidates[j] == matcher) {
+                            levelChildren[level - 1] = j;
+                            id = childIds[parentId][j];
+                            break;
+                        }
+                    }
+                }
+            }
+            levelIds[level] = id;
+            return id;
+        }
+
+        private boolean match(MatcherContext<?> context) {
+            Matcher matcher = context.getMatcher();
+            int i = findId(context);
+            if (i < 0) return matcher.match(context); // a matcher created on the fly, e.g. by an action
+
+            int subMatches = -++runMatches;
+            int previousMatchSubs = matchSubs[i];
+            int previousMismatchSubs = mismatchSubs[i];
+
+            boolean matched;
+            if (--countdown == 0) {
+                countdown = nextCountdown();
+                long timeStamp = System.nanoTime();
+                matched = matcher.match(context);
+                nanoTime[i] += (System.nanoTime() - timeStamp) * interval;
+            } else {
+                matched = matcher.match(context);
+            }
+
+            subMatches += runMatches;
+            if (matched) {
+                matches[i]++;
+                matchSubs[i] = previousMatchSubs + subMatches;
+            } else {
+                mismatches[i]++;
+                mismatchSubs[i] = previousMismatchSubs + subMatches;
+            }
+            return matched;
+        }
+
+        private Report createReport() {
+            List<RuleReport> reports = new ArrayList<RuleReport>();
+            int totalMatches = 0;
+            int totalMismatches = 0;
+            for (int i = 0; i < matchers.size(); i++) {
+                if (matches[i] + mismatches[i] == 0) continue;
+                RuleReport report = new RuleReport(matchers.get(i));
+                report.update(matches[i], matchSubs[i], mismatches[i], mismatchSubs[i], 0, 0, 0, 0, nanoTime[i]);
+                reports.add(report);
+                totalMatches += matches[i];
+                totalMismatches += mismatches[i];
+            }
+            return new Report(totalRuns, totalMatches, totalMismatches, 0, 0, totalNanoTime, reports);
+        }
+    }
+
     public static class Report {
         private final static DecimalFormat fmt = new DecimalFormat("0.###");
 
@@ -225,9 +476,15 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
         public final double reinvocationShare;
         public final long totalNanoTime;
         public final List<RuleReport> ruleReports;
+        public final List<StackReport> stackReports; // null if stack profiling was not enabled
 
         public Report(int totalRuns, int totalMatches, int totalMismatches, int rematches, int remismatches,
                       long totalNanoTime, List<RuleReport> ruleReports) {
+            this(totalRuns, totalMatches, totalMismatches, rematches, remismatches, totalNanoTime, ruleReports, null);
+        }
+
+        public Report(int totalRuns, int totalMatches, int totalMismatches, int rematches, int remismatches,
+                      long totalNanoTime, List<RuleReport> ruleReports, List<StackReport> stackReports) {
             this.totalRuns = totalRuns;
             this.totalInvocations = totalMatches + totalMismatches;
             this.totalMatches = totalMatches;
@@ -239,6 +496,7 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
             this.reinvocationShare = ((double) reinvocations) / totalInvocations;
             this.totalNanoTime = totalNanoTime;
             this.ruleReports = ruleReports;
+            this.stackReports = stackReports;
         }
 
         public String print() {
@@ -267,6 +525,46 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
             return sb.toString();
         }
 
+        /**
+         * Renders the self time (in nanoseconds) of all rule paths in the collapsed stack format consumed by flame
+         * graph tools, i.e. one line per rule path, consisting of the semicolon-separated rule labels and the value.
+         * Requires the report to have been created with stack profiling enabled.
+         *
+         * @return the collapsed stacks
+         */
+        public String printCollapsedStackTimes() {
+            checkState(stackReports != null, "Stack profiling was not enabled");
+            StringBuilder sb = new StringBuilder();
+            for (StackReport rep : stackReports) {
+                if (rep.selfNanoTime > 0) printCollapsedStack(sb, rep.path, rep.selfNanoTime);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Renders the number of invocations of all rule paths in the collapsed stack format consumed by flame
+         * graph tools. Requires the report to have been created with stack profiling enabled.
+         *
+         * @return the collapsed stacks
+         */
+        public String printCollapsedStackInvocations() {
+            checkState(stackReports != null, "Stack profiling was not enabled");
+            StringBuilder sb = new StringBuilder();
+            for (StackReport rep : stackReports) {
+                if (rep.invocations > 0) printCollapsedStack(sb, rep.path, rep.invocations);
+            }
+            return sb.toString();
+        }
+
+        private static void printCollapsedStack(StringBuilder sb, List<Matcher> path, long value) {
+            for (int i = 0; i < path.size(); i++) {
+                if (i > 0) sb.append(';');
+                // semicolons separate the frames and newlines the stacks, so both must not appear in a label
+                sb.append(StringUtils.escape(path.get(i).getLabel()).replace(";", "\\u003b"));
+            }
+            sb.append(' ').append(value).append('\n');
+        }
+
         public String printBasics() {
             StringBuilder sb = new StringBuilder();
             sb.append(String.format("Runs                     : %,15d\n", totalRuns));
@@ -429,6 +727,23 @@ public class ProfilingParseRunner<V> extends AbstractParseRunner<V> implements M
         }
     }
 
+    /**
+     * The statistics of one distinct rule path.
+     */
+    public static class StackReport {
+        public final List<Matcher> path; // the (unwrapped) matchers from the root rule down
+        public final int invocations;
+        public final int matches;
+        public final long selfNanoTime; // excluding the time spent in sub rules
+
+        public StackReport(List<Matcher> path, int invocations, int matches, long selfNanoTime) {
+            this.path = path;
+            this.invocations = invocations;
+            this.matches = matches;
+            this.selfNanoTime = selfNanoTime;
+        }
+    }
+
     public static class RuleReport {
         private final Matcher matcher;
         private int matches;
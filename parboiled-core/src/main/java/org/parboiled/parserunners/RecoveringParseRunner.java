@@ -25,14 +25,24 @@ import org.parboiled.common.ImmutableLinkedList;
 import org.parboiled.common.ImmutableList;
 import org.parboiled.common.Preconditions;
 import org.parboiled.errors.InvalidInputError;
+import org.parboiled.errors.ParseError;
+import org.parboiled.errors.ParserRuntimeException;
 import org.parboiled.matchers.*;
 import org.parboiled.matchervisitors.*;
 import org.parboiled.support.Checks;
+import org.parboiled.support.DefaultValueStack;
 import org.parboiled.support.MatcherPath;
 import org.parboiled.support.ParsingResult;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
 import static org.parboiled.common.Preconditions.checkState;
@@ -52,6 +62,11 @@ import static org.parboiled.support.Chars.*;
  * If the input is error free this {@link org.parboiled.parserunners.ParseRunner} implementation will only perform one parsing run, with the same
  * speed as the {@link org.parboiled.parserunners.BasicParseRunner}. However, if there are {@link org.parboiled.errors.InvalidInputError}s in the input potentially
  * many more runs are performed to properly report all errors and test the various recovery strategies.
+ * In order to keep these runs cheap the outcomes of all action free rules that only looked at input in front of the
+ * error currently being fixed are memoized across the runs, so that every trial run only re-matches the rules
+ * around and behind the error location rather than the complete input.
+ * Additionally the trial runs for the candidate fixes of an error can be evaluated concurrently on an
+ * {@link ExecutorService} (see {@link #withRepairExecutor(ExecutorService)}).
  */
 public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
     
@@ -74,6 +89,11 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
     private MutableInputBuffer buffer;
     private ParsingResult<V> lastParsingResult;
     private Matcher rootMatcherWithoutPTB; // the root matcher with parse tree building disabled
+    private GrammarAnalysis analysis;
+    private final Map<MemoKey, MemoEntry> memo = new HashMap<MemoKey, MemoEntry>();
+    private int memoLimit; // only matches not looking at input at or behind this index are memoized
+    private boolean memoizing = true;
+    private ExecutorService repairExecutor;
 
     /**
      * Create a new RecoveringParseRunner instance with the given rule and input text and returns the result of
@@ -117,24 +137,57 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         }
     }
 
+    /**
+     * Enables the concurrent evaluation of the candidate fixes for an error on the given executor.
+     * The deletion, insertion and replacement candidates are tried in parallel, each on its own overlay of the
+     * current input buffer, and the best fix is chosen exactly as during sequential evaluation, so the results
+     * do not depend on the executor. Note that parser actions are then run concurrently from several threads
+     * and must therefore not modify shared parser state (other than through {@link org.parboiled.support.Var}s).
+     *
+     * @param repairExecutor the executor to use, or null for sequential evaluation (the default)
+     * @return this instance
+     */
+    public RecoveringParseRunner<V> withRepairExecutor(ExecutorService repairExecutor) {
+        this.repairExecutor = repairExecutor;
+        return this;
+    }
+
+    /**
+     * Disables the memoization of rule outcomes across the recovery runs, which must not change any results.
+     *
+     * @return this instance
+     */
+    RecoveringParseRunner<V> withoutMemoization() {
+        this.memoizing = false;
+        return this;
+    }
+
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
         startTimeStamp = System.nanoTime();
+        startRun();
         resetValueStack();
 
         // first, run a basic match
         ParseRunner<V> basicRunner = new BasicParseRunner<V>(getRootMatcher())
+                .inheritBudget(this)
                 .withParseErrors(getParseErrors())
                 .withValueStack(getValueStack());
         lastParsingResult = basicRunner.run(inputBuffer);
 
         if (!lastParsingResult.matched) {
             // for better performance disable parse tree building during the recovery runs
-            rootMatcherWithoutPTB = (Matcher) getRootMatcher().suppressNode();
+            if (analysis == null) {
+                rootMatcherWithoutPTB = (Matcher) getRootMatcher().suppressNode();
+                analysis = GrammarAnalysis.of(getRootMatcher());
+            }
+            memo.clear();
+            memoLimit = Integer.MAX_VALUE;
 
             // locate first error
             performLocatingRun(inputBuffer);
             checkState(errorIndex >= 0); // we failed before so we must fail again
+            limitMemo(errorIndex);
 
             // in order to be able to apply fixes we need to wrap the input buffer with a mutability wrapper
             buffer = new MutableInputBuffer(inputBuffer);
@@ -153,15 +206,18 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
                 checkState(lastParsingResult.matched);
             }
         }
-        return lastParsingResult;
+        return finishRun(lastParsingResult);
     }
 
     private boolean performLocatingRun(InputBuffer inputBuffer) {
         resetValueStack();
-        ParseRunner<V> locatingRunner = new ErrorLocatingParseRunner<V>(rootMatcherWithoutPTB, getInnerHandler())
+        MarkerTrackingInputBuffer tracker = new MarkerTrackingInputBuffer(inputBuffer);
+        ParseRunner<V> locatingRunner = new ErrorLocatingParseRunner<V>(rootMatcherWithoutPTB,
+                new MemoizingHandler(getInnerHandler(), tracker, null, getBudgetMeter()))
+                .inheritBudget(this)
                 .withParseErrors(getParseErrors())
                 .withValueStack(getValueStack());
-        lastParsingResult = locatingRunner.run(inputBuffer);
+        lastParsingResult = locatingRunner.run(tracker);
         errorIndex = lastParsingResult.matched ? -1 :
                 getParseErrors().remove(getParseErrors().size() - 1).getStartIndex();
         return lastParsingResult.matched;
@@ -171,6 +227,8 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         resetValueStack();
         ParseRunner<V> reportingRunner = new ErrorReportingParseRunner<V>(rootMatcherWithoutPTB, errorIndex,
                 getInnerHandler())
+                .withAnalysis(analysis)
+                .inheritBudget(this)
                 .withParseErrors(getParseErrors())
                 .withValueStack(getValueStack());
         ParsingResult<V> result = reportingRunner.run(buffer);
@@ -190,7 +248,23 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         return errorIndex >= 0 ? new Handler() : null;
     }
 
+    // drops all memoized matches that looked at input at or behind the given index
+    private void limitMemo(int limit) {
+        if (limit < memoLimit) {
+            for (Iterator<MemoEntry> iterator = memo.values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().lookaheadIndex >= limit) iterator.remove();
+            }
+        }
+        memoLimit = limit;
+    }
+
     private boolean fixError(int fixIndex) {
+        BudgetMeter meter = getBudgetMeter();
+        if (meter != null) meter.recovery();
+        // all trial fixes only change the input at or behind the fix index
+        limitMemo(fixIndex);
+        if (repairExecutor != null) return fixErrorConcurrently(fixIndex);
+
         if (tryFixBySingleCharDeletion(fixIndex)) return true;
         int nextErrorAfterDeletion = errorIndex;
 
@@ -202,6 +276,13 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         if (bestReplacementCharacter == null) return true;
         int nextErrorAfterBestReplacement = errorIndex;
 
+        return applyBestFix(fixIndex, nextErrorAfterDeletion, bestInsertionCharacter, nextErrorAfterBestInsertion,
+                bestReplacementCharacter, nextErrorAfterBestReplacement);
+    }
+
+    private boolean applyBestFix(int fixIndex, int nextErrorAfterDeletion, char bestInsertionCharacter,
+                                 int nextErrorAfterBestInsertion, char bestReplacementCharacter,
+                                 int nextErrorAfterBestReplacement) {
         int nextErrorAfterBestSingleCharFix =
                 Math.max(Math.max(nextErrorAfterDeletion, nextErrorAfterBestInsertion), nextErrorAfterBestReplacement);
         if (nextErrorAfterBestSingleCharFix > fixIndex) {
@@ -250,17 +331,10 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         return nowErrorFree;
     }
 
-    @SuppressWarnings( {"ConstantConditions"})
     private Character findBestSingleCharInsertion(int fixIndex) {
-        GetStarterCharVisitor getStarterCharVisitor = new GetStarterCharVisitor();
         int bestNextErrorIndex = -1;
         Character bestChar = '\u0000'; // non-null default
-        for (MatcherPath failedMatcherPath : currentError.getFailedMatchers()) {
-            Character starterChar = failedMatcherPath.element.matcher.accept(getStarterCharVisitor);
-            checkState(starterChar != null); // we should only have single character matchers
-            if (starterChar == EOI) {
-                continue; // we should never conjure up an EOI character (that would be cheating :)
-            }
+        for (Character starterChar : getInsertionCandidates()) {
             buffer.insertChar(fixIndex, starterChar);
             buffer.insertChar(fixIndex, INS_ERROR);
             if (performLocatingRun(buffer)) {
@@ -280,6 +354,24 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         return bestChar;
     }
 
+    // the distinct starter chars of all failed matchers of the current error
+    @SuppressWarnings( {"ConstantConditions"})
+    private List<Character> getInsertionCandidates() {
+        List<Character> candidates = new ArrayList<Character>();
+        for (MatcherPath failedMatcherPath : currentError.getFailedMatchers()) {
+            Character starterChar = analysis.getStarterChar(failedMatcherPath.element.matcher);
+            checkState(starterChar != null); // we should only have single character matchers
+            if (starterChar == EOI) {
+                continue; // we should never conjure up an EOI character (that would be cheating :)
+            }
+            if (!candidates.contains(starterChar)) {
+                // several failed matchers might expect the same char, the run would yield the same result
+                candidates.add(starterChar);
+            }
+        }
+        return candidates;
+    }
+
     private Character findBestSingleCharReplacement(int fixIndex) {
         buffer.insertChar(fixIndex, DEL_ERROR);
         Character bestChar = findBestSingleCharInsertion(fixIndex + 2);
@@ -293,19 +385,322 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
         return bestChar;
     }
 
+    // evaluates all candidate fixes at once and then chooses the same fix as the sequential evaluation would
+    private boolean fixErrorConcurrently(int fixIndex) {
+        List<Character> candidates = getInsertionCandidates();
+        List<Future<Integer>> deletion = new ArrayList<Future<Integer>>();
+        List<Future<Integer>> insertions = new ArrayList<Future<Integer>>();
+        List<Future<Integer>> replacements = new ArrayList<Future<Integer>>();
+        List<RepairCandidate> started = new ArrayList<RepairCandidate>();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+        // the outcome of the candidate evaluation, which is only applied to the shared buffer (and memo) after all
+        // candidates have terminated, since they are still reading both while running
+        int completeFix = -1; // 0: deletion, 1: insertion, 2: replacement fixes all remaining errors
+        int nextErrorAfterDeletion = 0;
+        int bestInsertion = -1;
+        int nextErrorAfterBestInsertion = -1;
+        int bestReplacement = -1;
+        int nextErrorAfterBestReplacement = 0;
+        try {
+            // the overlays receive the same insertions the sequential evaluation applies to the buffer itself
+            MutableInputBuffer overlay = new MutableInputBuffer(buffer);
+            overlay.insertChar(fixIndex, DEL_ERROR);
+            deletion.add(submit(new RepairCandidate(overlay), started, futures));
+            for (char c : candidates) {
+                overlay = new MutableInputBuffer(buffer);
+                overlay.insertChar(fixIndex, c);
+                overlay.insertChar(fixIndex, INS_ERROR);
+                insertions.add(submit(new RepairCandidate(overlay), started, futures));
+            }
+            for (char c : candidates) {
+                overlay = new MutableInputBuffer(buffer);
+                overlay.insertChar(fixIndex, DEL_ERROR);
+                overlay.insertChar(fixIndex + 2, c);
+                overlay.insertChar(fixIndex + 2, INS_ERROR);
+                replacements.add(submit(new RepairCandidate(overlay), started, futures));
+            }
+
+            if (collect(deletion.get(0)) == -1) {
+                completeFix = 0;
+            } else {
+                nextErrorAfterDeletion = Math.max(collect(deletion.get(0)) - 1, 0);
+                bestInsertion = findBestCandidate(insertions);
+                if (bestInsertion >= 0 && collect(insertions.get(bestInsertion)) == -1) {
+                    completeFix = 1;
+                } else {
+                    if (bestInsertion >= 0) {
+                        nextErrorAfterBestInsertion = Math.max(collect(insertions.get(bestInsertion)) - 2, 0);
+                    }
+                    bestReplacement = findBestCandidate(replacements);
+                    if (bestReplacement >= 0 && collect(replacements.get(bestReplacement)) == -1) {
+                        completeFix = 2;
+                    } else if (bestReplacement >= 0) {
+                        nextErrorAfterBestReplacement =
+                                Math.max(Math.max(collect(replacements.get(bestReplacement)) - 2, 0) - 3, 0);
+                    }
+                }
+            }
+        } finally {
+            abortCandidates(started, futures);
+        }
+
+        switch (completeFix) {
+            case 0:
+                buffer.insertChar(fixIndex, DEL_ERROR);
+                currentError.shiftIndexDeltaBy(1);
+                return confirmFix();
+            case 1:
+                buffer.insertChar(fixIndex, candidates.get(bestInsertion));
+                buffer.insertChar(fixIndex, INS_ERROR);
+                currentError.shiftIndexDeltaBy(2);
+                return confirmFix();
+            case 2:
+                buffer.insertChar(fixIndex, DEL_ERROR);
+                buffer.insertChar(fixIndex + 2, candidates.get(bestReplacement));
+                buffer.insertChar(fixIndex + 2, INS_ERROR);
+                currentError.shiftIndexDeltaBy(1);
+                return confirmFix();
+        }
+        return applyBestFix(fixIndex, nextErrorAfterDeletion,
+                bestInsertion >= 0 ? candidates.get(bestInsertion) : '\u0000', nextErrorAfterBestInsertion,
+                bestReplacement >= 0 ? candidates.get(bestReplacement) : '\u0000', nextErrorAfterBestReplacement);
+    }
+
+    // makes all still running candidates stop at their next match and waits for all of them to terminate,
+    // so that none of them reads the shared buffer or memo anymore
+    private void abortCandidates(List<RepairCandidate> started, List<Future<Integer>> futures) {
+        for (RepairCandidate candidate : started) candidate.cancelled = true;
+        boolean interrupted = false;
+        for (Future<Integer> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // we have to wait for termination anyway
+                } catch (ExecutionException e) {
+                    break; // aborted or failed, a relevant failure has already been reported by collect(...)
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        BudgetMeter meter = getBudgetMeter();
+        if (meter != null) {
+            // account for the consumption of all candidate runs that got to complete
+            for (RepairCandidate candidate : started) {
+                if (candidate.finished) meter.join(candidate.meter);
+            }
+        }
+    }
+
+    private Future<Integer> submit(RepairCandidate candidate, List<RepairCandidate> started,
+                                   List<Future<Integer>> futures) {
+        started.add(candidate);
+        Future<Integer> future = repairExecutor.submit(candidate);
+        futures.add(future);
+        return future;
+    }
+
+    // returns the index of the first candidate fixing all errors or, if there is none, the first one getting the
+    // farthest, or -1 if there are no candidates
+    private int findBestCandidate(List<Future<Integer>> candidates) {
+        int best = -1;
+        int bestNextErrorIndex = -1;
+        for (int i = 0; i < candidates.size(); i++) {
+            int nextErrorIndex = collect(candidates.get(i));
+            if (nextErrorIndex == -1) return i;
+            if (bestNextErrorIndex < nextErrorIndex) {
+                bestNextErrorIndex = nextErrorIndex;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int collect(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParserRuntimeException(e, "Interrupted during error recovery");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new ParserRuntimeException(cause, "Error during error recovery");
+        }
+    }
+
+    // reruns the fixed input on the shared state, so that the final results are the same as after sequential fixing
+    private boolean confirmFix() {
+        checkState(performLocatingRun(buffer));
+        return true;
+    }
+
+    /**
+     * A locating run for one candidate fix, performed on a private overlay of the current input buffer and with
+     * its own value stack and error list, so that several candidates can be evaluated at the same time.
+     * Returns the index of the next error or -1, if the candidate fixes all remaining errors.
+     */
+    private class RepairCandidate implements Callable<Integer> {
+        private final MutableInputBuffer overlay;
+        private final BudgetMeter meter; // a fork of the meter of the current run, if there is one
+        private volatile boolean cancelled;
+        private volatile boolean finished; // true if the run completed, i.e. was neither aborted nor failed
+
+        private RepairCandidate(MutableInputBuffer overlay) {
+            this.overlay = overlay;
+            BudgetMeter runMeter = getBudgetMeter();
+            this.meter = runMeter != null ? runMeter.fork() : null;
+        }
+
+        public Integer call() {
+            if (cancelled) throw new CandidateAbortedException();
+            MarkerTrackingInputBuffer tracker = new MarkerTrackingInputBuffer(overlay);
+            List<ParseError> parseErrors = new ArrayList<ParseError>();
+            ParsingResult<V> result = new ErrorLocatingParseRunner<V>(rootMatcherWithoutPTB,
+                    new MemoizingHandler(new Handler(), tracker, this, meter))
+                    .inheritBudget(getBudget(), meter)
+                    .withParseErrors(parseErrors)
+                    .withValueStack(new DefaultValueStack<V>())
+                    .run(tracker);
+            finished = true;
+            return result.matched ? -1 : parseErrors.get(parseErrors.size() - 1).getStartIndex();
+        }
+    }
+
+    // thrown inside of a candidate run that is no longer needed
+    private static class CandidateAbortedException extends RuntimeException {
+        private CandidateAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A {@link org.parboiled.MatchHandler} reusing the outcomes of action free rules from earlier locating runs,
+     * as long as the input they looked at lies completely in front of the memo limit and does not contain any
+     * error or RESYNC markers (whose handling has side effects on the contexts and depends on the matching history).
+     */
+    private class MemoizingHandler implements MatchHandler {
+        private final MatchHandler inner;
+        private final MarkerTrackingInputBuffer tracker;
+        private final RepairCandidate candidate; // the candidate run, which only reads the memo, or null
+        private final BudgetMeter meter;
+
+        private MemoizingHandler(MatchHandler inner, MarkerTrackingInputBuffer tracker, RepairCandidate candidate,
+                                 BudgetMeter meter) {
+            this.inner = inner;
+            this.tracker = tracker;
+            this.candidate = candidate;
+            this.meter = meter;
+        }
+
+        public boolean match(MatcherContext<?> context) {
+            if (candidate != null && candidate.cancelled) throw new CandidateAbortedException();
+            Matcher matcher = context.getMatcher();
+            int index = context.getCurrentIndex();
+            if (!memoizing || index >= memoLimit || !analysis.isActionFree(matcher) ||
+                    matcher.getChildren().isEmpty()) {
+                return delegate(context);
+            }
+            MemoKey key = new MemoKey(matcher, index);
+            MemoEntry entry = memo.get(key);
+            if (entry != null) {
+                if (meter != null) meter.memoHit();
+                tracker.lookahead(entry.lookaheadIndex);
+                if (entry.matched) context.setCurrentIndex(entry.endIndex);
+                return entry.matched;
+            }
+            if (meter != null) meter.memoMiss();
+
+            boolean atMarker = isRecoveryMarker(context.getCurrentChar());
+            int markerReads = tracker.markerReads;
+            int outerLookahead = tracker.maxIndex;
+            tracker.maxIndex = index;
+            boolean matched = delegate(context);
+            int lookahead = tracker.maxIndex;
+            tracker.maxIndex = Math.max(outerLookahead, lookahead);
+
+            if (candidate == null && lookahead < memoLimit && !atMarker && tracker.markerReads == markerReads) {
+                memo.put(key, new MemoEntry(matched, context.getCurrentIndex(), lookahead));
+                if (meter != null) meter.memoSize(memo.size(), context);
+            }
+            return matched;
+        }
+
+        private boolean delegate(MatcherContext<?> context) {
+            return inner != null ? inner.match(context) : context.getMatcher().match(context);
+        }
+    }
+
+    private static boolean isRecoveryMarker(char c) {
+        return c == DEL_ERROR || c == INS_ERROR || c == RESYNC || c == RESYNC_START || c == RESYNC_END ||
+                c == RESYNC_EOI;
+    }
+
+    private static class MarkerTrackingInputBuffer extends TrackingInputBuffer {
+        private int markerReads;
+
+        private MarkerTrackingInputBuffer(InputBuffer buffer) {
+            super(buffer);
+        }
+
+        @Override
+        public char charAt(int index) {
+            char c = super.charAt(index);
+            if (isRecoveryMarker(c)) markerReads++;
+            return c;
+        }
+    }
+
+    private static class MemoKey {
+        private final Matcher matcher;
+        private final int index;
+
+        private MemoKey(Matcher matcher, int index) {
+            this.matcher = matcher;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MemoKey)) return false;
+            MemoKey key = (MemoKey) o;
+            return matcher == key.matcher && index == key.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(matcher) + index;
+        }
+    }
+
+    private static class MemoEntry {
+        private final boolean matched;
+        private final int endIndex;
+        private final int lookaheadIndex; // the highest input index looked at
+
+        private MemoEntry(boolean matched, int endIndex, int lookaheadIndex) {
+            this.matched = matched;
+            this.endIndex = endIndex;
+            this.lookaheadIndex = lookaheadIndex;
+        }
+    }
+
     /**
      * A {@link org.parboiled.MatchHandler} implementation that recognizes the special
      * {@link org.parboiled.support.Chars#RESYNC} character to overcome {@link InvalidInputError}s at the respective
      * error indices.
      */
     private class Handler implements MatchHandler {
-        private final IsSingleCharMatcherVisitor isSingleCharMatcherVisitor = new IsSingleCharMatcherVisitor();
         private int fringeIndex;
         private MatcherPath lastMatchPath;
 
         public boolean match(MatcherContext<?> context) {
             Matcher matcher = context.getMatcher();
-            if (matcher.accept(isSingleCharMatcherVisitor)) {
+            if (analysis.isSingleCharMatcher(matcher)) {
                 if (prepareErrorLocation(context) && matcher.match(context)) {
                     if (fringeIndex < context.getCurrentIndex()) {
                         fringeIndex = context.getCurrentIndex();
@@ -416,7 +811,7 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
                     // this RESYNC error is the last error, we establish the length of the bad sequence and
                     // change this RESYNC marker to a RESYNC_START / RESYNC_END block
                     context.advanceIndex(1); // gobble RESYNC marker
-                    List<Matcher> followMatchers = new FollowMatchersVisitor().getFollowMatchers(context);
+                    List<Matcher> followMatchers = analysis.getFollowMatchers(context);
                     int endIndex = gobbleIllegalCharacters(context, followMatchers);
                     currentError.setEndIndex(endIndex);
                     buffer.replaceInsertedChar(currentError.getStartIndex() - 1, RESYNC_START);
@@ -485,8 +880,9 @@ public class RecoveringParseRunner<V> extends AbstractParseRunner<V> {
             while (true) {
                 char currentChar = context.getCurrentChar();
                 if (currentChar == EOI) break;
+                IsStarterCharVisitor isStarterCharVisitor = new IsStarterCharVisitor(currentChar, analysis);
                 for (Matcher followMatcher : followMatchers) {
-                    if (followMatcher.accept(new IsStarterCharVisitor(currentChar))) {
+                    if (followMatcher.accept(isStarterCharVisitor)) {
                         break while_loop;
                     }
                 }
@@ -60,11 +60,12 @@ public class ReportingParseRunner<V> extends AbstractParseRunner<V> {
 
     public ParsingResult<V> run(InputBuffer inputBuffer) {
         checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
         resetValueStack();
 
         // first, run a basic match
         ParsingResult<V> result = runBasicMatch(inputBuffer);
-        if (result.matched) return result; // all good
+        if (result.matched) return finishRun(result); // all good
 
         // ok, we have a parse error, so determine the error location
         resetValueStack();
@@ -76,11 +77,12 @@ public class ReportingParseRunner<V> extends AbstractParseRunner<V> {
         resetValueStack();
         result = runReportingMatch(inputBuffer, result.parseErrors.get(0).getStartIndex());
         Preconditions.checkState(!result.matched); // we failed before so we should really be failing again
-        return result;
+        return finishRun(result);
     }
 
     protected ParsingResult<V> runBasicMatch(InputBuffer inputBuffer) {
         ParseRunner<V> basicRunner = new BasicParseRunner<V>(getRootMatcher())
+            .inheritBudget(this)
             .withParseErrors(getParseErrors())
             .withValueStack(getValueStack());
         return basicRunner.run(inputBuffer);
@@ -88,12 +90,14 @@ public class ReportingParseRunner<V> extends AbstractParseRunner<V> {
 
     protected ParsingResult<V> runLocatingMatch(InputBuffer inputBuffer) {
         ParseRunner<V> locatingRunner = new ErrorLocatingParseRunner<V>(getRootMatcher())
+                .inheritBudget(this)
                 .withValueStack(getValueStack());
         return locatingRunner.run(inputBuffer);
     }
 
     protected ParsingResult<V> runReportingMatch(InputBuffer inputBuffer, int errorIndex) {
         ParseRunner<V> reportingRunner = new ErrorReportingParseRunner<V>(getRootMatcher(), errorIndex)
+                .inheritBudget(this)
                 .withParseErrors(getParseErrors())
                 .withValueStack(getValueStack());
         return reportingRunner.run(inputBuffer);
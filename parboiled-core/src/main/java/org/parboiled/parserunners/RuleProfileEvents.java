@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * Emits the rule statistics of a {@link ProfilingParseRunner.Report} as "org.parboiled.RuleProfile" events to the
+ * Java Flight Recorder, so that the parser hot spots show up in the recording of the surrounding application.
+ * The flight recorder API is accessed reflectively, on JVMs without it (like all JVMs before Java 9) no events
+ * are emitted.
+ */
+public final class RuleProfileEvents {
+
+    public static final String EVENT_NAME = "org.parboiled.RuleProfile";
+
+    private RuleProfileEvents() {}
+
+    /**
+     * @return true if the flight recorder event API is available on this JVM
+     */
+    public static boolean isAvailable() {
+        return Jfr.FACTORY != null;
+    }
+
+    /**
+     * Emits one event per rule that was invoked at least once.
+     * The events are only recorded if a flight recording including them is active.
+     *
+     * @param report the profiling report
+     * @return the number of events emitted, zero if the flight recorder is not available
+     */
+    public static int emit(ProfilingParseRunner.Report report) {
+        checkArgNotNull(report, "report");
+        if (!isAvailable()) return 0;
+        int count = 0;
+        try {
+            for (ProfilingParseRunner.RuleReport rep : report.ruleReports) {
+                if (rep.getInvocations() == 0) continue;
+                Object event = Jfr.NEW_EVENT.invoke(Jfr.FACTORY);
+                Jfr.SET.invoke(event, 0, rep.getMatcher().getLabel());
+                Jfr.SET.invoke(event, 1, (long) rep.getInvocations());
+                Jfr.SET.invoke(event, 2, (long) rep.getMatches());
+                Jfr.SET.invoke(event, 3, (long) rep.getMismatches());
+                Jfr.SET.invoke(event, 4, (long) rep.getReinvocations());
+                Jfr.SET.invoke(event, 5, rep.getNanoTime());
+                Jfr.COMMIT.invoke(event);
+                count++;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Could not emit flight recorder event", e);
+        }
+        return count;
+    }
+
+    // lazily initialized on first access
+    private static class Jfr {
+        private static final Object FACTORY;
+        private static final Method NEW_EVENT;
+        private static final Method SET;
+        private static final Method COMMIT;
+
+        static {
+            Object factory = null;
+            Method newEvent = null, set = null, commit = null;
+            try {
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+                Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                Constructor<?> annotation = annotationElementClass.getConstructor(Class.class, Object.class);
+                Constructor<?> field = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+                List<?> eventAnnotations = Arrays.asList(
+                        annotation.newInstance(Class.forName("jdk.jfr.Name"), EVENT_NAME),
+                        annotation.newInstance(Class.forName("jdk.jfr.Label"), "Parser Rule Profile"),
+                        annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] {"parboiled"})
+                );
+                List<?> fields = Arrays.asList(
+                        field.newInstance(String.class, "rule", Collections.emptyList()),
+                        field.newInstance(long.class, "invocations", Collections.emptyList()),
+                        field.newInstance(long.class, "matches", Collections.emptyList()),
+                        field.newInstance(long.class, "mismatches", Collections.emptyList()),
+                        field.newInstance(long.class, "reinvocations", Collections.emptyList()),
+                        field.newInstance(long.class, "netTime", Collections.singletonList(
+                                annotation.newInstance(Class.forName("jdk.jfr.Timespan"), "NANOSECONDS")))
+                );
+                factory = eventFactoryClass.getMethod("create", List.class, List.class)
+                        .invoke(null, eventAnnotations, fields);
+                newEvent = eventFactoryClass.getMethod("newEvent");
+                set = eventClass.getMethod("set", int.class, Object.class);
+                commit = eventClass.getMethod("commit");
+            } catch (Exception e) {
+                // no flight recorder on this JVM
+                factory = null;
+            }
+            FACTORY = factory;
+            NEW_EVENT = newEvent;
+            SET = set;
+            COMMIT = commit;
+        }
+    }
+}
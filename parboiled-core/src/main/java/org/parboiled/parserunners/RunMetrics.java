@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.matchers.Matcher;
+
+/**
+ * The metrics of one parsing run, including all parsing passes a runner performs internally.
+ */
+public class RunMetrics {
+    public final Matcher rootMatcher; // the entry point of the grammar the run started at
+    public final boolean matched;
+    public final int characters; // the farthest input index a rule match ended at
+    public final long matcherInvocations;
+    public final long rewinds; // the number of consumed input characters given up again by failing rules
+    public final long memoHits;
+    public final long memoMisses;
+    public final int memoSize; // the maximum memo table size
+    public final long nodes; // the number of parse tree nodes created
+    public final int valueStackSize; // the maximum value stack size
+    public final int errors;
+    public final int recoveries; // the number of errors repaired by a RecoveringParseRunner
+    public final long nanoTime;
+
+    public RunMetrics(Matcher rootMatcher, boolean matched, int characters, long matcherInvocations, long rewinds,
+                      long memoHits, long memoMisses, int memoSize, long nodes, int valueStackSize, int errors,
+                      int recoveries, long nanoTime) {
+        this.rootMatcher = rootMatcher;
+        this.matched = matched;
+        this.characters = characters;
+        this.matcherInvocations = matcherInvocations;
+        this.rewinds = rewinds;
+        this.memoHits = memoHits;
+        this.memoMisses = memoMisses;
+        this.memoSize = memoSize;
+        this.nodes = nodes;
+        this.valueStackSize = valueStackSize;
+        this.errors = errors;
+        this.recoveries = recoveries;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RunMetrics{rule=%s, matched=%s, characters=%d, invocations=%d, rewinds=%d, " +
+                "memoHits=%d, memoMisses=%d, memoSize=%d, nodes=%d, valueStackSize=%d, errors=%d, recoveries=%d, " +
+                "nanoTime=%d}", rootMatcher, matched, characters, matcherInvocations, rewinds, memoHits, memoMisses,
+                memoSize, nodes, valueStackSize, errors, recoveries, nanoTime);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.common.IntArrayStack;
+import org.parboiled.errors.InvalidInputError;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.matchers.TestNotMatcher;
+import org.parboiled.matchervisitors.GrammarAnalysis;
+import org.parboiled.support.MatcherPath;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * A {@link ParseRunner} implementation that reports the first {@link InvalidInputError} just like the
+ * {@link ReportingParseRunner}, however without any additional parsing runs on invalid input.
+ * Instead it keeps track of the farthest input index reached and of the single character matchers failing there
+ * during its one and only run, so the error location and the list of expected matchers are available as soon as
+ * the run fails.
+ * Since it has to see every single match it runs without fast string matching and is therefore somewhat slower than
+ * the {@link ReportingParseRunner} on valid input. It pays off if a significant share of the inputs is invalid.
+ * The failures are recorded in flat arrays of rule frames, the {@link MatcherPath}s of the reported error are only
+ * created if the run actually fails.
+ */
+public class SinglePassReportingParseRunner<V> extends AbstractParseRunner<V> implements MatchHandler {
+    private GrammarAnalysis analysis;
+    private int errorIndex; // the farthest index a match outside of a TestNot has ended at
+    private int testNotLevel;
+
+    // the recorded rule frames (i.e. the matchers with their start index and level) the failures lie in,
+    // each frame refers to the frame of its parent context by index, parents are always recorded first
+    private Matcher[] frameMatchers = new Matcher[64];
+    private int[] frameStarts = new int[64];
+    private int[] frameLevels = new int[64];
+    private int[] frameParents = new int[64];
+    private int frameCount;
+
+    // the frame recorded for the context currently open at each level, valid if it is not -1 and was recorded
+    // in the current generation of the frame table
+    private int[] levelFrames = new int[64];
+    private int[] levelGenerations = new int[64];
+    private int generation;
+    private MatcherContext<?>[] unrecorded = new MatcherContext<?>[64];
+
+    // the recorded failures, each one the frame of the failed single char matcher and the index of the next failure
+    // at the same input index (or -1)
+    private int[] failureFrames = new int[64];
+    private int[] failureNexts = new int[64];
+    private int failureCount;
+
+    // the first and last failure at the error index, -1 if there are none
+    private int failedHead;
+    private int failedTail;
+
+    // the indices behind the error index a match inside of a TestNot has ended at (one of which might become the
+    // error index later on) in ascending order, with the first and last failure recorded at each of them
+    private int[] lookaheadIndices = new int[16];
+    private int[] lookaheadHeads = new int[16];
+    private int[] lookaheadTails = new int[16];
+    private int lookaheadCount;
+
+    /**
+     * Creates a new SinglePassReportingParseRunner instance for the given rule.
+     *
+     * @param rule the parser rule
+     */
+    public SinglePassReportingParseRunner(Rule rule) {
+        super(rule);
+    }
+
+    public ParsingResult<V> run(InputBuffer inputBuffer) {
+        checkArgNotNull(inputBuffer, "inputBuffer");
+        startRun();
+        resetValueStack();
+        errorIndex = 0;
+        testNotLevel = 0;
+        failedHead = failedTail = -1;
+        lookaheadCount = 0;
+        clearFrames();
+        if (analysis == null) analysis = GrammarAnalysis.of(getRootMatcher());
+
+        // run without fast string matching to properly get the error location
+        MatcherContext<V> rootContext = createRootContext(inputBuffer, this, false);
+        boolean matched = match(rootContext);
+        if (!matched) {
+            getParseErrors().add(new InvalidInputError(inputBuffer, errorIndex, createFailedMatchers(), null));
+        }
+        clearFrames();
+        return finishRun(createParsingResult(matched, rootContext));
+    }
+
+    public boolean match(MatcherContext<?> context) {
+        Matcher matcher = context.getMatcher();
+        int level = context.getLevel();
+        if (level >= levelFrames.length) growLevels();
+        levelFrames[level] = -1; // a new context is open at this level
+        boolean testNot = matcher instanceof TestNotMatcher;
+        if (testNot) testNotLevel++;
+        boolean matched = matcher.match(context);
+        int index = context.getCurrentIndex();
+        if (matched) {
+            if (index > errorIndex) {
+                if (testNotLevel == 0) advanceErrorIndex(index);
+                else if (findLookahead(index) < 0) insertLookahead(index);
+            }
+        } else if (index >= errorIndex && analysis.isSingleCharMatcher(matcher)) {
+            if (index == errorIndex) {
+                int failure = recordFailure(context, failedTail);
+                if (failedHead < 0) failedHead = failure;
+                failedTail = failure;
+            } else {
+                int i = findLookahead(index);
+                if (i >= 0) {
+                    int failure = recordFailure(context, lookaheadTails[i]);
+                    if (lookaheadHeads[i] < 0) lookaheadHeads[i] = failure;
+                    lookaheadTails[i] = failure;
+                }
+            }
+        }
+        if (testNot) testNotLevel--;
+        return matched;
+    }
+
+    private void advanceErrorIndex(int index) {
+        errorIndex = index;
+        failedHead = failedTail = -1;
+        if (lookaheadCount > 0) {
+            // failures recorded behind a lookahead match ending at the new error index still count
+            int i = findLookahead(index);
+            int dropped = i >= 0 ? i + 1 : -(i + 1);
+            if (i >= 0) {
+                failedHead = lookaheadHeads[i];
+                failedTail = lookaheadTails[i];
+            }
+            lookaheadCount -= dropped;
+            System.arraycopy(lookaheadIndices, dropped, lookaheadIndices, 0, lookaheadCount);
+            System.arraycopy(lookaheadHeads, dropped, lookaheadHeads, 0, lookaheadCount);
+            System.arraycopy(lookaheadTails, dropped, lookaheadTails, 0, lookaheadCount);
+        }
+        if (failedHead < 0 && lookaheadCount == 0) clearFrames(); // no recorded failure can be reported anymore
+    }
+
+    private int findLookahead(int index) {
+        return Arrays.binarySearch(lookaheadIndices, 0, lookaheadCount, index);
+    }
+
+    private void insertLookahead(int index) {
+        int i = -(findLookahead(index) + 1);
+        if (lookaheadCount == lookaheadIndices.length) {
+            lookaheadIndices = Arrays.copyOf(lookaheadIndices, lookaheadCount * 2);
+            lookaheadHeads = Arrays.copyOf(lookaheadHeads, lookaheadCount * 2);
+            lookaheadTails = Arrays.copyOf(lookaheadTails, lookaheadCount * 2);
+        }
+        System.arraycopy(lookaheadIndices, i, lookaheadIndices, i + 1, lookaheadCount - i);
+        System.arraycopy(lookaheadHeads, i, lookaheadHeads, i + 1, lookaheadCount - i);
+        System.arraycopy(lookaheadTails, i, lookaheadTails, i + 1, lookaheadCount - i);
+        lookaheadIndices[i] = index;
+        lookaheadHeads[i] = lookaheadTails[i] = -1;
+        lookaheadCount++;
+    }
+
+    // records a failure of the single char matcher of the given context behind the given previous failure
+    private int recordFailure(MatcherContext<?> context, int previous) {
+        if (failureCount == failureFrames.length) {
+            failureFrames = Arrays.copyOf(failureFrames, failureCount * 2);
+            failureNexts = Arrays.copyOf(failureNexts, failureCount * 2);
+        }
+        int failure = failureCount++;
+        failureFrames[failure] = recordFrame(context);
+        failureNexts[failure] = -1;
+        if (previous >= 0) failureNexts[previous] = failure;
+        return failure;
+    }
+
+    // returns the frame of the given context, recording it and all its not yet recorded ancestors top-down
+    private int recordFrame(MatcherContext<?> context) {
+        int count = 0;
+        int parentFrame = -1;
+        for (MatcherContext<?> c = context; c != null; c = c.getParent()) {
+            int level = c.getLevel();
+            if (levelGenerations[level] == generation && levelFrames[level] >= 0) {
+                parentFrame = levelFrames[level];
+                break;
+            }
+            if (count == unrecorded.length) unrecorded = Arrays.copyOf(unrecorded, count * 2);
+            unrecorded[count++] = c;
+        }
+        while (count-- > 0) {
+            MatcherContext<?> c = unrecorded[count];
+            unrecorded[count] = null;
+            if (frameCount == frameMatchers.length) {
+                frameMatchers = Arrays.copyOf(frameMatchers, frameCount * 2);
+                frameStarts = Arrays.copyOf(frameStarts, frameCount * 2);
+                frameLevels = Arrays.copyOf(frameLevels, frameCount * 2);
+                frameParents = Arrays.copyOf(frameParents, frameCount * 2);
+            }
+            int frame = frameCount++;
+            frameMatchers[frame] = c.getMatcher();
+            frameStarts[frame] = c.getStartIndex();
+            frameLevels[frame] = c.getLevel();
+            frameParents[frame] = parentFrame;
+            levelFrames[c.getLevel()] = frame;
+            levelGenerations[c.getLevel()] = generation;
+            parentFrame = frame;
+        }
+        return parentFrame;
+    }
+
+    private void clearFrames() {
+        Arrays.fill(frameMatchers, 0, frameCount, null);
+        frameCount = 0;
+        failureCount = 0;
+        generation++;
+    }
+
+    private void growLevels() {
+        levelFrames = Arrays.copyOf(levelFrames, levelFrames.length * 2);
+        levelGenerations = Arrays.copyOf(levelGenerations, levelFrames.length);
+    }
+
+    // creates the paths of the failures at the error index, sharing the paths of common frames
+    private List<MatcherPath> createFailedMatchers() {
+        List<MatcherPath> failedMatchers = new ArrayList<MatcherPath>();
+        MatcherPath[] paths = new MatcherPath[frameCount];
+        IntArrayStack missing = new IntArrayStack();
+        for (int failure = failedHead; failure >= 0; failure = failureNexts[failure]) {
+            int frame = failureFrames[failure];
+            while (frame >= 0 && paths[frame] == null) {
+                missing.push(frame);
+                frame = frameParents[frame];
+            }
+            while (!missing.isEmpty()) {
+                frame = missing.pop();
+                int parent = frameParents[frame];
+                paths[frame] = new MatcherPath(
+                        new MatcherPath.Element(frameMatchers[frame], frameStarts[frame], frameLevels[frame]),
+                        parent >= 0 ? paths[parent] : null);
+            }
+            failedMatchers.add(paths[failureFrames[failure]]);
+        }
+        return failedMatchers;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.Context;
+import org.parboiled.common.Sink;
+import org.parboiled.support.MatcherPath;
+import org.parboiled.support.Position;
+
+/**
+ * Renders the tracing log messages of the {@link TracingParseRunner} and the {@link BinaryTraceReader}.
+ */
+class TracePrinter {
+    private MatcherPath lastPath;
+
+    void startRun(Sink<String> log) {
+        log.receive("Starting new parsing run\n");
+        lastPath = null;
+    }
+
+    void print(Context<?> context, boolean matched, Sink<String> log) {
+        Position pos = context.getInputBuffer().getPosition(context.getCurrentIndex());
+        MatcherPath path = context.getPath();
+        MatcherPath prefix = lastPath != null ? path.commonPrefix(lastPath) : null;
+        if (prefix != null && prefix.length() > 1) log.receive("..(" + (prefix.length() - 1) + ")../");
+        log.receive(path.toString(prefix != null ? prefix.parent : null));
+        String line = context.getInputBuffer().extractLine(pos.line);
+        log.receive(", " + (matched ? "matched" : "failed") + ", cursor at " + pos.line + ':' + pos.column +
+                " after \"" + line.substring(0, Math.min(line.length(), pos.column - 1)) + "\"\n");
+        lastPath = path;
+    }
+}
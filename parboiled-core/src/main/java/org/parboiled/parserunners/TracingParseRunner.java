@@ -23,21 +23,24 @@ import org.parboiled.Rule;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.common.*;
 import org.parboiled.matchers.Matcher;
-import org.parboiled.support.MatcherPath;
 import org.parboiled.support.ParsingResult;
-import org.parboiled.support.Position;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
 
 /**
  * A {@link org.parboiled.parserunners.ParseRunner} implementation used for debugging purposes.
  * It exhibits the same behavior as the {@link ReportingParseRunner} but collects debugging information as to which
  * rules did match and which didn't.
+ * For large inputs the tracing information can also be recorded in a compact binary format with a
+ * {@link BinaryTraceWriter} (see {@link #withTrace(BinaryTraceWriter)}) and rendered later, and only for the events
+ * of interest, with a {@link BinaryTraceReader}.
  */
 public class TracingParseRunner<V> extends ReportingParseRunner<V> implements MatchHandler {
     private Predicate<Tuple2<Context<?>, Boolean>> filter;
     private Sink<String> log;
-    private MatcherPath lastPath;
+    private BinaryTraceWriter trace;
+    private final TracePrinter printer = new TracePrinter();
     private int line;
 
     /**
@@ -93,10 +96,25 @@ public class TracingParseRunner<V> extends ReportingParseRunner<V> implements Ma
         return log;
     }
 
+    /**
+     * Makes this TracingParseRunner record all rule matches and mismatches to the given binary trace rather than
+     * printing the filtered ones to its log.
+     *
+     * @param trace the trace to record to, must have been created for the root rule of this runner, or null for
+     *              printing to the log
+     * @return this instance
+     */
+    public TracingParseRunner<V> withTrace(BinaryTraceWriter trace) {
+        checkArgument(trace == null || trace.getRootMatcher() == getRootMatcher(),
+                "The trace was created for another root rule");
+        this.trace = trace;
+        return this;
+    }
+
     @Override
     protected ParsingResult<V> runBasicMatch(InputBuffer inputBuffer) {
-        getLog().receive("Starting new parsing run\n");
-        lastPath = null;
+        if (trace != null) trace.startRun();
+        else printer.startRun(getLog());
 
         MatcherContext<V> rootContext = createRootContext(inputBuffer, this, true);
         boolean matched = rootContext.runMatcher();
@@ -106,24 +124,18 @@ public class TracingParseRunner<V> extends ReportingParseRunner<V> implements Ma
     @SuppressWarnings( {"unchecked"})
     public boolean match(MatcherContext<?> context) {
         Matcher matcher = context.getMatcher();
+        if (trace != null) {
+            trace.enter(context);
+            boolean matched = matcher.match(context);
+            trace.exit(context, matched);
+            return matched;
+        }
         boolean matched = matcher.match(context);
         if (getFilter().apply(new Tuple2<Context<?>, Boolean>(context, matched))) {
             line++;
-            print(context, matched); // set line-dependent breakpoint here
+            printer.print(context, matched, getLog()); // set line-dependent breakpoint here
         }
         return matched;
     }
-
-    private void print(MatcherContext<?> context, boolean matched) {
-        Position pos = context.getInputBuffer().getPosition(context.getCurrentIndex());
-        MatcherPath path = context.getPath();
-        MatcherPath prefix = lastPath != null ? path.commonPrefix(lastPath) : null;
-        if (prefix != null && prefix.length() > 1) getLog().receive("..(" + (prefix.length() - 1) + ")../");
-        getLog().receive(path.toString(prefix != null ? prefix.parent : null));
-        String line = context.getInputBuffer().extractLine(pos.line);
-        getLog().receive(", " + (matched ? "matched" : "failed") + ", cursor at " + pos.line + ':' + pos.column +
-                " after \"" + line.substring(0, Math.min(line.length(), pos.column - 1)) + "\"\n");
-        lastPath = path;
-    }
 }
 
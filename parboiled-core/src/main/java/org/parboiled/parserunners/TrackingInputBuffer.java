@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+/**
+ * An InputBuffer wrapper recording the highest index read from the underlying buffer, which allows parse runners
+ * to determine the input range a rule match depended upon (including lookahead).
+ */
+class TrackingInputBuffer implements InputBuffer {
+    private final InputBuffer buffer;
+    int maxIndex;
+
+    TrackingInputBuffer(InputBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void lookahead(int index) {
+        if (index > maxIndex) maxIndex = index;
+    }
+
+    public char charAt(int index) {
+        lookahead(index);
+        return buffer.charAt(index);
+    }
+
+    public boolean test(int index, char[] characters) {
+        lookahead(index + characters.length - 1);
+        return buffer.test(index, characters);
+    }
+
+    public String extract(int start, int end) {
+        return buffer.extract(start, end);
+    }
+
+    public String extract(IndexRange range) {
+        return buffer.extract(range);
+    }
+
+    public Position getPosition(int index) {
+        return buffer.getPosition(index);
+    }
+
+    public int getOriginalIndex(int index) {
+        return buffer.getOriginalIndex(index);
+    }
+
+    public String extractLine(int lineNumber) {
+        return buffer.extractLine(lineNumber);
+    }
+
+    public int getLineCount() {
+        return buffer.getLineCount();
+    }
+}
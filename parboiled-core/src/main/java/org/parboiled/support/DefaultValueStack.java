@@ -33,10 +33,12 @@ public class DefaultValueStack<V> implements ValueStack<V> {
     protected static class Element {
         protected final Object value;
         protected final Element tail;
+        protected final int size; // the number of elements from this one down to the bottom of the stack
 
         protected Element(Object value, Element tail) {
             this.value = value;
             this.tail = tail;
+            this.size = tail != null ? tail.size + 1 : 1;
         }
     }
 
@@ -63,13 +65,7 @@ public class DefaultValueStack<V> implements ValueStack<V> {
     }
 
     public int size() {
-        Element cursor = head;
-        int size = 0;
-        while (cursor != null) {
-            size++;
-            cursor = cursor.tail;
-        }
-        return size;
+        return head != null ? head.size : 0;
     }
 
     public void clear() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.support;
+
+import org.parboiled.buffers.InputBuffer;
+
+import static org.parboiled.common.Preconditions.checkElementIndex;
+import static org.parboiled.common.Preconditions.checkPositionIndexes;
+
+/**
+ * A mutable {@link CharSequence} view onto a range of an {@link InputBuffer}, which gives access to the matched
+ * input text without copying it into a new String.
+ * Since the view instances are reused, a view must not be held on to beyond the action it was obtained in.
+ * If the view is to be kept, {@link #toString()} creates a String copy of its contents.
+ */
+public final class MatchView implements CharSequence {
+    private InputBuffer inputBuffer;
+    private String text; // the text of the view if it does not directly cover an input buffer range
+    private int start;
+    private int end;
+
+    /**
+     * Points this view to the given range of the given input buffer.
+     *
+     * @param inputBuffer the input buffer
+     * @param start       the index of the first character of the view
+     * @param end         the index of the character following the last character of the view
+     * @return this view
+     */
+    public MatchView set(InputBuffer inputBuffer, int start, int end) {
+        this.inputBuffer = inputBuffer;
+        this.text = null;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /**
+     * Points this view to the given text.
+     *
+     * @param text the text
+     * @return this view
+     */
+    public MatchView set(String text) {
+        this.inputBuffer = null;
+        this.text = text;
+        this.start = 0;
+        this.end = text.length();
+        return this;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        checkElementIndex(index, end - start);
+        return text != null ? text.charAt(index) : inputBuffer.charAt(start + index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        checkPositionIndexes(start, end, this.end - this.start);
+        return text != null ? text.substring(start, end) : inputBuffer.extract(this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        return text != null ? text : inputBuffer.extract(start, end);
+    }
+}
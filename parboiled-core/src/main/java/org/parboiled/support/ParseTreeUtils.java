@@ -293,6 +293,22 @@ public final class ParseTreeUtils {
         return inputBuffer.extract(node.getStartIndex(), node.getEndIndex());
     }
 
+    /**
+     * Returns the input text matched by the given node, with error correction, as the canonical String instance
+     * of the given symbol table.
+     *
+     * @param node        the node
+     * @param inputBuffer the underlying inputBuffer
+     * @param symbols     the symbol table
+     * @return a string with the matched input text (which can be empty)
+     */
+    public static String getNodeText(Node<?> node, InputBuffer inputBuffer, SymbolTable symbols) {
+        checkArgNotNull(node, "node");
+        checkArgNotNull(symbols, "symbols");
+        return node.hasError() ? symbols.intern(getNodeText(node, inputBuffer)) :
+                symbols.intern(inputBuffer, node.getStartIndex(), node.getEndIndex());
+    }
+
     /**
      * Collects all nodes underneath the given parents for which the given predicate evaluates to true.
      *
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.support;
+
+import org.parboiled.buffers.InputBuffer;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * <p>A bounded table of canonical String instances for recurring pieces of input text, like identifiers or keywords.
+ * Looking up a range of an {@link InputBuffer} hashes and compares the characters directly in the buffer, so a new
+ * String is only created for input text not yet contained in the table.</p>
+ * <p>The table uses open addressing with a fixed capacity. If all slots that a new symbol can be placed in are taken,
+ * the symbol in its first slot is evicted. Symbols longer than the maximum symbol length are never stored.
+ * A SymbolTable can be shared between threads: concurrent lookups never return wrong symbols, they might only
+ * lose a concurrently added symbol, which is then simply created again on its next lookup.</p>
+ */
+public final class SymbolTable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_SYMBOL_LENGTH = 64;
+
+    private static final int MAX_PROBES = 8;
+
+    private final String[] symbols;
+    private final int mask;
+    private final int maxSymbolLength;
+
+    /**
+     * Creates a new SymbolTable with the default capacity and maximum symbol length.
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_SYMBOL_LENGTH);
+    }
+
+    /**
+     * Creates a new SymbolTable.
+     *
+     * @param capacity        the maximum number of symbols held, rounded up to the next power of two
+     * @param maxSymbolLength the maximum length of the symbols held
+     */
+    public SymbolTable(int capacity, int maxSymbolLength) {
+        checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity must be > 0 and <= 2^30");
+        checkArgument(maxSymbolLength >= 0, "maxSymbolLength must be >= 0");
+        int size = Integer.highestOneBit(capacity);
+        this.symbols = new String[size < capacity ? size << 1 : size];
+        this.mask = symbols.length - 1;
+        this.maxSymbolLength = maxSymbolLength;
+    }
+
+    /**
+     * @return the maximum number of symbols this table holds
+     */
+    public int getCapacity() {
+        return symbols.length;
+    }
+
+    /**
+     * @return the number of symbols this table currently holds
+     */
+    public int size() {
+        int size = 0;
+        for (String symbol : symbols) {
+            if (symbol != null) size++;
+        }
+        return size;
+    }
+
+    /**
+     * Removes all symbols from this table.
+     */
+    public void clear() {
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = null;
+        }
+    }
+
+    /**
+     * Returns the canonical String for the given range of the given input buffer.
+     *
+     * @param inputBuffer the input buffer
+     * @param start       the index of the first character of the range
+     * @param end         the index of the character following the last character of the range
+     * @return a String equal to inputBuffer.extract(start, end)
+     */
+    public String intern(InputBuffer inputBuffer, int start, int end) {
+        checkArgNotNull(inputBuffer, "inputBuffer");
+        int length = end - start;
+        if (length > maxSymbolLength) return inputBuffer.extract(start, end);
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + inputBuffer.charAt(i);
+        }
+        String[] symbols = this.symbols;
+        int home = spread(hash) & mask;
+        for (int probe = 0, ix = home; probe < MAX_PROBES; probe++, ix = (ix + 1) & mask) {
+            String symbol = symbols[ix];
+            if (symbol == null) return symbols[ix] = inputBuffer.extract(start, end);
+            if (symbol.hashCode() == hash && symbol.length() == length && matches(symbol, inputBuffer, start)) {
+                return symbol;
+            }
+        }
+        return symbols[home] = inputBuffer.extract(start, end);
+    }
+
+    /**
+     * Returns the canonical String for the given characters.
+     *
+     * @param chars the characters
+     * @return a String equal to chars.toString()
+     */
+    public String intern(CharSequence chars) {
+        checkArgNotNull(chars, "chars");
+        int length = chars.length();
+        if (length > maxSymbolLength) return chars.toString();
+
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        String[] symbols = this.symbols;
+        int home = spread(hash) & mask;
+        for (int probe = 0, ix = home; probe < MAX_PROBES; probe++, ix = (ix + 1) & mask) {
+            String symbol = symbols[ix];
+            if (symbol == null) return symbols[ix] = chars.toString();
+            if (symbol.hashCode() == hash && symbol.contentEquals(chars)) return symbol;
+        }
+        return symbols[home] = chars.toString();
+    }
+
+    private static boolean matches(String symbol, InputBuffer inputBuffer, int start) {
+        for (int i = 0, len = symbol.length(); i < len; i++) {
+            if (symbol.charAt(i) != inputBuffer.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    // mixes the higher bits of the hash into the lower ones used for indexing
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
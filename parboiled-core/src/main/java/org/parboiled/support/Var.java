@@ -33,14 +33,29 @@ import static org.parboiled.common.Preconditions.checkArgNotNull;
  * When rule method A() passes a Var defined in its scope to another rule method B() as a parameter and an action
  * in rule method B() writes to this Var all actions in rule method A() running after B() will "see" this newly written
  * value (since values in Var<T> objects are passed by reference)</p>
+ * <p>The values and execution frames of a Var are kept separately for each thread, so grammars containing Vars
+ * can be used by several threads at the same time.</p>
  *
  * @param <T> the type wrapped by this Var
  */
 public class Var<T> extends Reference<T> {
 
+    // the per-thread state of a Var
+    private static class Frames<T> {
+        private T value;
+        private LinkedList<T> stack;
+        private int level;
+    }
+
     private Factory<T> initialValueFactory;
-    private LinkedList<T> stack;
-    private int level;
+    private final ThreadLocal<Frames<T>> frames = new ThreadLocal<Frames<T>>() {
+        @Override
+        protected Frames<T> initialValue() {
+            Frames<T> frames = new Frames<T>();
+            frames.value = Var.super.get(); // the value given to the constructor
+            return frames;
+        }
+    };
     private String name;
 
     /**
@@ -98,7 +113,7 @@ public class Var<T> extends Reference<T> {
      * @return the current level
      */
     public int getLevel() {
-        return level;
+        return frames.get().level;
     }
 
     /**
@@ -109,11 +124,13 @@ public class Var<T> extends Reference<T> {
      * @return true
      */
     public boolean enterFrame() {
-        if (level++ > 0) {
-            if (stack == null) stack = new LinkedList<T>();
-            stack.add(get());
+        Frames<T> frames = this.frames.get();
+        if (frames.level++ > 0) {
+            if (frames.stack == null) frames.stack = new LinkedList<T>();
+            frames.stack.add(frames.value);
         }
-        return set(initialValueFactory.create());
+        frames.value = initialValueFactory.create();
+        return true;
     }
 
     /**
@@ -123,12 +140,26 @@ public class Var<T> extends Reference<T> {
      * @return true
      */
     public boolean exitFrame() {
-        if (--level > 0) {
-            set(stack.removeLast());
+        Frames<T> frames = this.frames.get();
+        if (--frames.level > 0) {
+            frames.value = frames.stack.removeLast();
+        } else {
+            this.frames.remove(); // do not keep the values of a finished parsing run attached to the thread
         }
         return true;
     }
 
+    @Override
+    public boolean set(T value) {
+        frames.get().value = value;
+        return true;
+    }
+
+    @Override
+    public T get() {
+        return frames.get().value;
+    }
+
     @Override
     public String toString() {
         return name != null ? name : super.toString();
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.buffers;
+
+import org.parboiled.support.Chars;
+import org.parboiled.support.Position;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+public class GapInputBufferTest {
+
+    @Test
+    public void testEdits() {
+        GapInputBuffer buf = new GapInputBuffer("abcd\nef\n".toCharArray());
+        buf.replace(2, 1, "XYZ");
+        assertEquals(buf.toString(), "abXYZd\nef\n");
+        buf.replace(0, 0, "gh\n");
+        assertEquals(buf.toString(), "gh\nabXYZd\nef\n");
+        buf.replace(12, 1, "");
+        assertEquals(buf.toString(), "gh\nabXYZd\nef");
+
+        assertEquals(buf.length(), 12);
+        assertEquals(buf.charAt(11), 'f');
+        assertEquals(buf.charAt(12), Chars.EOI);
+        assertEquals(buf.extract(4, 7), "bXY");
+        assertEquals(buf.extractLine(2), "abXYZd");
+        assertEquals(buf.getLineCount(), 3);
+        assertEquals(buf.getPosition(10), new Position(3, 1));
+        assertEquals(buf.test(5, "XYZ".toCharArray()), true);
+        assertEquals(buf.test(5, "XYd".toCharArray()), false);
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(42);
+        StringBuilder expected = new StringBuilder("the quick brown fox");
+        GapInputBuffer buf = new GapInputBuffer(expected.toString().toCharArray());
+        for (int i = 0; i < 500; i++) {
+            int offset = random.nextInt(expected.length() + 1);
+            int removed = random.nextInt(Math.min(4, expected.length() - offset) + 1);
+            String inserted = "0123456789".substring(random.nextInt(10));
+            expected.replace(offset, offset + removed, inserted);
+            buf.replace(offset, removed, inserted);
+            assertEquals(buf.toString(), expected.toString());
+            int start = random.nextInt(expected.length() + 1);
+            assertEquals(buf.extract(start, expected.length()), expected.substring(start));
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.parboiled.common;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 import org.testng.annotations.Test;
 
 public class StringUtilsTest {
@@ -26,4 +27,43 @@ public class StringUtilsTest {
         assertEquals(StringUtils.escape("Hallo\r\nMeister!"), "Hallo\\nMeister!");
     }
 
+    @Test
+    public void testNumberParsing() {
+        for (String s : new String[] {"0", "-0", "+7", "42", "-2147483648", "2147483647", "007"}) {
+            assertEquals(StringUtils.parseInt(new StringBuilder(s)), Integer.parseInt(s), s);
+        }
+        for (String s : new String[] {"-9223372036854775808", "9223372036854775807", "1234567890123"}) {
+            assertEquals(StringUtils.parseLong(new StringBuilder(s)), Long.parseLong(s), s);
+        }
+        for (String s : new String[] {"0", "-0", "1.", ".5", "3.14159", "-0.1", "123456789012345", "0.3",
+                "1.0000000000000000000001", "1234567890.12345678", "1e10", "-2.5E-3", "Infinity", " 1.5 "}) {
+            assertEquals(StringUtils.parseDouble(new StringBuilder(s)), Double.parseDouble(s), s);
+        }
+        assertEquals(1 / StringUtils.parseDouble("-0"), Double.NEGATIVE_INFINITY);
+
+        for (String s : new String[] {"", "-", "+", "1a", "2147483648", "-2147483649", " 1"}) {
+            try {
+                StringUtils.parseInt(new StringBuilder(s));
+                fail(s);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+        for (String s : new String[] {"", ".", "-", "1.2.3", "abc"}) {
+            try {
+                StringUtils.parseDouble(new StringBuilder(s));
+                fail(s);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testHashCode() {
+        for (String s : new String[] {"", "a", "parboiled", "Hallo\r\nMeister!"}) {
+            assertEquals(StringUtils.hashCode(new StringBuilder(s)), s.hashCode());
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.support;
+
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testInterning() {
+        InputBuffer buffer = new DefaultInputBuffer("foo bar foo baz bar".toCharArray());
+        SymbolTable symbols = new SymbolTable();
+
+        String foo = symbols.intern(buffer, 0, 3);
+        String bar = symbols.intern(buffer, 4, 7);
+        assertEquals(foo, "foo");
+        assertEquals(bar, "bar");
+        assertSame(symbols.intern(buffer, 8, 11), foo);
+        assertSame(symbols.intern(buffer, 16, 19), bar);
+        assertEquals(symbols.intern(buffer, 12, 15), "baz");
+        assertSame(symbols.intern(new StringBuilder("foo")), foo);
+        assertSame(symbols.intern(buffer, 3, 3), symbols.intern(""));
+        assertEquals(symbols.size(), 4);
+
+        symbols.clear();
+        assertEquals(symbols.size(), 0);
+        assertNotSame(symbols.intern(buffer, 8, 11), foo);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        SymbolTable symbols = new SymbolTable(100, 4);
+        assertEquals(symbols.getCapacity(), 128);
+        assertEquals(new SymbolTable(1, 4).getCapacity(), 1);
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(symbols.intern(Integer.toString(i)), Integer.toString(i));
+        }
+        assertEquals(symbols.size(), 128);
+
+        // symbols longer than the maximum length are not stored
+        InputBuffer buffer = new DefaultInputBuffer("abcde".toCharArray());
+        String symbol = symbols.intern(buffer, 0, 5);
+        assertEquals(symbol, "abcde");
+        assertNotSame(symbols.intern(buffer, 0, 5), symbol);
+    }
+}
@@ -16,9 +16,11 @@
 
 package org.parboiled;
 
+import org.parboiled.common.StringUtils;
 import org.parboiled.support.Checks;
 import org.parboiled.support.IndexRange;
 import org.parboiled.support.Position;
+import org.parboiled.support.SymbolTable;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
 
@@ -30,24 +32,30 @@ import static org.parboiled.common.Preconditions.checkArgNotNull;
 @SuppressWarnings( {"UnusedDeclaration"})
 public abstract class BaseActions<V> implements ContextAware<V> {
 
-    private Context<V> context;
+    // the context is kept per thread, so that a parser instance can be used by several threads at the same time
+    private final ThreadLocal<Context<V>> context = new ThreadLocal<Context<V>>();
+    private volatile SymbolTable symbolTable; // lazily created
 
     /**
      * The current context for use with action methods. Updated immediately before action calls.
      *
-     * @return the current context
+     * @return the current context of the calling thread
      */
     public Context<V> getContext() {
-        return context;
+        return context.get();
     }
 
     /**
      * ContextAware interface implementation.
      *
-     * @param context the context
+     * @param context the context, or null for releasing the context of the calling thread
      */
     public void setContext(Context<V> context) {
-        this.context = checkArgNotNull(context, "context");
+        if (context != null) {
+            this.context.set(context);
+        } else {
+            this.context.remove();
+        }
     }
 
     /**
@@ -56,8 +64,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the current index
      */
     public int currentIndex() {
-        check();
-        return context.getCurrentIndex();
+        return check().getCurrentIndex();
     }
 
     /**
@@ -68,10 +75,119 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the input text matched by the immediately preceding subrule
      */
     public String match() {
-        check();
-        return context.getMatch();
+        return check().getMatch();
     }
     
+    /**
+     * <p>Returns a view onto the input text matched by the rule immediately preceding the action expression that is
+     * currently being evaluated, without copying it into a new String. This call can only be used in actions that
+     * are part of a Sequence rule and are not at first position in this Sequence.</p>
+     * <p>The returned view is reused and therefore only valid until the next matchView() call.</p>
+     *
+     * @return a view onto the input text matched by the immediately preceding subrule
+     */
+    public CharSequence matchView() {
+        return check().getMatchView();
+    }
+
+    /**
+     * Parses the input text matched by the rule immediately preceding the action expression that is currently
+     * being evaluated as a decimal integer, without creating a String instance.
+     * Equivalent to Integer.parseInt(match()).
+     *
+     * @return the integer value of the matched input text
+     * @throws NumberFormatException if the matched input text is not a parsable integer
+     */
+    public int matchAsInt() {
+        return StringUtils.parseInt(check().getMatchView());
+    }
+
+    /**
+     * Parses the input text matched by the rule immediately preceding the action expression that is currently
+     * being evaluated as a decimal long, without creating a String instance.
+     * Equivalent to Long.parseLong(match()).
+     *
+     * @return the long value of the matched input text
+     * @throws NumberFormatException if the matched input text is not a parsable long
+     */
+    public long matchAsLong() {
+        return StringUtils.parseLong(check().getMatchView());
+    }
+
+    /**
+     * Parses the input text matched by the rule immediately preceding the action expression that is currently
+     * being evaluated as a double. Plain decimal numbers are parsed without creating a String instance.
+     * Equivalent to Double.parseDouble(match()).
+     *
+     * @return the double value of the matched input text
+     * @throws NumberFormatException if the matched input text is not a parsable double
+     */
+    public double matchAsDouble() {
+        return StringUtils.parseDouble(check().getMatchView());
+    }
+
+    /**
+     * Determines whether the input text matched by the rule immediately preceding the action expression that is
+     * currently being evaluated equals the given string, without creating a String instance.
+     * Equivalent to match().equals(string).
+     *
+     * @param string the string to compare to
+     * @return true if the matched input text equals the given string
+     */
+    public boolean matchEquals(String string) {
+        return string != null && string.contentEquals(check().getMatchView());
+    }
+
+    /**
+     * Computes the hash code of the input text matched by the rule immediately preceding the action expression that
+     * is currently being evaluated, without creating a String instance.
+     * Equivalent to match().hashCode().
+     *
+     * @return the String hash code of the matched input text
+     */
+    public int matchHash() {
+        return StringUtils.hashCode(check().getMatchView());
+    }
+
+    /**
+     * Returns the input text matched by the rule immediately preceding the action expression that is currently
+     * being evaluated as the canonical String instance of the {@link #getSymbolTable() symbol table}.
+     * If the matched text is already contained in the symbol table no new String is created.
+     * This call can only be used in actions that are part of a Sequence rule and are not at first position in this
+     * Sequence.
+     *
+     * @return the input text matched by the immediately preceding subrule
+     */
+    public String matchInterned() {
+        return getSymbolTable().intern(check().getMatchView());
+    }
+
+    /**
+     * Returns the symbol table used by {@link #matchInterned()}. If none has been set a new one with default
+     * settings is created on first access.
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        SymbolTable symbolTable = this.symbolTable;
+        if (symbolTable == null) {
+            synchronized (this) {
+                if (this.symbolTable == null) this.symbolTable = new SymbolTable();
+                symbolTable = this.symbolTable;
+            }
+        }
+        return symbolTable;
+    }
+
+    /**
+     * Sets the symbol table used by {@link #matchInterned()}, e.g. to share one table across several parsers.
+     *
+     * @param symbolTable the symbol table
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = checkArgNotNull(symbolTable, "symbolTable");
+    }
+
     /**
      * Creates a new {@link IndexRange} instance covering the input text matched by the rule immediately preceding the
      * action expression that is currently being evaluated. This call can only be used in actions that are part of a
@@ -80,8 +196,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return a new IndexRange instance
      */
     public IndexRange matchRange() {
-        check();
-        return context.getMatchRange();
+        return check().getMatchRange();
     }
 
     /**
@@ -94,8 +209,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the input text matched by the immediately preceding subrule or the default string
      */
     public String matchOrDefault(String defaultString) {
-        check();
-        String match = context.getMatch();
+        String match = check().getMatch();
         return match.length() == 0 ? defaultString : match;
     }
 
@@ -110,8 +224,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *         if the previous rule matched nothing
      */
     public char matchedChar() {
-        check();
-        return context.getFirstMatchChar();
+        return check().getFirstMatchChar();
     }
 
     /**
@@ -122,8 +235,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the start index of the context immediately preceding current action
      */
     public int matchStart() {
-        check();
-        return context.getMatchStartIndex();
+        return check().getMatchStartIndex();
     }
 
     /**
@@ -135,8 +247,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *         immediately following the last matched character
      */
     public int matchEnd() {
-        check();
-        return context.getMatchEndIndex();
+        return check().getMatchEndIndex();
     }
     
     /**
@@ -147,8 +258,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the number of characters matched
      */
     public int matchLength() {
-        check();
-        return context.getMatchLength();
+        return check().getMatchLength();
     }
 
     /**
@@ -158,8 +268,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the current position in the underlying inputbuffer
      */
     public Position position() {
-        check();
-        return context.getPosition();
+        return check().getPosition();
     }
 
     /**
@@ -169,8 +278,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return true
      */
     public boolean push(V value) {
-        check();
-        context.getValueStack().push(value);
+        check().getValueStack().push(value);
         return true;
     }
 
@@ -183,8 +291,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack does not contain enough elements to perform this operation
      */
     public boolean push(int down, V value) {
-        check();
-        context.getValueStack().push(down, value);
+        check().getValueStack().push(down, value);
         return true;
     }
 
@@ -196,8 +303,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return true
      */
     public boolean pushAll(V firstValue, V... moreValues) {
-        check();
-        context.getValueStack().pushAll(firstValue, moreValues);
+        check().getValueStack().pushAll(firstValue, moreValues);
         return true;
     }
 
@@ -208,8 +314,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack is empty
      */
     public V pop() {
-        check();
-        return context.getValueStack().pop();
+        return check().getValueStack().pop();
     }
 
     /**
@@ -220,8 +325,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack does not contain enough elements to perform this operation
      */
     public V pop(int down) {
-        check();
-        return context.getValueStack().pop(down);
+        return check().getValueStack().pop(down);
     }
 
     /**
@@ -231,8 +335,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack is empty
      */
     public boolean drop() {
-        check();
-        context.getValueStack().pop();
+        check().getValueStack().pop();
         return true;
     }
 
@@ -244,8 +347,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack does not contain enough elements to perform this operation
      */
     public boolean drop(int down) {
-        check();
-        context.getValueStack().pop(down);
+        check().getValueStack().pop(down);
         return true;
     }
 
@@ -256,8 +358,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack is empty
      */
     public V peek() {
-        check();
-        return context.getValueStack().peek();
+        return check().getValueStack().peek();
     }
 
     /**
@@ -268,8 +369,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack does not contain enough elements to perform this operation
      */
     public V peek(int down) {
-        check();
-        return context.getValueStack().peek(down);
+        return check().getValueStack().peek(down);
     }
 
     /**
@@ -280,8 +380,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack is empty
      */
     public boolean poke(V value) {
-        check();
-        context.getValueStack().poke(value);
+        check().getValueStack().poke(value);
         return true;
     }
 
@@ -294,8 +393,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack does not contain enough elements to perform this operation
      */
     public boolean poke(int down, V value) {
-        check();
-        context.getValueStack().poke(down, value);
+        check().getValueStack().poke(down, value);
         return true;
     }
 
@@ -306,8 +404,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @throws IllegalArgumentException if the stack is empty
      */
     public boolean dup() {
-        check();
-        context.getValueStack().dup();
+        check().getValueStack().dup();
         return true;
     }
 
@@ -319,8 +416,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *          if the stack does not contain at least two elements
      */
     public boolean swap() {
-        check();
-        context.getValueStack().swap();
+        check().getValueStack().swap();
         return true;
     }
 
@@ -332,8 +428,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *          if the stack does not contain at least 3 elements
      */
     public boolean swap3() {
-        check();
-        context.getValueStack().swap3();
+        check().getValueStack().swap3();
         return true;
     }
 
@@ -345,8 +440,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *          if the stack does not contain at least 4 elements
      */
     public boolean swap4() {
-        check();
-        context.getValueStack().swap4();
+        check().getValueStack().swap4();
         return true;
     }
 
@@ -358,8 +452,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *          if the stack does not contain at least 5 elements
      */
     public boolean swap5() {
-        check();
-        context.getValueStack().swap5();
+        check().getValueStack().swap5();
         return true;
     }
 
@@ -371,8 +464,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      *          if the stack does not contain at least 6 elements
      */
     public boolean swap6() {
-        check();
-        context.getValueStack().swap6();
+        check().getValueStack().swap6();
         return true;
     }
 
@@ -382,8 +474,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return the next input character about to be matched
      */
     public Character currentChar() {
-        check();
-        return context.getCurrentChar();
+        return check().getCurrentChar();
     }
 
     /**
@@ -399,8 +490,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return true if in a predicate
      */
     public boolean inPredicate() {
-        check();
-        return context.inPredicate();
+        return check().inPredicate();
     }
 
     /**
@@ -410,8 +500,7 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return true or false
      */
     public boolean nodeSuppressed() {
-        check();
-        return context.isNodeSuppressed();
+        return check().isNodeSuppressed();
     }
 
     /**
@@ -427,13 +516,14 @@ public abstract class BaseActions<V> implements ContextAware<V> {
      * @return true if either the current rule or a sub rule has recorded a parse error
      */
     public boolean hasError() {
-        check();
-        return context.hasError();
+        return check().hasError();
     }
 
-    private void check() {
+    private Context<V> check() {
+        Context<V> context = this.context.get();
         Checks.ensure(context != null && context.getMatcher() != null,
                 "Illegal rule definition: Unwrapped action expression!");
+        return context;
     }
 
 }
@@ -80,6 +80,26 @@ public abstract class BaseParser<V> extends BaseActions<V> {
                 "Illegal parser instance, you have to use Parboiled.createParser(...) to create your parser instance!");
     }
 
+    /**
+     * Creates a new instance of this parsers class using the no-arg constructor, which shares all rules of this
+     * instance. Calling a rule method on the new instance returns the rule of this instance rather than building the
+     * rule graph anew, which makes this the cheapest way to get additional parser instances. If no no-arg
+     * constructor exists this method will fail with a java.lang.NoSuchMethodError.
+     * <p>All rules of the new instance, including the ones created after this call (e.g. by calling a parameterized
+     * rule method with new arguments), are created by and belong to this instance, so the parser fields accessed by
+     * actions are always the ones of this instance, never the ones of the new instance. Since the action context and
+     * the values of {@link org.parboiled.support.Var}s are kept per thread the shared rules can be used by several
+     * threads at the same time. Rules that do not exist yet are created by this instance however, which must not
+     * happen concurrently, so all rules needed by concurrent parsing runs should be created up front.</p>
+     *
+     * @param <P> the parser class
+     * @return a new parser instance sharing the rules of this instance
+     */
+    public <P extends BaseParser<V>> P newInstanceSharingRules() {
+        throw new UnsupportedOperationException(
+                "Illegal parser instance, you have to use Parboiled.createParser(...) to create your parser instance!");
+    }
+
     /**
      * Explicitly creates a rule matching the given character. Normally you can just specify the character literal
      * directly in you rule description. However, if you don't want to go through {@link #fromCharLiteral(char)},
@@ -17,6 +17,7 @@
 package org.parboiled;
 
 import static org.parboiled.common.Preconditions.*;
+import org.parboiled.transform.ParserGenerator;
 import org.parboiled.transform.ParserTransformer;
 
 import java.lang.reflect.Constructor;
@@ -41,7 +42,9 @@ public class Parboiled {
      * <p>Performing the rule analysis and extending the parser class is an expensive process (time-wise) and can
      * take up to several hundred milliseconds for large grammars. However, this cost is only incurred once per
      * parser class and class loader. Subsequent calls to this method are therefore fast once the initial extension
-     * has been performed.</p>
+     * has been performed. The extension can also be performed at build time with the
+     * {@link org.parboiled.transform.ParserGenerator}, in which case this method simply loads the generated
+     * classes.</p>
      *
      * @param parserClass     the type of the parser to create
      * @param constructorArgs optional arguments to the parser class constructor
@@ -51,11 +54,45 @@ public class Parboiled {
     public static <P extends BaseParser<V>, V> P createParser(Class<P> parserClass, Object... constructorArgs) {
         checkArgNotNull(parserClass, "parserClass");
         try {
-            Class<?> extendedClass = ParserTransformer.transformParser(parserClass);
+            Class<?> extendedClass = extendedClasses.get(parserClass);
             Constructor constructor = findConstructor(extendedClass, constructorArgs);
             return (P) constructor.newInstance(constructorArgs);
         } catch (Exception e) {
-            throw new RuntimeException("Error creating extended parser class: " + e.getMessage(), e);
+            Throwable cause = e instanceof ExtensionFailure ? e.getCause() : e;
+            throw new RuntimeException("Error creating extended parser class: " + cause.getMessage(), cause);
+        }
+    }
+
+    // the extended parser classes, associated with the parser classes without keeping these from being unloaded,
+    // concurrent lookups of the same parser class are resolved to a single extension by the ParserTransformer
+    private static final ClassValue<Class<?>> extendedClasses = new ClassValue<Class<?>>() {
+        @Override
+        protected Class<?> computeValue(Class<?> parserClass) {
+            Class<?> extendedClass = findExtendedParserClass(parserClass);
+            if (extendedClass != null) return extendedClass;
+            try {
+                return ParserTransformer.transformParser(parserClass);
+            } catch (Exception e) {
+                throw new ExtensionFailure(e);
+            }
+        }
+    };
+
+    private static class ExtensionFailure extends RuntimeException {
+        ExtensionFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    // finds the extension of the given parser class generated at build time, without extending the parser class,
+    // if it was generated from the current code of the parser class, stale extensions are not loaded at all so that
+    // the ParserTransformer can define an up-to-date extension in their place
+    private static Class<?> findExtendedParserClass(Class<?> parserClass) {
+        if (!ParserGenerator.isExtensionCurrent(parserClass)) return null;
+        try {
+            return Class.forName(parserClass.getName() + "$$parboiled", false, parserClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
         }
     }
 
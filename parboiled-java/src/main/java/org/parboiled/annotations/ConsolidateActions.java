@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Annotation that can be used on the parser class itself.
+ * Instructs parboiled to not generate a separate class for every action expression and every Var initializer of
+ * the parser but to consolidate them into one dispatch class for the actions and one for the Var initializers.
+ * Every action then becomes a small record of the dispatch class holding the index of the action expression and
+ * its captured values. This reduces the number of classes loaded for large grammars and makes the action call in the
+ * {@link org.parboiled.matchers.ActionMatcher} monomorphic, at the cost of some boxing for captured values of
+ * primitive types.</p>
+ * <p>Note: Unlike with separate action classes, the dispatch classes are never shared among parser classes.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface ConsolidateActions {
+}
@@ -20,6 +20,9 @@ import static org.parboiled.common.Preconditions.*;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
+
+import java.util.List;
+
 import static org.objectweb.asm.Opcodes.*;
 
 class ActionClassGenerator extends GroupClassGenerator {
@@ -47,12 +50,11 @@ class ActionClassGenerator extends GroupClassGenerator {
     protected void generateMethod(InstructionGroup group, ClassWriter cw) {
         MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "run", '(' + Types.CONTEXT_DESC + ")Z", null, null);
 
-        insertSetContextCalls(group, 1);
+        List<Integer> contextAwareVars = insertSetContextCalls(classNode, group, 1);
         convertXLoads(group);
 
-        group.getInstructions().accept(mv);
+        generateActionCode(mv, group, contextAwareVars);
 
-        mv.visitInsn(IRETURN);
         mv.visitMaxs(0, 0); // trigger automatic computing
         mv.visitEnd();
     }
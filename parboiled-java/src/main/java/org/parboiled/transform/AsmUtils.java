@@ -39,8 +39,8 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
 
@@ -61,9 +61,9 @@ class AsmUtils {
         return parserClassName + "$$parboiled";
     }
 
-    private static final Map<String, Class<?>> classForDesc = new HashMap<String, Class<?>>();
+    private static final ConcurrentMap<String, Class<?>> classForDesc = new ConcurrentHashMap<String, Class<?>>();
 
-    public static synchronized Class<?> getClassForInternalName(String classDesc) {
+    public static Class<?> getClassForInternalName(String classDesc) {
         checkArgNotNull(classDesc, "classDesc");
         Class<?> clazz = classForDesc.get(classDesc);
         if (clazz == null) {
@@ -83,12 +83,13 @@ class AsmUtils {
                     }
                 }
             }
-            classForDesc.put(classDesc, clazz);
+            // concurrent lookups of the same class yield the same instance, so we don't care which one wins
+            classForDesc.putIfAbsent(classDesc, clazz);
         }
         return clazz;
     }
 
-    public static synchronized void clearClassCache() {
+    public static void clearClassCache() {
         classForDesc.clear();
     }
 
@@ -203,16 +204,11 @@ class AsmUtils {
         checkArgNotNull(className, "className");
         checkArgNotNull(classLoader, "classLoader");
         try {
-            Class<?> classLoaderBaseClass = Class.forName("java.lang.ClassLoader");
-            Method findLoadedClassMethod = classLoaderBaseClass.getDeclaredMethod("findLoadedClass", String.class);
-
-            // protected method invocation
-            findLoadedClassMethod.setAccessible(true);
-            try {
-                return (Class<?>) findLoadedClassMethod.invoke(classLoader, className);
-            } finally {
-                findLoadedClassMethod.setAccessible(false);
+            Method method = findLoadedClassMethod;
+            if (method == null) {
+                findLoadedClassMethod = method = getClassLoaderMethod("findLoadedClass", String.class);
             }
+            return (Class<?>) method.invoke(classLoader, className);
         } catch (Exception e) {
             throw new RuntimeException("Could not determine whether class '" + className +
                     "' has already been loaded", e);
@@ -236,22 +232,28 @@ class AsmUtils {
         checkArgNotNull(code, "code");
         checkArgNotNull(classLoader, "classLoader");
         try {
-            Class<?> classLoaderBaseClass = Class.forName("java.lang.ClassLoader");
-            Method defineClassMethod = classLoaderBaseClass.getDeclaredMethod("defineClass",
-                    String.class, byte[].class, int.class, int.class);
-
-            // protected method invocation
-            defineClassMethod.setAccessible(true);
-            try {
-                return (Class<?>) defineClassMethod.invoke(classLoader, className, code, 0, code.length);
-            } finally {
-                defineClassMethod.setAccessible(false);
+            Method method = defineClassMethod;
+            if (method == null) {
+                defineClassMethod = method = getClassLoaderMethod("defineClass",
+                        String.class, byte[].class, int.class, int.class);
             }
+            return (Class<?>) method.invoke(classLoader, className, code, 0, code.length);
         } catch (Exception e) {
             throw new RuntimeException("Could not load class '" + className + '\'', e);
         }
     }
 
+    // the protected ClassLoader methods are resolved and made accessible only once,
+    // a concurrent resolution yields an equivalent instance, so the race is benign
+    private static volatile Method findLoadedClassMethod;
+    private static volatile Method defineClassMethod;
+
+    private static Method getClassLoaderMethod(String name, Class<?>... parameterTypes) throws Exception {
+        Method method = ClassLoader.class.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true); // protected method invocation
+        return method;
+    }
+
     public static InsnList createArgumentLoaders(String methodDescriptor) {
         checkArgNotNull(methodDescriptor, "methodDescriptor");
         InsnList instructions = new InsnList();
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.common.FileUtils;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * An on-disk cache of the class code generated for parser classes, shared by all JVMs using the same directory.
+ * An entry holds the extended parser class and all its action and var init classes and is keyed by a digest over
+ * the class files of the parser class and all its superclasses as well as the parboiled version.
+ * Entries are written to a temporary file first and then atomically moved into place, so readers never see
+ * partially written entries.
+ */
+class BytecodeCache {
+    private static final int MAGIC = 0x50424243; // "PBBC"
+    private static final int FORMAT_VERSION = 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+
+    BytecodeCache(File directory) {
+        this.directory = checkArgNotNull(directory, "directory");
+    }
+
+    /**
+     * Computes the cache key for the given parser class.
+     *
+     * @param parserClass the parser class
+     * @return the key or null, if the class file of the parser class or one of its superclasses is not available
+     */
+    String createKey(Class<?> parserClass) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(versionString().getBytes("UTF-8"));
+            for (Class<?> c = parserClass; c != null && c != Object.class; c = c.getSuperclass()) {
+                byte[] classCode = readClassFile(c);
+                if (classCode == null) return null;
+                digest.update(c.getName().getBytes("UTF-8"));
+                digest.update(classCode);
+            }
+            byte[] hash = digest.digest();
+            char[] chars = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not compute the cache key for " + parserClass, e);
+        }
+    }
+
+    /**
+     * Reads the entry with the given key.
+     *
+     * @param key the key
+     * @return the class codes by internal class name, the extended parser class first, or null if there is no
+     *         valid entry for the key
+     */
+    Map<String, byte[]> read(String key) {
+        File file = getFile(key);
+        if (!file.exists()) return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+            int count = in.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] code = new byte[in.readInt()];
+                in.readFully(code);
+                classes.put(name, code);
+            }
+            return classes;
+        } catch (IOException e) {
+            // a corrupt entry (e.g. truncated by a full disk) is simply regenerated
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes the entry with the given key, replacing an existing one.
+     * Failures are ignored since the cache is only an optimization.
+     *
+     * @param key     the key
+     * @param classes the class codes by internal class name, the extended parser class first
+     * @return true if the entry was written
+     */
+    boolean write(String key, Map<String, byte[]> classes) {
+        File tempFile = null;
+        DataOutputStream out = null;
+        try {
+            // the directory might be created concurrently by another JVM
+            if (!directory.mkdirs() && !directory.isDirectory()) return false;
+            tempFile = File.createTempFile(key, ".tmp", directory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.close();
+            out = null;
+            try {
+                Files.move(tempFile.toPath(), getFile(key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), getFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            close(out);
+            if (tempFile != null) tempFile.delete();
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ".classes");
+    }
+
+    private static String versionString() {
+        String version = BytecodeCache.class.getPackage() != null ?
+                BytecodeCache.class.getPackage().getImplementationVersion() : null;
+        return "parboiled-" + (version != null ? version : "dev") + '/' + FORMAT_VERSION;
+    }
+
+    private static byte[] readClassFile(Class<?> clazz) {
+        String classFilename = clazz.getName().replace('.', '/') + ".class";
+        ClassLoader classLoader = clazz.getClassLoader();
+        InputStream inputStream = classLoader != null ? classLoader.getResourceAsStream(classFilename) :
+                ClassLoader.getSystemResourceAsStream(classFilename);
+        return inputStream != null ? FileUtils.readAllBytes(inputStream) : null;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import static org.objectweb.asm.Opcodes.*;
 import static org.parboiled.common.Preconditions.checkArgNotNull;
 import static org.parboiled.common.Preconditions.checkState;
+import static org.parboiled.transform.AsmUtils.getClassForType;
 import static org.parboiled.common.Utils.toObjectArray;
 
 /**
@@ -39,11 +40,16 @@ import static org.parboiled.common.Utils.toObjectArray;
  */
 class CachingGenerator implements RuleMethodProcessor {
 
+    static final String CACHE_FIELD_PREFIX = "cache$";
+    static final String HASHMAP = "java/util/HashMap";
+
     private ParserClassNode classNode;
     private RuleMethod method;
     private InsnList instructions;
     private AbstractInsnNode current;
     private String cacheFieldName;
+    private String cacheType; // the internal name of the cache class, null if the cache is a simple Rule field
+    private Type keyType; // the key type of the specialized caches, null for HashMap caches
 
     public boolean appliesTo(ParserClassNode classNode, RuleMethod method) {
         checkArgNotNull(classNode, "classNode");
@@ -89,11 +95,12 @@ class CachingGenerator implements RuleMethodProcessor {
     @SuppressWarnings( {"unchecked"})
     private void generateGetFromCache() {
         Type[] paramTypes = Type.getArgumentTypes(method.desc);
-        cacheFieldName = findUnusedCacheFieldName();
 
-        // if we have no parameters we use a simple Rule field as cache, otherwise a HashMap
-        String cacheFieldDesc = paramTypes.length == 0 ? Types.RULE_DESC : "Ljava/util/HashMap;";
-        classNode.fields.add(new FieldNode(ACC_PRIVATE, cacheFieldName, cacheFieldDesc, null, null));
+        // if we have no parameters we use a simple Rule field as cache, otherwise a HashMap or a specialized cache
+        selectCacheType(paramTypes);
+        String cacheFieldDesc = cacheType == null ? Types.RULE_DESC : 'L' + cacheType + ';';
+        cacheFieldName = method.getCacheFieldName();
+        checkState(cacheFieldName != null); // declared by ClassNodeInitializer
 
         // stack:
         insert(new VarInsnNode(ALOAD, 0));
@@ -103,11 +110,11 @@ class CachingGenerator implements RuleMethodProcessor {
 
         if (paramTypes.length == 0) return; // if we have no parameters we are done
 
-        // generate: if (<cache> == null) <cache> = new HashMap<Object, Rule>();
+        // generate: if (<cache> == null) <cache> = new <CacheType>();
 
-        // stack: <hashMap>
+        // stack: <cache>
         insert(new InsnNode(DUP));
-        // stack: <hashMap> :: <hashMap>
+        // stack: <cache> :: <cache>
         LabelNode alreadyInitialized = new LabelNode();
         insert(new JumpInsnNode(IFNONNULL, alreadyInitialized));
         // stack: <null>
@@ -115,18 +122,34 @@ class CachingGenerator implements RuleMethodProcessor {
         // stack:
         insert(new VarInsnNode(ALOAD, 0));
         // stack: <this>
-        insert(new TypeInsnNode(NEW, "java/util/HashMap"));
-        // stack: <this> :: <hashMap>
+        insert(new TypeInsnNode(NEW, cacheType));
+        // stack: <this> :: <cache>
         insert(new InsnNode(DUP_X1));
-        // stack: <hashMap> :: <this> :: <hashMap>
+        // stack: <cache> :: <this> :: <cache>
         insert(new InsnNode(DUP));
-        // stack: <hashMap> :: <this> :: <hashMap> :: <hashMap>
-        insert(new MethodInsnNode(INVOKESPECIAL, "java/util/HashMap", "<init>", "()V", false));
-        // stack: <hashMap> :: <this> :: <hashMap>
+        // stack: <cache> :: <this> :: <cache> :: <cache>
+        insert(new MethodInsnNode(INVOKESPECIAL, cacheType, "<init>", "()V", false));
+        // stack: <cache> :: <this> :: <cache>
         insert(new FieldInsnNode(PUTFIELD, classNode.name, cacheFieldName, cacheFieldDesc));
-        // stack: <hashMap>
+        // stack: <cache>
         insert(alreadyInitialized);
-        // stack: <hashMap>
+        // stack: <cache>
+
+        if (keyType != null) {
+            // generate: <cache>.get(<key>)
+
+            // stack: <cache>
+            generatePushCacheKey(paramTypes[0]);
+            // stack: <cache> :: <key>
+            insert(new InsnNode(keyType.getSize() == 2 ? DUP2 : DUP));
+            // stack: <cache> :: <key> :: <key>
+            insert(new VarInsnNode(keyType.getOpcode(ISTORE), method.maxLocals));
+            // stack: <cache> :: <key>
+            insert(new MethodInsnNode(INVOKEVIRTUAL, cacheType, "get",
+                    "(" + keyType.getDescriptor() + ")" + Types.RULE_DESC, false));
+            // stack: <rule>
+            return;
+        }
 
         // if we have more than one parameter or the parameter is an array we have to wrap with our Arguments class
         // since we need to unroll all inner arrays and apply custom hashCode(...) and equals(...) implementations
@@ -156,23 +179,84 @@ class CachingGenerator implements RuleMethodProcessor {
         // stack: <hashMap> :: <mapKey> :: <mapKey>
         insert(new VarInsnNode(ASTORE, method.maxLocals));
         // stack: <hashMap> :: <mapKey>
-        insert(new MethodInsnNode(INVOKEVIRTUAL, "java/util/HashMap", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", false));
+        insert(new MethodInsnNode(INVOKEVIRTUAL, HASHMAP, "get", "(Ljava/lang/Object;)Ljava/lang/Object;", false));
         // stack: <object>
         insert(new TypeInsnNode(CHECKCAST, Types.RULE.getInternalName()));
         // stack: <rule>
     }
 
-    @SuppressWarnings( {"unchecked"})
-    private String findUnusedCacheFieldName() {
-        String name = "cache$" + method.name;
-        int i = 2;
-        while (hasField(name)) {
-            name = "cache$" + method.name + i++;
+    // parameterized methods with a single char, other primitive or enum parameter get a specialized cache
+    // avoiding the boxing of the parameter, all others use a HashMap
+    private void selectCacheType(Type[] paramTypes) {
+        cacheType = paramTypes.length == 0 ? null : HASHMAP;
+        keyType = null;
+        if (paramTypes.length != 1) return;
+        switch (paramTypes[0].getSort()) {
+            case Type.CHAR:
+                cacheType = Type.getInternalName(CharRuleCache.class);
+                keyType = Type.CHAR_TYPE;
+                return;
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+            case Type.LONG:
+            case Type.FLOAT:
+            case Type.DOUBLE:
+                cacheType = Type.getInternalName(LongRuleCache.class);
+                keyType = Type.LONG_TYPE;
+                return;
+            case Type.OBJECT:
+                if (getClassForType(paramTypes[0]).isEnum()) {
+                    cacheType = Type.getInternalName(IdentityRuleCache.class);
+                    keyType = Type.getType(Object.class);
+                }
+        }
+    }
+
+    // pushes the key of the specialized cache for the (single) parameter of the given type
+    private void generatePushCacheKey(Type paramType) {
+        insert(new VarInsnNode(paramType.getOpcode(ILOAD), 1));
+        switch (paramType.getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+                insert(new InsnNode(I2L));
+                return;
+            case Type.FLOAT:
+                // floats and doubles are keyed by their bit patterns, like Float.equals(...) and Double.equals(...)
+                insert(new MethodInsnNode(INVOKESTATIC, "java/lang/Float", "floatToIntBits", "(F)I", false));
+                insert(new InsnNode(I2L));
+                return;
+            case Type.DOUBLE:
+                insert(new MethodInsnNode(INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J", false));
         }
-        return name;
     }
 
-    public boolean hasField(String fieldName) {
+    /**
+     * Declares the cache fields of all cached rule methods of the given class node. Since the rule methods are
+     * processed concurrently the fields are declared beforehand in the order of the rule methods, so that the field
+     * names and their order, and with them the generated class code, do not depend on the thread scheduling.
+     */
+    static void declareCacheFields(ParserClassNode classNode) {
+        for (RuleMethod method : classNode.getRuleMethods().values()) {
+            if (!method.hasCachedAnnotation() || method.hasDontExtend()) continue;
+            String name = CACHE_FIELD_PREFIX + method.name;
+            int i = 2;
+            while (hasField(classNode, name)) {
+                name = CACHE_FIELD_PREFIX + method.name + i++;
+            }
+            CachingGenerator generator = new CachingGenerator();
+            generator.selectCacheType(Type.getArgumentTypes(method.desc));
+            String desc = generator.cacheType == null ? Types.RULE_DESC : 'L' + generator.cacheType + ';';
+            classNode.fields.add(new FieldNode(ACC_PRIVATE, name, desc, null, null));
+            method.setCacheFieldName(name);
+        }
+    }
+
+    @SuppressWarnings( {"unchecked"})
+    private static boolean hasField(ParserClassNode classNode, String fieldName) {
         for (Object field : classNode.fields) {
             if (fieldName.equals(((FieldNode) field).name)) return true;
         }
@@ -279,13 +363,31 @@ class CachingGenerator implements RuleMethodProcessor {
     }
 
     private void generateStoreInCache() {
-        Type[] paramTypes = Type.getArgumentTypes(method.desc);
-
         // stack: <rule>
         insert(new InsnNode(DUP));
         // stack: <rule> :: <rule>
 
-        if (paramTypes.length == 0) {
+        if (keyType != null) {
+            // the rule is stored behind the (possibly two slot) key
+            int ruleVar = method.maxLocals + 2;
+            // stack: <rule> :: <rule>
+            insert(new VarInsnNode(ASTORE, ruleVar));
+            // stack: <rule>
+            insert(new VarInsnNode(ALOAD, 0));
+            // stack: <rule> :: <this>
+            insert(new FieldInsnNode(GETFIELD, classNode.name, cacheFieldName, 'L' + cacheType + ';'));
+            // stack: <rule> :: <cache>
+            insert(new VarInsnNode(keyType.getOpcode(ILOAD), method.maxLocals));
+            // stack: <rule> :: <cache> :: <key>
+            insert(new VarInsnNode(ALOAD, ruleVar));
+            // stack: <rule> :: <cache> :: <key> :: <rule>
+            insert(new MethodInsnNode(INVOKEVIRTUAL, cacheType, "put",
+                    "(" + keyType.getDescriptor() + Types.RULE_DESC + ")V", false));
+            // stack: <rule>
+            return;
+        }
+
+        if (cacheType == null) {
             // stack: <rule> :: <rule>
             insert(new VarInsnNode(ALOAD, 0));
             // stack: <rule> :: <rule> :: <this>
@@ -303,13 +405,13 @@ class CachingGenerator implements RuleMethodProcessor {
         // stack: <rule> :: <mapKey> :: <rule>
         insert(new VarInsnNode(ALOAD, 0));
         // stack: <rule> :: <mapKey> :: <rule> :: <this>
-        insert(new FieldInsnNode(GETFIELD, classNode.name, cacheFieldName, "Ljava/util/HashMap;"));
+        insert(new FieldInsnNode(GETFIELD, classNode.name, cacheFieldName, 'L' + HASHMAP + ';'));
         // stack: <rule> :: <mapKey> :: <rule> :: <hashMap>
         insert(new InsnNode(DUP_X2));
         // stack: <rule> :: <hashMap> :: <mapKey> :: <rule> :: <hashMap>
         insert(new InsnNode(POP));
         // stack: <rule> :: <hashMap> :: <mapKey> :: <rule>
-        insert(new MethodInsnNode(INVOKEVIRTUAL, "java/util/HashMap", "put",
+        insert(new MethodInsnNode(INVOKEVIRTUAL, HASHMAP, "put",
                 "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false));
         // stack: <rule> :: <null>
         insert(new InsnNode(POP));
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.parboiled.transform;
+
+import org.parboiled.Rule;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * The rule cache of {@link org.parboiled.annotations.Cached} rule methods with a single char parameter.
+ * The rules are held in arrays directly indexed by the char, which are allocated in pages of 256 entries on demand.
+ * Lookups are safe to perform concurrently with insertions.
+ */
+public final class CharRuleCache {
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Rule>> pages =
+            new AtomicReferenceArray<AtomicReferenceArray<Rule>>(256);
+
+    public Rule get(char c) {
+        AtomicReferenceArray<Rule> page = pages.get(c >>> 8);
+        return page != null ? page.get(c & 0xFF) : null;
+    }
+
+    public void put(char c, Rule rule) {
+        checkArgNotNull(rule, "rule");
+        AtomicReferenceArray<Rule> page = pages.get(c >>> 8);
+        if (page == null) {
+            pages.compareAndSet(c >>> 8, null, new AtomicReferenceArray<Rule>(256));
+            page = pages.get(c >>> 8);
+        }
+        page.set(c & 0xFF, rule);
+    }
+}
@@ -79,6 +79,8 @@ class ClassNodeInitializer extends ClassVisitor {
                 }
             }
         }
+
+        CachingGenerator.declareCacheFields(classNode);
     }
 
     @Override
@@ -115,6 +117,10 @@ class ClassNodeInitializer extends ClassVisitor {
             hasBuildParseTree = true;
             return null;
         }
+        if (Types.CONSOLIDATE_ACTIONS_DESC.equals(desc)) {
+            classNode.setActionsConsolidated();
+            return null;
+        }
 
         // only keep visible annotations on the parser class
         return visible && ownerClass == classNode.getParentClass() ? classNode.visitAnnotation(desc, true) : null;
@@ -26,6 +26,7 @@ import static org.parboiled.transform.AsmUtils.createArgumentLoaders;
 /**
  * Adds one constructor for each of the ParserClassNode.constructors,
  * which simply delegates to the respective super constructor.
+ * Also adds the newInstance() and newInstanceSharingRules() methods.
  */
 class ConstructorGenerator {
 
@@ -39,6 +40,7 @@ class ConstructorGenerator {
         }
 
         createNewInstanceMethod(classNode);
+        createNewInstanceSharingRulesMethod(classNode);
     }
 
     @SuppressWarnings({"unchecked"})
@@ -70,4 +72,40 @@ class ConstructorGenerator {
         classNode.methods.add(method);
     }
 
+    // like newInstance() but also makes the new instance delegate all rule method calls to the instance owning the
+    // rules of this instance (this instance itself, unless it was created by newInstanceSharingRules() as well),
+    // see RuleOwnerDelegationGenerator
+    @SuppressWarnings({"unchecked"})
+    private void createNewInstanceSharingRulesMethod(ParserClassNode classNode) {
+        String ownerDesc = 'L' + classNode.name + ';';
+        classNode.fields.add(new FieldNode(ACC_PRIVATE | ACC_SYNTHETIC,
+                RuleOwnerDelegationGenerator.RULES_OWNER_FIELD, ownerDesc, null, null));
+
+        MethodNode method = new MethodNode(ACC_PUBLIC, "newInstanceSharingRules",
+                "()L" + Types.BASE_PARSER.getInternalName() + ';', null, null);
+        InsnList instructions = method.instructions;
+        instructions.add(new TypeInsnNode(NEW, classNode.name));
+        instructions.add(new InsnNode(DUP));
+        instructions.add(new MethodInsnNode(INVOKESPECIAL, classNode.name, "<init>", "()V", classNode.isInterface()));
+        // stack: <parser>
+        instructions.add(new InsnNode(DUP));
+        instructions.add(new VarInsnNode(ALOAD, 0));
+        instructions.add(new FieldInsnNode(GETFIELD, classNode.name, RuleOwnerDelegationGenerator.RULES_OWNER_FIELD,
+                ownerDesc));
+        // stack: <parser> :: <parser> :: <owner>
+        instructions.add(new InsnNode(DUP));
+        LabelNode hasOwner = new LabelNode();
+        instructions.add(new JumpInsnNode(IFNONNULL, hasOwner));
+        instructions.add(new InsnNode(POP));
+        instructions.add(new VarInsnNode(ALOAD, 0));
+        instructions.add(hasOwner);
+        // stack: <parser> :: <parser> :: <owner>
+        instructions.add(new FieldInsnNode(PUTFIELD, classNode.name, RuleOwnerDelegationGenerator.RULES_OWNER_FIELD,
+                ownerDesc));
+        // stack: <parser>
+        instructions.add(new InsnNode(ARETURN));
+
+        classNode.methods.add(method);
+    }
+
 }
\ No newline at end of file
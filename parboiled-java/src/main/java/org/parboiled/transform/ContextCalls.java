@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseActions;
+import org.parboiled.Context;
+import org.parboiled.common.StringUtils;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+/**
+ * Static counterparts of the {@link BaseActions} methods taking the current context as an explicit parameter.
+ * The generated action code calls these instead of the respective methods on the parser, so the context does not
+ * have to be set on the parser before every call. Every method takes the parser the original method was called on
+ * as its first and the context as its last parameter.
+ */
+@SuppressWarnings({"UnusedDeclaration", "unchecked"})
+public final class ContextCalls {
+
+    private ContextCalls() {}
+
+    public static Context getContext(BaseActions actions, Context context) {
+        return context;
+    }
+
+    public static int currentIndex(BaseActions actions, Context context) {
+        return context.getCurrentIndex();
+    }
+
+    public static String match(BaseActions actions, Context context) {
+        return context.getMatch();
+    }
+
+    public static CharSequence matchView(BaseActions actions, Context context) {
+        return context.getMatchView();
+    }
+
+    public static int matchAsInt(BaseActions actions, Context context) {
+        return StringUtils.parseInt(context.getMatchView());
+    }
+
+    public static long matchAsLong(BaseActions actions, Context context) {
+        return StringUtils.parseLong(context.getMatchView());
+    }
+
+    public static double matchAsDouble(BaseActions actions, Context context) {
+        return StringUtils.parseDouble(context.getMatchView());
+    }
+
+    public static boolean matchEquals(BaseActions actions, String string, Context context) {
+        return string != null && string.contentEquals(context.getMatchView());
+    }
+
+    public static int matchHash(BaseActions actions, Context context) {
+        return StringUtils.hashCode(context.getMatchView());
+    }
+
+    public static String matchInterned(BaseActions actions, Context context) {
+        return actions.getSymbolTable().intern(context.getMatchView());
+    }
+
+    public static IndexRange matchRange(BaseActions actions, Context context) {
+        return context.getMatchRange();
+    }
+
+    public static String matchOrDefault(BaseActions actions, String defaultString, Context context) {
+        String match = context.getMatch();
+        return match.length() == 0 ? defaultString : match;
+    }
+
+    public static char matchedChar(BaseActions actions, Context context) {
+        return context.getFirstMatchChar();
+    }
+
+    public static int matchStart(BaseActions actions, Context context) {
+        return context.getMatchStartIndex();
+    }
+
+    public static int matchEnd(BaseActions actions, Context context) {
+        return context.getMatchEndIndex();
+    }
+
+    public static int matchLength(BaseActions actions, Context context) {
+        return context.getMatchLength();
+    }
+
+    public static Position position(BaseActions actions, Context context) {
+        return context.getPosition();
+    }
+
+    public static boolean push(BaseActions actions, Object value, Context context) {
+        context.getValueStack().push(value);
+        return true;
+    }
+
+    public static boolean push(BaseActions actions, int down, Object value, Context context) {
+        context.getValueStack().push(down, value);
+        return true;
+    }
+
+    public static boolean pushAll(BaseActions actions, Object firstValue, Object[] moreValues, Context context) {
+        context.getValueStack().pushAll(firstValue, moreValues);
+        return true;
+    }
+
+    public static Object pop(BaseActions actions, Context context) {
+        return context.getValueStack().pop();
+    }
+
+    public static Object pop(BaseActions actions, int down, Context context) {
+        return context.getValueStack().pop(down);
+    }
+
+    public static boolean drop(BaseActions actions, Context context) {
+        context.getValueStack().pop();
+        return true;
+    }
+
+    public static boolean drop(BaseActions actions, int down, Context context) {
+        context.getValueStack().pop(down);
+        return true;
+    }
+
+    public static Object peek(BaseActions actions, Context context) {
+        return context.getValueStack().peek();
+    }
+
+    public static Object peek(BaseActions actions, int down, Context context) {
+        return context.getValueStack().peek(down);
+    }
+
+    public static boolean poke(BaseActions actions, Object value, Context context) {
+        context.getValueStack().poke(value);
+        return true;
+    }
+
+    public static boolean poke(BaseActions actions, int down, Object value, Context context) {
+        context.getValueStack().poke(down, value);
+        return true;
+    }
+
+    public static boolean dup(BaseActions actions, Context context) {
+        context.getValueStack().dup();
+        return true;
+    }
+
+    public static boolean swap(BaseActions actions, Context context) {
+        context.getValueStack().swap();
+        return true;
+    }
+
+    public static boolean swap3(BaseActions actions, Context context) {
+        context.getValueStack().swap3();
+        return true;
+    }
+
+    public static boolean swap4(BaseActions actions, Context context) {
+        context.getValueStack().swap4();
+        return true;
+    }
+
+    public static boolean swap5(BaseActions actions, Context context) {
+        context.getValueStack().swap5();
+        return true;
+    }
+
+    public static boolean swap6(BaseActions actions, Context context) {
+        context.getValueStack().swap6();
+        return true;
+    }
+
+    public static Character currentChar(BaseActions actions, Context context) {
+        return context.getCurrentChar();
+    }
+
+    public static boolean inPredicate(BaseActions actions, Context context) {
+        return context.inPredicate();
+    }
+
+    public static boolean nodeSuppressed(BaseActions actions, Context context) {
+        return context.isNodeSuppressed();
+    }
+
+    public static boolean hasError(BaseActions actions, Context context) {
+        return context.hasError();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.*;
+
+import static org.objectweb.asm.Opcodes.*;
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * Generates the dispatch classes of parser classes annotated with {@link org.parboiled.annotations.ConsolidateActions}.
+ * Every action and var init group becomes a method of a dispatch class, selected by the group index the dispatch
+ * class instances hold. The indices follow the group names, so the code does not depend on the rule method order.
+ */
+class DispatchClassGenerator {
+
+    static final String CONSTRUCTOR_DESC = "(Ljava/lang/String;I[Ljava/lang/Object;)V";
+
+    private static final String INDEX_FIELD = "index";
+    private static final String FIELDS_FIELD = "fields";
+
+    static Type getDispatchClassType(ParserClassNode classNode, InstructionGroup group) {
+        return Type.getObjectType(classNode.name + (group.getRoot().isActionRoot() ? "$Actions" : "$VarInits"));
+    }
+
+    static Type getBoxedType(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN: return Type.getType(Boolean.class);
+            case Type.CHAR: return Type.getType(Character.class);
+            case Type.BYTE: return Type.getType(Byte.class);
+            case Type.SHORT: return Type.getType(Short.class);
+            case Type.INT: return Type.getType(Integer.class);
+            case Type.FLOAT: return Type.getType(Float.class);
+            case Type.LONG: return Type.getType(Long.class);
+            case Type.DOUBLE: return Type.getType(Double.class);
+            default: throw new IllegalArgumentException(type.toString());
+        }
+    }
+
+    public void process(ParserClassNode classNode) {
+        checkArgNotNull(classNode, "classNode");
+        if (!classNode.isActionsConsolidated()) return;
+
+        // group the instructions loading the group indices by dispatch class and group name
+        Map<String, Map<String, List<LdcInsnNode>>> dispatchClasses =
+                new TreeMap<String, Map<String, List<LdcInsnNode>>>();
+        Map<String, InstructionGroup> groups = new HashMap<String, InstructionGroup>();
+        for (Map.Entry<LdcInsnNode, InstructionGroup> entry : classNode.getDispatchedGroups().entrySet()) {
+            InstructionGroup group = entry.getValue();
+            String className = group.getGroupClassType().getInternalName();
+            Map<String, List<LdcInsnNode>> indexInsns = dispatchClasses.get(className);
+            if (indexInsns == null) {
+                dispatchClasses.put(className, indexInsns = new TreeMap<String, List<LdcInsnNode>>());
+            }
+            List<LdcInsnNode> insns = indexInsns.get(group.getName());
+            if (insns == null) {
+                indexInsns.put(group.getName(), insns = new ArrayList<LdcInsnNode>());
+                // groups with the same name have identical code
+                groups.put(group.getName(), group);
+            }
+            insns.add(entry.getKey());
+        }
+
+        for (Map.Entry<String, Map<String, List<LdcInsnNode>>> entry : dispatchClasses.entrySet()) {
+            List<InstructionGroup> dispatchedGroups = new ArrayList<InstructionGroup>();
+            for (Map.Entry<String, List<LdcInsnNode>> groupEntry : entry.getValue().entrySet()) {
+                int index = dispatchedGroups.size();
+                for (LdcInsnNode insn : groupEntry.getValue()) insn.cst = index;
+                dispatchedGroups.add(groups.get(groupEntry.getKey()));
+            }
+            classNode.getDispatchClassCodes().put(entry.getKey(),
+                    generateDispatchClass(classNode, entry.getKey(), dispatchedGroups));
+        }
+    }
+
+    private byte[] generateDispatchClass(ParserClassNode classNode, String className, List<InstructionGroup> groups) {
+        boolean actions = groups.get(0).getRoot().isActionRoot();
+        Type baseType = actions ? Types.BASE_ACTION : Types.BASE_VAR_INIT;
+
+        ClassWriter cw = new ClassWriter(ASMSettings.FRAMES);
+        cw.visit(ASMSettings.JDK_VERSION, ACC_PUBLIC + ACC_FINAL + ACC_SYNTHETIC, className, null,
+                baseType.getInternalName(), null);
+        cw.visitSource(classNode.sourceFile, null);
+        cw.visitField(ACC_PRIVATE + ACC_FINAL + ACC_SYNTHETIC, INDEX_FIELD, "I", null, null);
+        cw.visitField(ACC_PRIVATE + ACC_FINAL + ACC_SYNTHETIC, FIELDS_FIELD, "[Ljava/lang/Object;", null, null);
+        generateConstructor(cw, className, baseType);
+
+        String[] methodNames = new String[groups.size()];
+        String[] methodDescs = new String[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            InstructionGroup group = groups.get(i);
+            methodNames[i] = (actions ? "action$" : "varInit$") + i;
+            methodDescs[i] = getGroupMethodDesc(group, actions);
+            generateGroupMethod(classNode, cw, group, methodNames[i], methodDescs[i], actions);
+        }
+        generateDispatchMethod(cw, className, groups, methodNames, methodDescs, actions);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateConstructor(ClassWriter cw, String className, Type baseType) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, baseType.getInternalName(), "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 2);
+        mv.visitFieldInsn(PUTFIELD, className, INDEX_FIELD, "I");
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitFieldInsn(PUTFIELD, className, FIELDS_FIELD, "[Ljava/lang/Object;");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0); // trigger automatic computing
+        mv.visitEnd();
+    }
+
+    private String getGroupMethodDesc(InstructionGroup group, boolean action) {
+        StringBuilder sb = new StringBuilder("(");
+        if (action) sb.append(Types.CONTEXT_DESC);
+        for (FieldNode field : group.getFields()) sb.append(field.desc);
+        return sb.append(action ? ")Z" : ")Ljava/lang/Object;").toString();
+    }
+
+    // the group fields become parameters of the group method, following the context parameter for actions
+    private void generateGroupMethod(ParserClassNode classNode, ClassWriter cw, InstructionGroup group, String name,
+                                     String desc, boolean action) {
+        int[] slots = new int[group.getFields().size()];
+        int slot = action ? 2 : 1;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slot;
+            slot += ((Type) group.getFields().get(i).value).getSize();
+        }
+
+        List<Integer> contextAwareVars = action ?
+                GroupClassGenerator.insertSetContextCalls(classNode, group, slot - 1) : null;
+        for (InstructionGraphNode node : group.getNodes()) {
+            if (node.isXLoad()) {
+                VarInsnNode insn = (VarInsnNode) node.getInstruction();
+                insn.var = slots[insn.var];
+            }
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PRIVATE, name, desc, null, null);
+        if (action) {
+            GroupClassGenerator.generateActionCode(mv, group, contextAwareVars);
+        } else {
+            group.getInstructions().accept(mv);
+            mv.visitInsn(ARETURN);
+        }
+        mv.visitMaxs(0, 0); // trigger automatic computing
+        mv.visitEnd();
+    }
+
+    // generates the run (or create) method calling the group method selected by the index field
+    private void generateDispatchMethod(ClassWriter cw, String className, List<InstructionGroup> groups,
+                                        String[] methodNames, String[] methodDescs, boolean action) {
+        MethodVisitor mv = action ?
+                cw.visitMethod(ACC_PUBLIC, "run", '(' + Types.CONTEXT_DESC + ")Z", null, null) :
+                cw.visitMethod(ACC_PUBLIC, "create", "()Ljava/lang/Object;", null, null);
+
+        Label[] labels = new Label[groups.size()];
+        for (int i = 0; i < labels.length; i++) labels[i] = new Label();
+        Label illegalIndex = new Label();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, INDEX_FIELD, "I");
+        mv.visitTableSwitchInsn(0, labels.length - 1, illegalIndex, labels);
+
+        for (int i = 0; i < labels.length; i++) {
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 0);
+            if (action) mv.visitVarInsn(ALOAD, 1);
+            List<FieldNode> fields = groups.get(i).getFields();
+            for (int j = 0; j < fields.size(); j++) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, className, FIELDS_FIELD, "[Ljava/lang/Object;");
+                mv.visitLdcInsn(j);
+                mv.visitInsn(AALOAD);
+                generateUnboxing(mv, (Type) fields.get(j).value);
+            }
+            mv.visitMethodInsn(INVOKESPECIAL, className, methodNames[i], methodDescs[i], false);
+            mv.visitInsn(action ? IRETURN : ARETURN);
+        }
+
+        mv.visitLabel(illegalIndex);
+        mv.visitTypeInsn(NEW, "java/lang/IllegalStateException");
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+        mv.visitInsn(ATHROW);
+        mv.visitMaxs(0, 0); // trigger automatic computing
+        mv.visitEnd();
+    }
+
+    private void generateUnboxing(MethodVisitor mv, Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+            if (!type.getInternalName().equals("java/lang/Object")) {
+                mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+            }
+            return;
+        }
+        Type boxedType = getBoxedType(type);
+        mv.visitTypeInsn(CHECKCAST, boxedType.getInternalName());
+        mv.visitMethodInsn(INVOKEVIRTUAL, boxedType.getInternalName(), type.getClassName() + "Value",
+                "()" + type.getDescriptor(), false);
+    }
+}
@@ -18,17 +18,42 @@ package org.parboiled.transform;
 
 import static org.parboiled.common.Preconditions.*;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
+import org.parboiled.BaseActions;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.objectweb.asm.Opcodes.*;
 import static org.parboiled.transform.AsmUtils.findLoadedClass;
-import static org.parboiled.transform.AsmUtils.loadClass;
 
 abstract class GroupClassGenerator implements RuleMethodProcessor {
 
-    private static final Object lock = new Object();
+    // the names and descriptors of the ContextCalls methods
+    private static final Set<String> contextCalls = new HashSet<String>();
+
+    static {
+        for (Method method : ContextCalls.class.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                contextCalls.add(method.getName().concat(Type.getMethodDescriptor(method)));
+            }
+        }
+    }
+
+    // the methods consuming a match() result, which are replaced by the given ContextCalls method
+    private static final String[][] MATCH_ROUTES = {
+            {"java/lang/Integer", "parseInt", "(Ljava/lang/String;)I", "matchAsInt"},
+            {"java/lang/Long", "parseLong", "(Ljava/lang/String;)J", "matchAsLong"},
+            {"java/lang/Double", "parseDouble", "(Ljava/lang/String;)D", "matchAsDouble"},
+            {"java/lang/String", "hashCode", "()I", "matchHash"}
+    };
 
     private final boolean forceCodeBuilding;
     protected ParserClassNode classNode;
@@ -44,28 +69,25 @@ abstract class GroupClassGenerator implements RuleMethodProcessor {
 
         for (InstructionGroup group : method.getGroups()) {
             if (appliesTo(group.getRoot())) {
-                loadGroupClass(group);
+                if (classNode.isActionsConsolidated()) {
+                    // the group code becomes part of the dispatch class generated by the DispatchClassGenerator
+                    group.setGroupClassType(DispatchClassGenerator.getDispatchClassType(classNode, group));
+                } else {
+                    generateGroupClass(group);
+                }
             }
         }
     }
 
     protected abstract boolean appliesTo(InstructionGraphNode group);
 
-    private void loadGroupClass(InstructionGroup group) {
+    // the group classes are defined together with the extended parser class, once all rule methods are processed
+    private void generateGroupClass(InstructionGroup group) {
         createGroupClassType(group);
         String className = group.getGroupClassType().getClassName();
         ClassLoader classLoader = classNode.getParentClass().getClassLoader();
-
-        Class<?> groupClass;
-        synchronized (lock) {
-            groupClass = findLoadedClass(className, classLoader);
-            if (groupClass == null || forceCodeBuilding) {
-                byte[] groupClassCode = generateGroupClassCode(group);
-                group.setGroupClassCode(groupClassCode);
-                if (groupClass == null) {
-                    loadClass(className, groupClassCode, classLoader);
-                }
-            }
+        if (forceCodeBuilding || findLoadedClass(className, classLoader) == null) {
+            group.setGroupClassCode(generateGroupClassCode(group));
         }
     }
 
@@ -115,30 +137,150 @@ abstract class GroupClassGenerator implements RuleMethodProcessor {
 
     protected abstract void generateMethod(InstructionGroup group, ClassWriter cw);
 
-    protected void insertSetContextCalls(InstructionGroup group, int localVarIx) {
+    // returns the indices of the local variables holding the objects the context is set on
+    static List<Integer> insertSetContextCalls(ParserClassNode classNode, InstructionGroup group, int localVarIx) {
+        List<Integer> contextAwareVars = new ArrayList<Integer>();
         InsnList instructions = group.getInstructions();
         for (InstructionGraphNode node : group.getNodes()) {
             if (node.isCallOnContextAware()) {
                 AbstractInsnNode insn = node.getInstruction();
 
-                if (node.getPredecessors().size() > 1) {
-                    // store the target of the call in a new local variable
-                    AbstractInsnNode loadTarget = node.getPredecessors().get(0).getInstruction();
-                    instructions.insert(loadTarget, new VarInsnNode(ASTORE, ++localVarIx));
-                    instructions.insert(loadTarget, new InsnNode(DUP)); // the DUP is inserted BEFORE the ASTORE
-
-                    // immediately before the call get the target from the local var and set the context on it
-                    instructions.insertBefore(insn, new VarInsnNode(ALOAD, localVarIx));
-                } else {
-                    // if we have only one predecessor the call does not take any parameters and we can
-                    // skip the storing and loading of the invocation target
-                    instructions.insertBefore(insn, new InsnNode(DUP));
+                String contextCallDesc = getContextCallDesc((MethodInsnNode) insn);
+                if (contextCallDesc != null && isCallOnParser(classNode, group, node)) {
+                    // call the static counterpart of the BaseActions method, which takes the context as parameter,
+                    // rather than setting the context on the parser
+                    MethodInsnNode call = new MethodInsnNode(INVOKESTATIC, Types.CONTEXT_CALLS.getInternalName(),
+                            ((MethodInsnNode) insn).name, contextCallDesc, false);
+                    instructions.insertBefore(insn, new VarInsnNode(ALOAD, 1));
+                    instructions.set(insn, call);
+                    if ("match".equals(call.name)) routeMatchCall(instructions, call);
+                    continue;
                 }
+
+                // store the target of the call in a new local variable, the context is released on it at the end
+                AbstractInsnNode loadTarget = node.getPredecessors().get(0).getInstruction();
+                instructions.insert(loadTarget, new VarInsnNode(ASTORE, ++localVarIx));
+                instructions.insert(loadTarget, new InsnNode(DUP)); // the DUP is inserted BEFORE the ASTORE
+                contextAwareVars.add(localVarIx);
+
+                // immediately before the call get the target from the local var and set the context on it
+                instructions.insertBefore(insn, new VarInsnNode(ALOAD, localVarIx));
                 instructions.insertBefore(insn, new VarInsnNode(ALOAD, 1));
                 instructions.insertBefore(insn, new MethodInsnNode(INVOKEINTERFACE,
                         Types.CONTEXT_AWARE.getInternalName(), "setContext", "(" + Types.CONTEXT_DESC + ")V", true));
             }
         }
+        return contextAwareVars;
+    }
+
+    // generates the code of an action group followed by the return of its result, if the context has been set on
+    // ContextAware objects it is released on them afterwards (also if the action throws), so that they do not keep
+    // a finished parsing run alive
+    static void generateActionCode(MethodVisitor mv, InstructionGroup group, List<Integer> contextAwareVars) {
+        if (contextAwareVars.isEmpty()) {
+            group.getInstructions().accept(mv);
+            mv.visitInsn(IRETURN);
+            return;
+        }
+
+        for (int var : contextAwareVars) {
+            mv.visitInsn(ACONST_NULL);
+            mv.visitVarInsn(ASTORE, var);
+        }
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(start, end, handler, null);
+        mv.visitLabel(start);
+        group.getInstructions().accept(mv);
+        mv.visitLabel(end);
+
+        int resultVar = contextAwareVars.get(contextAwareVars.size() - 1) + 1;
+        mv.visitVarInsn(ISTORE, resultVar);
+        generateContextReleases(mv, contextAwareVars);
+        mv.visitVarInsn(ILOAD, resultVar);
+        mv.visitInsn(IRETURN);
+
+        mv.visitLabel(handler);
+        mv.visitVarInsn(ASTORE, resultVar + 1);
+        generateContextReleases(mv, contextAwareVars);
+        mv.visitVarInsn(ALOAD, resultVar + 1);
+        mv.visitInsn(ATHROW);
+    }
+
+    private static void generateContextReleases(MethodVisitor mv, List<Integer> contextAwareVars) {
+        for (int var : contextAwareVars) {
+            Label skip = new Label();
+            mv.visitVarInsn(ALOAD, var);
+            mv.visitJumpInsn(IFNULL, skip);
+            mv.visitVarInsn(ALOAD, var);
+            mv.visitInsn(ACONST_NULL);
+            mv.visitMethodInsn(INVOKEINTERFACE, Types.CONTEXT_AWARE.getInternalName(), "setContext",
+                    "(" + Types.CONTEXT_DESC + ")V", true);
+            mv.visitLabel(skip);
+        }
+    }
+
+    // replaces a match() call whose result is directly consumed by one of the MATCH_ROUTES methods or compared to a
+    // string literal by the respective ContextCalls method working without creating a String for the match
+    private static void routeMatchCall(InsnList instructions, MethodInsnNode matchCall) {
+        AbstractInsnNode next = matchCall.getNext();
+        if (next instanceof MethodInsnNode) {
+            MethodInsnNode consumer = (MethodInsnNode) next;
+            for (String[] route : MATCH_ROUTES) {
+                if (route[0].equals(consumer.owner) && route[1].equals(consumer.name) &&
+                        route[2].equals(consumer.desc)) {
+                    matchCall.name = route[3];
+                    matchCall.desc = "(" + Types.BASE_ACTIONS.getDescriptor() + Types.CONTEXT_DESC + ")" +
+                            Type.getReturnType(consumer.desc).getDescriptor();
+                    instructions.remove(consumer);
+                    return;
+                }
+            }
+        } else if (next instanceof LdcInsnNode && ((LdcInsnNode) next).cst instanceof String &&
+                next.getNext() instanceof MethodInsnNode) {
+            MethodInsnNode consumer = (MethodInsnNode) next.getNext();
+            if ("java/lang/String".equals(consumer.owner) && "equals".equals(consumer.name) &&
+                    "(Ljava/lang/Object;)Z".equals(consumer.desc)) {
+                // the literal has to go between the parser and the context argument
+                AbstractInsnNode loadContext = matchCall.getPrevious();
+                instructions.remove(loadContext);
+                instructions.remove(matchCall);
+                instructions.insert(next, loadContext);
+                instructions.set(consumer, new MethodInsnNode(INVOKESTATIC, Types.CONTEXT_CALLS.getInternalName(),
+                        "matchEquals", "(" + Types.BASE_ACTIONS.getDescriptor() + "Ljava/lang/String;" +
+                        Types.CONTEXT_DESC + ")Z", false));
+            }
+        }
+    }
+
+    // returns the descriptor of the ContextCalls method corresponding to the given call, if there is one
+    private static String getContextCallDesc(MethodInsnNode insn) {
+        int paramsEnd = insn.desc.indexOf(')');
+        String desc = "(" + Types.BASE_ACTIONS.getDescriptor() + insn.desc.substring(1, paramsEnd) +
+                Types.CONTEXT_DESC + insn.desc.substring(paramsEnd);
+        return contextCalls.contains(insn.name.concat(desc)) ? desc : null;
+    }
+
+    // determines whether the given call goes to the parser itself (the "this" of the rule method) and to a BaseActions
+    // method not overridden by the parser class
+    private static boolean isCallOnParser(ParserClassNode classNode, InstructionGroup group,
+                                          InstructionGraphNode node) {
+        InstructionGraphNode target = node.getPredecessors().get(0);
+        if (!target.isXLoad()) return false;
+        // the FieldNodes access and value members have been reused for the var index / Type respectively!
+        FieldNode field = group.getFields().get(((VarInsnNode) target.getInstruction()).var);
+        if (field.access != 0 || !((Type) field.value).getInternalName().equals(classNode.name)) return false;
+
+        MethodInsnNode insn = (MethodInsnNode) node.getInstruction();
+        for (Class<?> c = classNode.getParentClass(); c != BaseActions.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getName().equals(insn.name) && Type.getMethodDescriptor(method).equals(insn.desc)) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     protected void convertXLoads(InstructionGroup group) {
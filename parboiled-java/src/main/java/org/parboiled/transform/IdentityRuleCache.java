@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.parboiled.transform;
+
+import org.parboiled.Rule;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * The rule cache of {@link org.parboiled.annotations.Cached} rule methods with a single enum parameter.
+ * The enum constants are compared by identity and serve as keys of an open-addressing hash table.
+ * Lookups are safe to perform concurrently with insertions.
+ */
+public final class IdentityRuleCache {
+
+    private static final Object NULL_KEY = new Object();
+
+    private volatile Table table = new Table(8);
+    private int size;
+
+    public Rule get(Object key) {
+        if (key == null) key = NULL_KEY;
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int ix = System.identityHashCode(key) & mask; ; ix = (ix + 1) & mask) {
+            // the rule is written after the key, so if we see the rule we also see its key
+            Rule rule = table.rules.get(ix);
+            if (rule == null || table.keys[ix] == key) return rule;
+        }
+    }
+
+    public synchronized void put(Object key, Rule rule) {
+        checkArgNotNull(rule, "rule");
+        if (table.put(key != null ? key : NULL_KEY, rule) && ++size * 4 > table.keys.length * 3) {
+            table = table.copy(table.keys.length * 2);
+        }
+    }
+
+    private static class Table {
+        private final Object[] keys;
+        private final AtomicReferenceArray<Rule> rules;
+
+        private Table(int capacity) {
+            keys = new Object[capacity];
+            rules = new AtomicReferenceArray<Rule>(capacity);
+        }
+
+        // returns true if a new entry was added, false if an existing one was replaced
+        private boolean put(Object key, Rule rule) {
+            int mask = keys.length - 1;
+            for (int ix = System.identityHashCode(key) & mask; ; ix = (ix + 1) & mask) {
+                if (rules.get(ix) == null) {
+                    keys[ix] = key;
+                    rules.set(ix, rule);
+                    return true;
+                }
+                if (keys[ix] == key) {
+                    rules.set(ix, rule);
+                    return false;
+                }
+            }
+        }
+
+        private Table copy(int capacity) {
+            Table copy = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                Rule rule = rules.get(i);
+                if (rule != null) copy.put(keys[i], rule);
+            }
+            return copy;
+        }
+    }
+}
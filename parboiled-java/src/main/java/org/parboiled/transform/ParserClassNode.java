@@ -26,6 +26,7 @@ import static org.parboiled.common.Preconditions.*;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import java.util.*;
@@ -38,6 +39,11 @@ class ParserClassNode extends ClassNode {
     private final Map<String, RuleMethod> ruleMethods = new TreeMap<String, RuleMethod>();
     private byte[] classCode;
     private Class<?> extendedClass;
+    private boolean actionsConsolidated;
+    // the groups consolidated into dispatch classes, by the instruction loading their (not yet assigned) index
+    private final Map<LdcInsnNode, InstructionGroup> dispatchedGroups =
+            new IdentityHashMap<LdcInsnNode, InstructionGroup>();
+    private final Map<String, byte[]> dispatchClassCodes = new LinkedHashMap<String, byte[]>();
 
     public ParserClassNode(Class<?> parentClass) {
         super(ASMSettings.ASM_API);
@@ -77,6 +83,29 @@ class ParserClassNode extends ClassNode {
         this.extendedClass = extendedClass;
     }
 
+    public boolean isActionsConsolidated() {
+        return actionsConsolidated;
+    }
+
+    public void setActionsConsolidated() {
+        actionsConsolidated = true;
+    }
+
+    public Map<LdcInsnNode, InstructionGroup> getDispatchedGroups() {
+        return dispatchedGroups;
+    }
+
+    public void addDispatchedGroup(LdcInsnNode indexInsn, InstructionGroup group) {
+        // rule methods are processed concurrently
+        synchronized (dispatchedGroups) {
+            dispatchedGroups.put(indexInsn, group);
+        }
+    }
+
+    public Map<String, byte[]> getDispatchClassCodes() {
+        return dispatchClassCodes;
+    }
+
     public boolean isInterface() {
         return this.parentClass.isInterface();
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.common.FileUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * Performs the extension of parser classes at build time. The extended parser classes (named "...$$parboiled")
+ * and the action and var init classes are written to a class output directory, from where
+ * {@link org.parboiled.Parboiled#createParser(Class, Object...)} loads them instead of performing the extension at
+ * runtime. Next to every extended parser class a "...$$parboiled.hash" resource records a hash of the parser class
+ * hierarchy it was generated from, extended parser classes generated from an older version of their parser class
+ * are not loaded but replaced by a runtime extension until the generation is repeated.
+ * <p>Usage: java org.parboiled.transform.ParserGenerator &lt;output directory&gt; &lt;parser class&gt;...</p>
+ * <p>The parser classes (compiled with debug information, see {@link ParserTransformer}) must be on the class path.
+ * </p>
+ */
+public final class ParserGenerator {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ParserGenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java org.parboiled.transform.ParserGenerator <output directory> " +
+                    "<parser class>...");
+            System.exit(1);
+        }
+        File outputDir = new File(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            List<File> files = generate(Class.forName(args[i]), outputDir);
+            System.out.println("Generated " + files.size() + " classes for " + args[i]);
+        }
+    }
+
+    /**
+     * Extends the given parser class and writes all generated classes to the given class output directory, along
+     * with the hash resource identifying the version of the parser class they were generated from.
+     *
+     * @param parserClass the parser class
+     * @param outputDir   the root directory of the class files
+     * @return the written class files
+     * @throws Exception if the parser class could not be extended or the classes could not be written
+     */
+    public static List<File> generate(Class<?> parserClass, File outputDir) throws Exception {
+        checkArgNotNull(parserClass, "parserClass");
+        checkArgNotNull(outputDir, "outputDir");
+        ParserClassNode classNode = ParserTransformer.extendParserClass(parserClass, true);
+        Map<String, byte[]> classes = ParserTransformer.getClassCodes(classNode);
+
+        List<File> files = new ArrayList<File>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            File file = new File(outputDir, entry.getKey() + ".class");
+            FileUtils.writeAllBytes(entry.getValue(), file);
+            files.add(file);
+        }
+        String contentHash = createContentHash(parserClass);
+        if (contentHash != null) {
+            FileUtils.writeAllText(contentHash, new File(outputDir, getContentHashResource(parserClass)), UTF8);
+        }
+        return files;
+    }
+
+    /**
+     * Determines whether the class path of the given parser class holds an extended parser class written by the
+     * ParserGenerator from the current code of the parser class and its superclasses. Only the recorded hash is
+     * compared, the extended parser class itself is neither read nor loaded.
+     *
+     * @param parserClass the parser class
+     * @return true if the extended parser class on the class path can be loaded
+     */
+    public static boolean isExtensionCurrent(Class<?> parserClass) {
+        checkArgNotNull(parserClass, "parserClass");
+        InputStream inputStream = getResourceAsStream(parserClass, getContentHashResource(parserClass));
+        if (inputStream == null) return false;
+        String recordedHash = FileUtils.readAllText(inputStream, UTF8);
+
+        // without the class files of the parser class hierarchy there is nothing to compare against
+        String contentHash = createContentHash(parserClass);
+        return contentHash == null || contentHash.equals(recordedHash);
+    }
+
+    private static String getContentHashResource(Class<?> parserClass) {
+        return parserClass.getName().replace('.', '/') + "$$parboiled.hash";
+    }
+
+    // a CRC over the class files of the parser class hierarchy, which only has to tell apart the versions of one
+    // parser class, or null if one of the class files is not available
+    private static String createContentHash(Class<?> parserClass) {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        for (Class<?> c = parserClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            InputStream inputStream = getResourceAsStream(c, c.getName().replace('.', '/') + ".class");
+            if (inputStream == null) return null;
+            byte[] classCode = FileUtils.readAllBytes(inputStream);
+            crc.update(classCode);
+            length += classCode.length;
+        }
+        return getParboiledVersion() + ':' + Long.toHexString(length) + ':' + Long.toHexString(crc.getValue());
+    }
+
+    private static InputStream getResourceAsStream(Class<?> clazz, String resource) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        return classLoader != null ? classLoader.getResourceAsStream(resource) :
+                ClassLoader.getSystemResourceAsStream(resource);
+    }
+
+    // the generated code also depends on the parboiled version that generated it
+    private static String getParboiledVersion() {
+        Package pkg = ParserGenerator.class.getPackage();
+        String version = pkg != null ? pkg.getImplementationVersion() : null;
+        return "parboiled-" + (version != null ? version : "dev");
+    }
+}
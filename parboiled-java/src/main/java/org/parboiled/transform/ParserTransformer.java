@@ -20,51 +20,194 @@ import static org.parboiled.common.Preconditions.*;
 import org.objectweb.asm.ClassWriter;
 import org.parboiled.common.ImmutableList;
 
-import java.util.List;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.parboiled.transform.AsmUtils.*;
 
 public class ParserTransformer {
 
+    /**
+     * The system property setting the initial cache directory, see {@link #setCacheDirectory(File)}.
+     */
+    public static final String CACHE_DIRECTORY_PROPERTY = "parboiled.cacheDirectory";
+
+    private static volatile BytecodeCache cache = createCache(System.getProperty(CACHE_DIRECTORY_PROPERTY));
+    private static ForkJoinPool pool;
+
+    // the class definitions currently in progress, so that concurrent requests for the same class wait for the
+    // one definition instead of defining the class a second time
+    private static final ConcurrentMap<ClassKey, FutureTask<Class<?>>> definitions =
+            new ConcurrentHashMap<ClassKey, FutureTask<Class<?>>>();
+
     private ParserTransformer() {}
 
+    /**
+     * Sets the directory in which the class code generated for parser classes is cached across JVM runs.
+     * Parser classes found in the cache are defined right away without any analysis or code generation.
+     * The directory can be shared by several JVMs running concurrently.
+     * Initially the directory given by the system property "parboiled.cacheDirectory" is used, if any.
+     *
+     * @param directory the cache directory or null to disable the cache
+     */
+    public static void setCacheDirectory(File directory) {
+        cache = directory != null ? new BytecodeCache(directory) : null;
+    }
+
+    private static BytecodeCache createCache(String directory) {
+        return directory != null && directory.length() > 0 ? new BytecodeCache(new File(directory)) : null;
+    }
+
     @SuppressWarnings({"unchecked"})
-    public static synchronized <T> Class<? extends T> transformParser(Class<T> parserClass) throws Exception {
+    public static <T> Class<? extends T> transformParser(final Class<T> parserClass) throws Exception {
         checkArgNotNull(parserClass, "parserClass");
-        // first check whether we did not already create and load the extension of the given parser class
-        Class<?> extendedClass = findLoadedClass(
-                getExtendedParserClassName(parserClass.getName()), parserClass.getClassLoader()
-        );
-        return (Class<? extends T>)
-                (extendedClass != null ? extendedClass : extendParserClass(parserClass).getExtendedClass());
+        String className = getExtendedParserClassName(parserClass.getName());
+        return (Class<? extends T>) defineOnce(className, parserClass.getClassLoader(), new Callable<Class<?>>() {
+            public Class<?> call() throws Exception {
+                BytecodeCache cache = ParserTransformer.cache;
+                return cache != null ? extendParserClassCached(parserClass, cache) :
+                        extendParserClass(parserClass).getExtendedClass();
+            }
+        });
+    }
+
+    /**
+     * Returns the class with the given name loaded by the given class loader. If the class has not been loaded yet
+     * it is defined by the given definition, which is run only once even if the class is requested concurrently.
+     */
+    private static Class<?> defineOnce(final String className, final ClassLoader classLoader,
+                                       final Callable<Class<?>> definition) throws Exception {
+        // first check whether we did not already define and load the class
+        Class<?> clazz = findLoadedClass(className, classLoader);
+        if (clazz != null) return clazz;
+
+        ClassKey key = new ClassKey(classLoader, className);
+        FutureTask<Class<?>> task = new FutureTask<Class<?>>(new Callable<Class<?>>() {
+            public Class<?> call() throws Exception {
+                // the class might have been defined by a task completed after the check above
+                Class<?> clazz = findLoadedClass(className, classLoader);
+                return clazz != null ? clazz : definition.call();
+            }
+        });
+        FutureTask<Class<?>> runningTask = definitions.putIfAbsent(key, task);
+        if (runningTask == null) {
+            try {
+                task.run();
+            } finally {
+                definitions.remove(key, task);
+            }
+            runningTask = task;
+        }
+        try {
+            return runningTask.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private static Class<?> extendParserClassCached(Class<?> parserClass, BytecodeCache cache) throws Exception {
+        String key = cache.createKey(parserClass);
+        if (key == null) return extendParserClass(parserClass).getExtendedClass();
+
+        Map<String, byte[]> classes = cache.read(key);
+        if (classes != null) return defineClasses(classes, parserClass.getClassLoader());
+
+        // all group classes need to be generated for the cache entry, even if already loaded by another parser
+        ParserClassNode classNode = extendParserClass(parserClass, true);
+        cache.write(key, getClassCodes(classNode));
+        return classNode.getExtendedClass();
+    }
+
+    // defines the group classes not yet loaded and then the extended parser class, which comes first in the map
+    // the extended parser class is defined last since concurrent transformParser calls return it as soon as it is
+    // loaded, the group classes can be shared with other parser classes transformed concurrently
+    private static Class<?> defineClasses(Map<String, byte[]> classes, final ClassLoader classLoader)
+            throws Exception {
+        Map.Entry<String, byte[]> extendedClassEntry = null;
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            if (extendedClassEntry == null) {
+                extendedClassEntry = entry;
+                continue;
+            }
+            final String className = entry.getKey().replace('/', '.');
+            final byte[] code = entry.getValue();
+            defineOnce(className, classLoader, new Callable<Class<?>>() {
+                public Class<?> call() {
+                    return loadClass(className, code, classLoader);
+                }
+            });
+        }
+        return extendedClassEntry != null ?
+                loadClass(extendedClassEntry.getKey().replace('/', '.'), extendedClassEntry.getValue(), classLoader) :
+                null;
+    }
+
+    /**
+     * Collects the class code of the extended parser class and all group classes of the given class node.
+     *
+     * @param classNode the class node of the extended parser class
+     * @return the class codes by internal class name, the extended parser class first
+     */
+    static Map<String, byte[]> getClassCodes(ParserClassNode classNode) {
+        // the same action or var init class can be used in several rule methods
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        classes.put(classNode.name, classNode.getClassCode());
+        classes.putAll(classNode.getDispatchClassCodes());
+        for (RuleMethod method : classNode.getRuleMethods().values()) {
+            for (InstructionGroup group : method.getGroups()) {
+                if (group.getGroupClassCode() != null) {
+                    classes.put(group.getGroupClassType().getInternalName(), group.getGroupClassCode());
+                }
+            }
+        }
+        return classes;
     }
 
     static ParserClassNode extendParserClass(Class<?> parserClass) throws Exception {
+        return extendParserClass(parserClass, false);
+    }
+
+    /**
+     * Extends the given parser class.
+     *
+     * @param parserClass       the parser class
+     * @param forceCodeBuilding true if the code of all action and var init classes is to be generated, even for the
+     *                          ones already loaded
+     * @return the class node of the extended parser class
+     * @throws Exception if the extension failed
+     */
+    static ParserClassNode extendParserClass(Class<?> parserClass, boolean forceCodeBuilding) throws Exception {
         ParserClassNode classNode = new ParserClassNode(parserClass);
         new ClassNodeInitializer().process(classNode);
-        runMethodTransformers(classNode);
+        runMethodTransformers(classNode, forceCodeBuilding);
+        new DispatchClassGenerator().process(classNode);
         new ConstructorGenerator().process(classNode);
         defineExtendedParserClass(classNode);
         return classNode;
     }
 
-    @SuppressWarnings({"unchecked"})
-    private static void runMethodTransformers(ParserClassNode classNode) throws Exception {
-        List<RuleMethodProcessor> methodProcessors = createRuleMethodProcessors();
-
-        // iterate through all rule methods
-        // since the ruleMethods map on the classnode is a treemap we get the methods sorted by name which puts
-        // all super methods first (since they are prefixed with one or more '$')
-        for (RuleMethod ruleMethod : classNode.getRuleMethods().values()) {
-            if (!ruleMethod.hasDontExtend()) {
-                for (RuleMethodProcessor methodProcessor : methodProcessors) {
-                    if (methodProcessor.appliesTo(classNode, ruleMethod)) {
-                        methodProcessor.process(classNode, ruleMethod);
-                    }
-                }
+    private static void runMethodTransformers(ParserClassNode classNode, boolean forceCodeBuilding)
+            throws Exception {
+        // the rule methods are independent of each other except for calls to super methods, which require the
+        // super method to be fully processed first, so we process the rule methods concurrently level by level,
+        // starting with the super methods of the most distant superclass (carrying the most '$' prefixes)
+        for (List<RuleMethod> level : groupByLevel(classNode.getRuleMethods().values())) {
+            ProcessRuleMethodsTask task = new ProcessRuleMethodsTask(classNode, level, forceCodeBuilding);
+            if (level.size() <= ProcessRuleMethodsTask.METHODS_PER_TASK) {
+                task.processRuleMethods();
+            } else {
+                getPool().invoke(task);
+                task.rethrowFailure();
             }
         }
 
+        // since the ruleMethods map on the classnode is a treemap we get the methods sorted by name which puts
+        // all super methods first (since they are prefixed with one or more '$')
         for (RuleMethod ruleMethod : classNode.getRuleMethods().values()) {
             if (!ruleMethod.isGenerationSkipped()) {
                 classNode.methods.add(ruleMethod);
@@ -72,7 +215,27 @@ public class ParserTransformer {
         }
     }
 
-    static List<RuleMethodProcessor> createRuleMethodProcessors() {
+    private static Collection<List<RuleMethod>> groupByLevel(Collection<RuleMethod> ruleMethods) {
+        Map<Integer, List<RuleMethod>> levels =
+                new TreeMap<Integer, List<RuleMethod>>(Collections.<Integer>reverseOrder());
+        for (RuleMethod ruleMethod : ruleMethods) {
+            if (ruleMethod.hasDontExtend()) continue;
+            int level = 0;
+            while (ruleMethod.name.charAt(level) == '$') level++;
+            List<RuleMethod> methods = levels.get(level);
+            if (methods == null) levels.put(level, methods = new ArrayList<RuleMethod>());
+            methods.add(ruleMethod);
+        }
+        return levels.values();
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        // the worker threads are daemon threads and terminate when idle
+        if (pool == null) pool = new ForkJoinPool();
+        return pool;
+    }
+
+    static List<RuleMethodProcessor> createRuleMethodProcessors(boolean forceCodeBuilding) {
         return ImmutableList.of(
                 new UnusedLabelsRemover(),
                 new ReturnInstructionUnifier(),
@@ -80,8 +243,8 @@ public class ParserTransformer {
                 new ImplicitActionsConverter(),
                 new InstructionGroupCreator(),
                 new InstructionGroupPreparer(),
-                new ActionClassGenerator(false),
-                new VarInitClassGenerator(false),
+                new ActionClassGenerator(forceCodeBuilding),
+                new VarInitClassGenerator(forceCodeBuilding),
 
                 new RuleMethodRewriter(),
                 new SuperCallRewriter(),
@@ -89,19 +252,111 @@ public class ParserTransformer {
                 new VarFramingGenerator(),
                 new LabellingGenerator(),
                 new FlagMarkingGenerator(),
-                new CachingGenerator()
+                new CachingGenerator(),
+                new RuleOwnerDelegationGenerator()
         );
     }
 
-    private static void defineExtendedParserClass(ParserClassNode classNode) {
+    private static void defineExtendedParserClass(ParserClassNode classNode) throws Exception {
         ClassWriter classWriter = new ClassWriter(ASMSettings.FRAMES);
         classNode.accept(classWriter);
         classNode.setClassCode(classWriter.toByteArray());
-        classNode.setExtendedClass(loadClass(
-                classNode.name.replace('/', '.'),
-                classNode.getClassCode(),
+        // the group classes are only defined here, in one batch, since they are generated concurrently
+        classNode.setExtendedClass(defineClasses(
+                getClassCodes(classNode),
                 classNode.getParentClass().getClassLoader()
         ));
     }
 
+    private static class ClassKey {
+        private final ClassLoader classLoader;
+        private final String className;
+
+        ClassKey(ClassLoader classLoader, String className) {
+            this.classLoader = classLoader;
+            this.className = className;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClassKey)) return false;
+            ClassKey that = (ClassKey) o;
+            return classLoader == that.classLoader && className.equals(that.className);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(classLoader) + className.hashCode();
+        }
+    }
+
+    // runs all rule method processors on a number of rule methods, splitting these up among the pool threads
+    private static class ProcessRuleMethodsTask extends RecursiveAction {
+        static final int METHODS_PER_TASK = 8;
+
+        private final ParserClassNode classNode;
+        private final List<RuleMethod> ruleMethods;
+        private final boolean forceCodeBuilding;
+        private final ClassLoader contextClassLoader;
+        private final AtomicReference<Exception> failure;
+
+        ProcessRuleMethodsTask(ParserClassNode classNode, List<RuleMethod> ruleMethods, boolean forceCodeBuilding) {
+            this(classNode, ruleMethods, forceCodeBuilding, Thread.currentThread().getContextClassLoader(),
+                    new AtomicReference<Exception>());
+        }
+
+        private ProcessRuleMethodsTask(ParserClassNode classNode, List<RuleMethod> ruleMethods,
+                                       boolean forceCodeBuilding, ClassLoader contextClassLoader,
+                                       AtomicReference<Exception> failure) {
+            this.classNode = classNode;
+            this.ruleMethods = ruleMethods;
+            this.forceCodeBuilding = forceCodeBuilding;
+            this.contextClassLoader = contextClassLoader;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            int size = ruleMethods.size();
+            if (size > METHODS_PER_TASK) {
+                invokeAll(subTask(0, size / 2), subTask(size / 2, size));
+                return;
+            }
+            // the rule method analysis falls back to the context class loader when loading classes
+            Thread thread = Thread.currentThread();
+            ClassLoader threadClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(contextClassLoader);
+            try {
+                processRuleMethods();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                thread.setContextClassLoader(threadClassLoader);
+            }
+        }
+
+        private ProcessRuleMethodsTask subTask(int from, int to) {
+            return new ProcessRuleMethodsTask(classNode, ruleMethods.subList(from, to), forceCodeBuilding,
+                    contextClassLoader, failure);
+        }
+
+        // the processors keep state while processing a method, so every task needs its own ones
+        void processRuleMethods() throws Exception {
+            List<RuleMethodProcessor> methodProcessors = createRuleMethodProcessors(forceCodeBuilding);
+            for (RuleMethod ruleMethod : ruleMethods) {
+                if (failure.get() != null) return;
+                for (RuleMethodProcessor methodProcessor : methodProcessors) {
+                    if (methodProcessor.appliesTo(classNode, ruleMethod)) {
+                        methodProcessor.process(classNode, ruleMethod);
+                    }
+                }
+            }
+        }
+
+        void rethrowFailure() throws Exception {
+            if (failure.get() != null) throw failure.get();
+        }
+    }
+
 }
@@ -68,6 +68,7 @@ class RuleMethod extends MethodNode {
     private List<LocalVariableNode> localVarVariables;
     private boolean bodyRewritten;
     private boolean skipGeneration;
+    private String cacheFieldName;
 
     public RuleMethod(Class<?> ownerClass, int access, String name, String desc, String signature, String[] exceptions,
                       boolean hasExplicitActionOnlyAnno, boolean hasDontLabelAnno, boolean hasSkipActionsInPredicates) {
@@ -181,6 +182,14 @@ class RuleMethod extends MethodNode {
         this.bodyRewritten = true;
     }
 
+    public String getCacheFieldName() {
+        return cacheFieldName;
+    }
+
+    public void setCacheFieldName(String cacheFieldName) {
+        this.cacheFieldName = cacheFieldName;
+    }
+
     public boolean isSuperMethod() {
         checkState(StringUtils.isNotEmpty(name));
         return name.charAt(0) == '$';
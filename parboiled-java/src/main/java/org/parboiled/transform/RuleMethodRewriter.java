@@ -26,6 +26,8 @@ import static org.parboiled.common.Preconditions.*;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
+import java.util.List;
+
 import static org.objectweb.asm.Opcodes.*;
 import static org.parboiled.transform.AsmUtils.getLoadingOpcode;
 
@@ -46,14 +48,19 @@ class RuleMethodRewriter implements RuleMethodProcessor {
     }
 
     public void process(ParserClassNode classNode, RuleMethod method) throws Exception {
+        checkArgNotNull(classNode, "classNode");
         this.method = checkArgNotNull(method, "method");
         actionNr = 0;
         varInitNr = 0;
 
         for (InstructionGroup group : method.getGroups()) {
             this.group = group;
-            createNewGroupClassInstance();
-            initializeFields();
+            if (classNode.isActionsConsolidated()) {
+                createNewDispatchClassInstance(classNode);
+            } else {
+                createNewGroupClassInstance();
+                initializeFields();
+            }
 
             InstructionGraphNode root = group.getRoot();
             if (root.isActionRoot()) {
@@ -68,19 +75,64 @@ class RuleMethodRewriter implements RuleMethodProcessor {
 
     private void createNewGroupClassInstance() {
         String internalName = group.getGroupClassType().getInternalName();
-        InstructionGraphNode root = group.getRoot();
         insert(new TypeInsnNode(NEW, internalName));
         insert(new InsnNode(DUP));
-        insert(new LdcInsnNode(method.name +
-                (root.isActionRoot() ? "_Action" + ++actionNr : "_VarInit" + ++varInitNr)));
+        insert(new LdcInsnNode(createGroupInstanceName()));
         insert(new MethodInsnNode(INVOKESPECIAL, internalName, "<init>", "(Ljava/lang/String;)V", false));
+        insertSetSkipInPredicates();
+    }
 
-        if (root.isActionRoot() && method.hasSkipActionsInPredicatesAnnotation()) {
+    // creates the record of the dispatch class, holding the index of the group and its field values
+    private void createNewDispatchClassInstance(ParserClassNode classNode) {
+        String internalName = group.getGroupClassType().getInternalName();
+        insert(new TypeInsnNode(NEW, internalName));
+        insert(new InsnNode(DUP));
+        insert(new LdcInsnNode(createGroupInstanceName()));
+        // the index is only assigned once all rule methods are processed
+        LdcInsnNode indexInsn = new LdcInsnNode(0);
+        insert(indexInsn);
+        classNode.addDispatchedGroup(indexInsn, group);
+
+        List<FieldNode> fields = group.getFields();
+        if (fields.isEmpty()) {
+            insert(new InsnNode(ACONST_NULL));
+        } else {
+            insert(new LdcInsnNode(fields.size()));
+            insert(new TypeInsnNode(ANEWARRAY, "java/lang/Object"));
+            for (int i = 0; i < fields.size(); i++) {
+                FieldNode field = fields.get(i);
+                insert(new InsnNode(DUP));
+                insert(new LdcInsnNode(i));
+                // the FieldNodes access and value members have been reused for the var index / Type respectively!
+                insert(new VarInsnNode(getLoadingOpcode((Type) field.value), field.access));
+                insertBoxing((Type) field.value);
+                insert(new InsnNode(AASTORE));
+            }
+        }
+        insert(new MethodInsnNode(INVOKESPECIAL, internalName, "<init>",
+                DispatchClassGenerator.CONSTRUCTOR_DESC, false));
+        insertSetSkipInPredicates();
+    }
+
+    private String createGroupInstanceName() {
+        return method.name + (group.getRoot().isActionRoot() ? "_Action" + ++actionNr : "_VarInit" + ++varInitNr);
+    }
+
+    private void insertSetSkipInPredicates() {
+        if (group.getRoot().isActionRoot() && method.hasSkipActionsInPredicatesAnnotation()) {
             insert(new InsnNode(DUP));
-            insert(new MethodInsnNode(INVOKEVIRTUAL, internalName, "setSkipInPredicates", "()V", false));
+            insert(new MethodInsnNode(INVOKEVIRTUAL, group.getGroupClassType().getInternalName(),
+                    "setSkipInPredicates", "()V", false));
         }
     }
 
+    private void insertBoxing(Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) return;
+        Type boxedType = DispatchClassGenerator.getBoxedType(type);
+        insert(new MethodInsnNode(INVOKESTATIC, boxedType.getInternalName(), "valueOf",
+                "(" + type.getDescriptor() + ")" + boxedType.getDescriptor(), false));
+    }
+
     private void initializeFields() {
         String internalName = group.getGroupClassType().getInternalName();
         for (FieldNode field : group.getFields()) {
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import static org.parboiled.common.Preconditions.*;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import static org.objectweb.asm.Opcodes.*;
+import static org.parboiled.transform.AsmUtils.getLoadingOpcode;
+
+/**
+ * Makes the rule methods of parser instances created with newInstanceSharingRules() delegate to the instance
+ * owning the rules, so that all rules of such an instance are created by (and bound to) the owning instance.
+ */
+class RuleOwnerDelegationGenerator implements RuleMethodProcessor {
+
+    // the field holding the instance owning the rules, null for instances owning their rules themselves
+    static final String RULES_OWNER_FIELD = "rulesOwner$";
+
+    public boolean appliesTo(ParserClassNode classNode, RuleMethod method) {
+        checkArgNotNull(classNode, "classNode");
+        checkArgNotNull(method, "method");
+        return !method.isSuperMethod(); // super methods are only called from the (delegating) overriding methods
+    }
+
+    public void process(ParserClassNode classNode, RuleMethod method) throws Exception {
+        checkArgNotNull(classNode, "classNode");
+        checkArgNotNull(method, "method");
+
+        // generate: if (<owner> != null) return <owner>.<method>(<params>);
+        InsnList instructions = new InsnList();
+        // stack:
+        instructions.add(new VarInsnNode(ALOAD, 0));
+        // stack: <this>
+        instructions.add(new FieldInsnNode(GETFIELD, classNode.name, RULES_OWNER_FIELD, 'L' + classNode.name + ';'));
+        // stack: <owner>
+        instructions.add(new InsnNode(DUP));
+        // stack: <owner> :: <owner>
+        LabelNode isOwner = new LabelNode();
+        instructions.add(new JumpInsnNode(IFNULL, isOwner));
+        // stack: <owner>
+        int slot = 1;
+        for (Type paramType : Type.getArgumentTypes(method.desc)) {
+            instructions.add(new VarInsnNode(getLoadingOpcode(paramType), slot));
+            slot += paramType.getSize();
+        }
+        // stack: <owner> :: <params>
+        instructions.add(new MethodInsnNode(INVOKEVIRTUAL, classNode.name, method.name, method.desc, false));
+        // stack: <rule>
+        instructions.add(new InsnNode(ARETURN));
+        // stack: <null>
+        instructions.add(isOwner);
+        // stack: <null>
+        instructions.add(new InsnNode(POP));
+        // stack:
+
+        method.instructions.insert(instructions);
+    }
+
+}
@@ -31,6 +31,8 @@ interface Types {
     static final Type BASE_ACTION = Type.getType(BaseAction.class);
     static final Type BASE_VAR_INIT = Type.getType(BaseVarInit.class);
     static final Type BASE_PARSER = Type.getType(BaseParser.class);
+    static final Type BASE_ACTIONS = Type.getType(BaseActions.class);
+    static final Type CONTEXT_CALLS = Type.getType(ContextCalls.class);
     static final Type CONTEXT_AWARE = Type.getType(ContextAware.class);
     static final Type FACTORY = Type.getType(Factory.class);
     static final Type LABEL = Type.getType(Label.class);
@@ -52,6 +54,7 @@ interface Types {
     static final String SKIP_ACTIONS_IN_PREDICATES_DESC = Type.getType(SkipActionsInPredicates.class).getDescriptor();
     static final String DONT_SKIP_ACTIONS_IN_PREDICATES_DESC = Type.getType(DontSkipActionsInPredicates.class).getDescriptor();
     static final String BUILD_PARSE_TREE_DESC = Type.getType(BuildParseTree.class).getDescriptor();
+    static final String CONSOLIDATE_ACTIONS_DESC = Type.getType(ConsolidateActions.class).getDescriptor();
     static final String SKIP_NODE_DESC = Type.getType(SkipNode.class).getDescriptor();
     static final String MEMO_MISMATCHES_DESC = Type.getType(MemoMismatches.class).getDescriptor();
     static final String MATCHER_DESC = MATCHER.getDescriptor();
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled;
+
+import org.parboiled.errors.ActionException;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+import org.parboiled.support.Var;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+public class ConcurrentParsingTest {
+
+    static class Parser extends BaseParser<Integer> {
+
+        public Rule Sum() {
+            Var<Integer> sum = new Var<Integer>(0);
+            return Sequence(
+                    Number(), sum.set(pop()),
+                    ZeroOrMore('+', FirstOf(Number(), Parens()), sum.set(sum.get() + pop())),
+                    push(sum.get())
+            );
+        }
+
+        public Rule Parens() {
+            return Sequence('(', Sum(), ')');
+        }
+
+        public Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(Integer.parseInt(match())));
+        }
+
+        public Rule InputLine() {
+            return Sequence(Sum(), EOI);
+        }
+    }
+
+    static class ReleasingParser extends BaseParser<Object> {
+        Var<String> var;
+
+        public Rule Word() {
+            Var<String> var = new Var<String>("none");
+            this.var = var;
+            return Sequence(
+                    OneOrMore(CharRange('a', 'z')), var.set(match()), hasContext(),
+                    new Action() {
+                        public boolean run(Context context) {
+                            return getContext() == context;
+                        }
+                    },
+                    EOI
+            );
+        }
+
+        public Rule Failing() {
+            return Sequence('a', fail());
+        }
+
+        boolean hasContext() {
+            return getContext() != null;
+        }
+
+        boolean fail() {
+            throw new ActionException(getContext().getMatch());
+        }
+    }
+
+    @Test
+    public void testNoThreadStateLeftAfterRun() {
+        ReleasingParser parser = Parboiled.createParser(ReleasingParser.class);
+        assertTrue(new ReportingParseRunner<Object>(parser.Word()).run("abc").matched);
+        assertNull(parser.getContext());
+        assertEquals(parser.var.getLevel(), 0);
+        assertNull(parser.var.get()); // the value of the frame is gone with it
+
+        assertFalse(new ReportingParseRunner<Object>(parser.Failing()).run("a").matched);
+        assertNull(parser.getContext());
+    }
+
+    @Test
+    public void testSharedGrammar() throws Exception {
+        Parser parser = Parboiled.createParser(Parser.class);
+        final Rule rule = parser.InputLine();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 64; i++) {
+                final int n = i;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        int result = 0;
+                        for (int j = 0; j < 50; j++) {
+                            ParsingResult<Integer> parsingResult = new ReportingParseRunner<Integer>(rule)
+                                    .run(n + "+(1+(2+" + j + "))+3");
+                            result += parsingResult.resultValue;
+                        }
+                        return result;
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                int expected = 0;
+                for (int j = 0; j < 50; j++) expected += i + 1 + 2 + j + 3;
+                assertEquals(futures.get(i).get().intValue(), expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled;
+
+import org.parboiled.annotations.ConsolidateActions;
+import org.parboiled.annotations.SkipActionsInPredicates;
+import org.parboiled.matchers.ActionMatcher;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.Var;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ConsolidatedActionsTest {
+
+    static class Parser extends BaseParser<Integer> {
+        int factor = 1;
+
+        public Rule Line() {
+            Var<Integer> sum = new Var<Integer>(0);
+            return Sequence(
+                    Term('a', 1L), sum.set(pop()),
+                    ZeroOrMore(',', Term('b', 2L), sum.set(sum.get() + pop())),
+                    push(sum.get() * factor),
+                    EOI
+            );
+        }
+
+        @SkipActionsInPredicates
+        public Rule Term(char c, long weight) {
+            Var<String> text = new Var<String>("");
+            return Sequence(
+                    OneOrMore(c), text.set(match()),
+                    push((int) (text.get().length() * weight)),
+                    Test(ACTION(push(0) && drop()))
+            );
+        }
+    }
+
+    @ConsolidateActions
+    static class ConsolidatedParser extends Parser {}
+
+    @Test
+    public void testConsolidatedActions() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Parser consolidated = Parboiled.createParser(ConsolidatedParser.class);
+        consolidated.factor = parser.factor = 3;
+
+        for (String input : new String[] {"aa", "a,bbb", "aaa,b,bb", "a,c"}) {
+            assertEquals(run(consolidated.Line(), input), run(parser.Line(), input), input);
+        }
+        assertEquals(run(consolidated.Line(), "aaa,b,bb"), Integer.valueOf(3 * (3 + 2 + 4)));
+
+        // all actions are instances of the one dispatch class
+        Set<Class<?>> actionClasses = new HashSet<Class<?>>();
+        collectActionClasses((Matcher) consolidated.Line(), actionClasses, new HashSet<Matcher>());
+        assertEquals(actionClasses.size(), 1);
+        assertEquals(actionClasses.iterator().next().getName(), ConsolidatedParser.class.getName() +
+                "$$parboiled$Actions");
+
+        actionClasses.clear();
+        collectActionClasses((Matcher) parser.Line(), actionClasses, new HashSet<Matcher>());
+        assertTrue(actionClasses.size() > 1);
+    }
+
+    private static Integer run(Rule rule, String input) {
+        return new ReportingParseRunner<Integer>(rule).run(input).resultValue;
+    }
+
+    private static void collectActionClasses(Matcher matcher, Set<Class<?>> classes, Set<Matcher> visited) {
+        if (!visited.add(matcher)) return;
+        if (matcher instanceof ActionMatcher) classes.add(((ActionMatcher) matcher).action.getClass());
+        for (Matcher child : matcher.getChildren()) collectActionClasses(child, classes, visited);
+    }
+}
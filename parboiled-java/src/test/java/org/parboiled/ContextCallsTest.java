@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled;
+
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class ContextCallsTest {
+
+    static class Parser extends BaseParser<Integer> {
+
+        public Rule Sum() {
+            return Sequence(
+                    Number(),
+                    ZeroOrMore('+', Number(), swap() && push(pop() + pop())),
+                    push(pop() * matchLength()),
+                    EOI
+            );
+        }
+
+        public Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(match().length() + currentIndex()));
+        }
+    }
+
+    // overrides one of the BaseActions methods, which must still be called on the parser instance
+    static class DoublingParser extends Parser {
+        @Override
+        public boolean push(Integer value) {
+            return super.push(value * 2);
+        }
+    }
+
+    @Test
+    public void test() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        assertEquals(run(parser.Sum(), "12+3"), Integer.valueOf(((2 + 2) + (1 + 4)) * 2));
+
+        Parser doubling = Parboiled.createParser(DoublingParser.class);
+        assertEquals(run(doubling.Sum(), "12+3"), Integer.valueOf(((2 + 2) * 2 + (1 + 4) * 2) * 2 * 2 * 2));
+    }
+
+    private static Integer run(Rule rule, String input) {
+        ParsingResult<Integer> result = new ReportingParseRunner<Integer>(rule).run(input);
+        assertEquals(result.valueStack.size(), 1);
+        return result.resultValue;
+    }
+}
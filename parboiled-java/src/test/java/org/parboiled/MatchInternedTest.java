@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled;
+
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+import org.parboiled.support.SymbolTable;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class MatchInternedTest {
+
+    static class Parser extends BaseParser<String> {
+
+        public Rule Identifiers() {
+            return Sequence(Identifier(), ZeroOrMore(' ', Identifier()), EOI);
+        }
+
+        public Rule Identifier() {
+            return Sequence(OneOrMore(CharRange('a', 'z')), push(matchInterned()));
+        }
+    }
+
+    @Test
+    public void test() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        ParsingResult<String> result = new ReportingParseRunner<String>(parser.Identifiers()).run("foo bar foo");
+        assertEquals(result.valueStack.peek(2), "foo");
+        assertEquals(result.valueStack.peek(1), "bar");
+        assertSame(result.valueStack.peek(0), result.valueStack.peek(2));
+
+        // the symbol table of a parser is reused across runs and can be shared with other parsers
+        Parser other = Parboiled.createParser(Parser.class);
+        assertNotSame(other.getSymbolTable(), parser.getSymbolTable());
+        other.setSymbolTable(parser.getSymbolTable());
+        ParsingResult<String> otherResult = new ReportingParseRunner<String>(other.Identifiers()).run("bar");
+        assertSame(otherResult.resultValue, result.valueStack.peek(1));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled;
+
+import org.parboiled.annotations.Cached;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class RuleSharingTest {
+
+    static class Parser extends BaseParser<Integer> {
+
+        public Rule Line() {
+            return Sequence(Word(), ZeroOrMore(Separator(','), Word()), EOI);
+        }
+
+        public Rule Word() {
+            return Sequence(OneOrMore(CharRange('a', 'z')), push(match().length()));
+        }
+
+        @Cached
+        public Rule Separator(char c) {
+            return Sequence(c, ZeroOrMore(' '));
+        }
+
+        int count;
+
+        public Rule Counted(char c) {
+            return Sequence(c, ACTION(increment()));
+        }
+
+        boolean increment() {
+            count++;
+            return true;
+        }
+    }
+
+    @Test
+    public void testRuleSharing() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Rule line = parser.Line();
+
+        Parser sharing = parser.newInstanceSharingRules();
+        assertNotSame(sharing, parser);
+        assertSame(sharing.Line(), line);
+        assertSame(sharing.Word(), parser.Word());
+        assertSame(sharing.Separator(','), parser.Separator(','));
+        assertEquals(new BasicParseRunner<Integer>(sharing.Line()).run("abc, de,f").resultValue, Integer.valueOf(1));
+
+        // rules created later on are created by the original parser as well
+        Parser chained = sharing.newInstanceSharingRules();
+        Rule separator = chained.Separator(';');
+        assertSame(parser.Separator(';'), separator);
+        assertSame(sharing.Separator(';'), separator);
+
+        // so their actions access the fields of the original parser
+        Rule counted = sharing.Counted('x');
+        assertEquals(new BasicParseRunner<Integer>(counted).run("x").matched, true);
+        assertEquals(parser.count, 1);
+        assertEquals(sharing.count, 0);
+        assertEquals(chained.count, 0);
+
+        // unlike newInstance()
+        Parser other = parser.newInstance();
+        assertNotSame(other.Line(), line);
+    }
+}
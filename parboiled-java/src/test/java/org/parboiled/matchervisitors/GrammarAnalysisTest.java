@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.matchervisitors;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.matchers.MatcherUtils;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class GrammarAnalysisTest {
+
+    static class Parser extends BaseParser<Object> {
+
+        Rule List() {
+            return Sequence(Optional(Spacing()), Item(), ZeroOrMore(',', Spacing(), Item()), EOI);
+        }
+
+        Rule Item() {
+            return FirstOf(Sequence('[', Optional(List()), ']'), OneOrMore(NoneOf(",[] ")), EMPTY);
+        }
+
+        Rule Spacing() {
+            return OneOrMore(AnyOf(" \t"));
+        }
+    }
+
+    @Test
+    public void testSameResultsAsVisitors() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Matcher root = (Matcher) parser.List();
+        GrammarAnalysis analysis = new GrammarAnalysis(root);
+        Set<Matcher> actionFree = MatcherUtils.getActionFreeMatchers(root);
+
+        for (Matcher matcher : collectMatchers(root)) {
+            Boolean singleChar = analysis.isSingleCharMatcher(matcher);
+            assertEquals(singleChar, matcher.accept(new IsSingleCharMatcherVisitor()), matcher.toString());
+            Boolean canMatchEmpty = analysis.canMatchEmpty(matcher);
+            assertEquals(canMatchEmpty, matcher.accept(new CanMatchEmptyVisitor()), matcher.toString());
+            assertEquals(analysis.getStarterChar(matcher), matcher.accept(new GetStarterCharVisitor()),
+                    matcher.toString());
+            assertEquals(analysis.isActionFree(matcher), actionFree.contains(matcher), matcher.toString());
+        }
+    }
+
+    @Test
+    public void testAnalysisSharedPerRoot() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Matcher root = (Matcher) parser.List();
+        assertSame(GrammarAnalysis.of(root), GrammarAnalysis.of(root));
+        assertNotSame(GrammarAnalysis.of((Matcher) parser.Item()), GrammarAnalysis.of(root));
+    }
+
+    @Test
+    public void testDeterministicStarterCharOfSubtractiveSet() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Matcher noneOf = (Matcher) parser.NoneOf(" !\"");
+        assertEquals(noneOf.accept(new GetStarterCharVisitor()), Character.valueOf('#'));
+    }
+
+    private static List<Matcher> collectMatchers(Matcher root) {
+        Map<Matcher, Boolean> seen = new IdentityHashMap<Matcher, Boolean>();
+        List<Matcher> matchers = new ArrayList<Matcher>();
+        LinkedList<Matcher> todo = new LinkedList<Matcher>();
+        todo.add(root);
+        while (!todo.isEmpty()) {
+            Matcher matcher = todo.removeFirst();
+            if (seen.put(matcher, true) != null) continue;
+            matchers.add(matcher);
+            todo.addAll(matcher.getChildren());
+        }
+        return matchers;
+    }
+}
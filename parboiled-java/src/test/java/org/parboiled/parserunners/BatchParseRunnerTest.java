@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.common.Factory;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BatchParseRunnerTest {
+
+    static class Parser extends BaseParser<Integer> {
+
+        Rule InputLine() {
+            return Sequence(Number(), ZeroOrMore('+', Number(), push(pop() + pop())), EOI);
+        }
+
+        Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(Integer.parseInt(match())));
+        }
+    }
+
+    private final AtomicInteger parsersCreated = new AtomicInteger();
+
+    private final Factory<Rule> ruleFactory = new Factory<Rule>() {
+        public Rule create() {
+            parsersCreated.incrementAndGet();
+            return Parboiled.createParser(Parser.class).InputLine();
+        }
+    };
+
+    private static List<String> inputs(int count) {
+        List<String> inputs = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            inputs.add(i % 10 == 9 ? i + "+" : i + "+1+" + i);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void testOrderedResults() {
+        parsersCreated.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BatchParseRunner<Integer> runner = new BatchParseRunner<Integer>(ruleFactory, executor).withChunkSize(7);
+            List<ParsingResult<Integer>> results = runner.run(inputs(1000));
+            assertEquals(results.size(), 1000);
+            for (int i = 0; i < results.size(); i++) {
+                ParsingResult<Integer> result = results.get(i);
+                if (i % 10 == 9) {
+                    assertEquals(result.matched, false);
+                    assertEquals(result.parseErrors.size(), 1);
+                } else {
+                    assertEquals(result.resultValue, Integer.valueOf(2 * i + 1));
+                }
+            }
+            assertEquals(runner.getStatistics().inputs, 1000);
+            assertEquals(runner.getStatistics().matched, 900);
+            assertTrue(parsersCreated.get() <= 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testResultHandler() {
+        final AtomicIntegerArray values = new AtomicIntegerArray(500);
+        BatchParseRunner<Integer> runner = new BatchParseRunner<Integer>(ruleFactory);
+        runner.run(inputs(500), new BatchParseRunner.ResultHandler<Integer>() {
+            public void handle(int index, String input, ParsingResult<Integer> result) {
+                values.set(index, result.matched ? result.resultValue : -1);
+            }
+        });
+        for (int i = 0; i < 500; i++) {
+            assertEquals(values.get(i), i % 10 == 9 ? -1 : 2 * i + 1);
+        }
+        assertEquals(runner.getStatistics().inputs, 500);
+    }
+}
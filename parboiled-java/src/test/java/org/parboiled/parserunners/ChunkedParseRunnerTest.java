@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Node;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.common.Predicate;
+import org.parboiled.errors.ParseError;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ChunkedParseRunnerTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Integer> {
+
+        Rule InputLine() {
+            return Sequence(Records(), EOI);
+        }
+
+        Rule Records() {
+            return ZeroOrMore(Record());
+        }
+
+        Rule Record() {
+            return Sequence(Number(), Optional(' ', Quoted()), '\n');
+        }
+
+        Rule Quoted() {
+            return Sequence('"', ZeroOrMore(NoneOf("\"")), '"');
+        }
+
+        Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(Integer.parseInt(match())));
+        }
+    }
+
+    private static final Predicate<Character> NEWLINE = new Predicate<Character>() {
+        public boolean apply(Character c) {
+            return c == '\n';
+        }
+    };
+
+    private static String input(int records) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            sb.append(i);
+            if (i % 7 == 3) sb.append(" \"multi\nline\nvalue\"");
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSameResultAsSequentialRun() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String input = input(500);
+        ParsingResult<Integer> expected = new ReportingParseRunner<Integer>(parser.InputLine()).run(input);
+        ParsingResult<Integer> actual = new ChunkedParseRunner<Integer>(parser.Records(), NEWLINE)
+                .withChunkSize(100).run(input);
+
+        assertTrue(actual.matched);
+        assertEquals(values(actual), values(expected));
+
+        Node<Integer> expectedRecords = expected.parseTreeRoot.getChildren().get(0);
+        assertEquals(actual.parseTreeRoot.getLabel(), expectedRecords.getLabel());
+        assertEquals(actual.parseTreeRoot.getChildren().size(), 500);
+        for (int i = 0; i < 500; i++) {
+            Node<Integer> expectedNode = expectedRecords.getChildren().get(i);
+            Node<Integer> actualNode = actual.parseTreeRoot.getChildren().get(i);
+            assertEquals(actualNode.getStartIndex(), expectedNode.getStartIndex());
+            assertEquals(actualNode.getEndIndex(), expectedNode.getEndIndex());
+            assertEquals(actualNode.getParent(), actual.parseTreeRoot);
+        }
+    }
+
+    @Test
+    public void testGlobalErrorPositions() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String input = input(300);
+        int errorIndex = input.indexOf("\n250\n") + 3;
+        input = input.substring(0, errorIndex) + 'x' + input.substring(errorIndex);
+
+        ParsingResult<Integer> actual = new ChunkedParseRunner<Integer>(parser.Records(), NEWLINE)
+                .withChunkSize(100).run(input);
+        assertFalse(actual.matched);
+        assertFalse(actual.parseErrors.isEmpty());
+        ParseError error = actual.parseErrors.get(0);
+        assertEquals(error.getStartIndex(), errorIndex);
+        assertEquals(error.getInputBuffer().getPosition(errorIndex), actual.inputBuffer.getPosition(errorIndex));
+    }
+
+    private static List<Integer> values(ParsingResult<Integer> result) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (Integer value : result.valueStack) values.add(value);
+        return values;
+    }
+}
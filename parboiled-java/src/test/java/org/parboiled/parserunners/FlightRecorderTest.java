@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.errors.ParserRuntimeException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class FlightRecorderTest {
+
+    static class Parser extends BaseParser<Object> {
+
+        Rule Words() {
+            return Sequence(OneOrMore(Word(), Optional(' ')), EOI);
+        }
+
+        Rule Word() {
+            return Sequence(OneOrMore(CharRange('a', 'z')), check(match()));
+        }
+
+        boolean check(String word) {
+            if (word.equals("boom")) throw new IllegalStateException("boom");
+            return true;
+        }
+    }
+
+    private final Parser parser = Parboiled.createParser(Parser.class);
+
+    @Test
+    public void testDumpAttachedToException() {
+        FlightRecorder recorder = new FlightRecorder(4);
+        try {
+            new BasicParseRunner<Object>(parser.Words()).withFlightRecorder(recorder).run("ab boom");
+            fail();
+        } catch (ParserRuntimeException e) {
+            assertEquals(e.getSuppressed().length, 1);
+            assertTrue(e.getSuppressed()[0] instanceof FlightRecorder.Dump);
+            assertEquals(e.getSuppressed()[0].getMessage(), "" +
+                    "Last 4 of 15 rule matching events:\n" +
+                    "          a..z, matched 1:6 - 1:7\n" +
+                    "          a..z, matched 1:7 - 1:8\n" +
+                    "          a..z, failed 1:8 - 1:8\n" +
+                    "        OneOrMore, matched 1:4 - 1:8\n"); // the action threw right after
+        }
+    }
+
+    @Test
+    public void testDumpOfReportingRun() {
+        FlightRecorder recorder = new FlightRecorder(3);
+        ParseRunner<Object> runner = new ReportingParseRunner<Object>(parser.Words()).withFlightRecorder(recorder);
+        assertTrue(runner.run("ab 1").hasErrors());
+        assertTrue(recorder.getEvents() > 4);
+        assertEquals(recorder.dump().split("\n").length, 5); // header plus the four events kept
+    }
+
+    @Test
+    public void testIterativeRunnerRecordsSameEvents() {
+        FlightRecorder expected = new FlightRecorder(64);
+        FlightRecorder actual = new FlightRecorder(64);
+        new BasicParseRunner<Object>(parser.Words()).withFlightRecorder(expected).run("ab cd");
+        new IterativeParseRunner<Object>(parser.Words()).withFlightRecorder(actual).run("ab cd");
+        assertEquals(actual.dump(), expected.dump());
+
+        try {
+            new IterativeParseRunner<Object>(parser.Words()).withFlightRecorder(new FlightRecorder(4)).run("ab boom");
+            fail();
+        } catch (ParserRuntimeException e) {
+            assertEquals(e.getSuppressed().length, 1);
+            assertEquals(e.getSuppressed()[0].getMessage(), "" +
+                    "Last 4 of 15 rule matching events:\n" +
+                    "          a..z, matched 1:6 - 1:7\n" +
+                    "          a..z, matched 1:7 - 1:8\n" +
+                    "          a..z, failed 1:8 - 1:8\n" +
+                    "        OneOrMore, matched 1:4 - 1:8\n");
+        }
+    }
+}
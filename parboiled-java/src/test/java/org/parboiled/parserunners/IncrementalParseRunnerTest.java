@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Node;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import static org.parboiled.errors.ErrorUtils.printParseErrors;
+import static org.parboiled.support.ParseTreeUtils.printNodeTree;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class IncrementalParseRunnerTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Integer> {
+
+        Rule Document() {
+            return Sequence(push(0), ZeroOrMore(Statement(), push(pop() + 1)), EOI);
+        }
+
+        Rule Statement() {
+            return Sequence(Name(), Optional('=', Spacing(), FirstOf(Name(), Block())), ';', Spacing());
+        }
+
+        Rule Block() {
+            return Sequence('{', Spacing(), ZeroOrMore(Statement()), '}', Spacing());
+        }
+
+        Rule Name() {
+            return Sequence(OneOrMore(CharRange('a', 'z')), TestNot(CharRange('0', '9')), Spacing());
+        }
+
+        Rule Spacing() {
+            return ZeroOrMore(AnyOf(" \n"));
+        }
+    }
+
+    private static final String TEXT = "alpha;\nbeta = { gamma; delta = x; };\nepsilon = zeta;\n";
+
+    private static void assertSameAsFullRun(Parser parser, ParsingResult<Integer> actual, String text) {
+        ParsingResult<Integer> expected = new ReportingParseRunner<Integer>(parser.Document()).run(text);
+        assertEquals(actual.matched, expected.matched);
+        assertEquals(actual.resultValue, expected.resultValue);
+        assertEquals(printNodeTree(actual), printNodeTree(expected));
+        assertEquals(printParseErrors(actual), printParseErrors(expected));
+    }
+
+    @Test
+    public void testEdits() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        IncrementalParseRunner<Integer> runner = new IncrementalParseRunner<Integer>(parser.Document());
+        ParsingResult<Integer> result = runner.run(TEXT);
+        assertSameAsFullRun(parser, result, TEXT);
+        Node<Integer> first = result.parseTreeRoot.getChildren().get(0).getChildren().get(0).getChildren().get(0);
+
+        // rename "delta" to "deltaprime"
+        String text = TEXT.replace("delta", "deltaprime");
+        result = runner.reparse(TEXT.indexOf("delta") + 5, 0, "prime");
+        assertSameAsFullRun(parser, result, text);
+        assertSame(result.parseTreeRoot.getChildren().get(0).getChildren().get(0).getChildren().get(0), first);
+
+        // insert a statement in front of everything
+        String text2 = "omega;\n" + text;
+        result = runner.reparse(0, 0, "omega;\n");
+        assertSameAsFullRun(parser, result, text2);
+        assertEquals(result.resultValue, Integer.valueOf(4));
+
+        // break the input and repair it again
+        String text3 = text2.replace("zeta", "ze3ta");
+        result = runner.reparse(text2.indexOf("zeta") + 2, 0, "3");
+        assertFalse(result.matched);
+        assertSameAsFullRun(parser, result, text3);
+
+        result = runner.reparse(text2.indexOf("zeta") + 2, 1, "");
+        assertTrue(result.matched);
+        assertSameAsFullRun(parser, result, text2);
+    }
+
+    @Test
+    public void testEditAffectingLookahead() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        IncrementalParseRunner<Integer> runner = new IncrementalParseRunner<Integer>(parser.Document());
+        String text = "abc;de;";
+        assertTrue(runner.run(text).matched);
+
+        // the TestNot behind "abc" looks at the character following the name
+        ParsingResult<Integer> result = runner.reparse(3, 0, "7");
+        assertFalse(result.matched);
+        assertSameAsFullRun(parser, result, "abc7;de;");
+    }
+
+    @Test
+    public void testManyEdits() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        IncrementalParseRunner<Integer> runner = new IncrementalParseRunner<Integer>(parser.Document());
+        ParsingResult<Integer> result = runner.run(TEXT);
+        Node<Integer> first = result.parseTreeRoot.getChildren().get(0).getChildren().get(0).getChildren().get(0);
+
+        // more edits than the edit log holds, entries revalidated by every run must survive them
+        String text = TEXT;
+        int offset = TEXT.indexOf("epsilon") + 3;
+        for (int i = 0; i < 50; i++) {
+            boolean insert = i % 2 == 0;
+            text = insert ? text.substring(0, offset) + "q" + text.substring(offset) :
+                    text.substring(0, offset) + text.substring(offset + 1);
+            result = insert ? runner.reparse(offset, 0, "q") : runner.reparse(offset, 1, "");
+            assertSameAsFullRun(parser, result, text);
+            if (!insert && i % 7 == 1) offset--;
+        }
+        assertSame(result.parseTreeRoot.getChildren().get(0).getChildren().get(0).getChildren().get(0), first);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.annotations.MemoMismatches;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.errors.ParseError;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.support.DefaultValueStack;
+import org.parboiled.support.ParsingResult;
+import org.parboiled.support.Var;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static org.parboiled.support.ParseTreeUtils.printNodeTree;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class IterativeParseRunnerTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Integer> {
+
+        Rule Expression() {
+            return Sequence(Term(), ZeroOrMore(AnyOf("+-"), Term(), push(pop() + pop())), EOI);
+        }
+
+        Rule Term() {
+            return FirstOf(Number(), Parens());
+        }
+
+        Rule Parens() {
+            Var<Integer> depth = new Var<Integer>(0);
+            return Sequence('(', Optional(TestNot(')'), Nested(), depth.set(depth.get() + 1)), ')',
+                    push(depth.get()));
+        }
+
+        @MemoMismatches
+        Rule Nested() {
+            return Sequence(Term(), ZeroOrMore(AnyOf("+-"), Term(), push(pop() + pop())), drop());
+        }
+
+        Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(Integer.parseInt(match())));
+        }
+
+        Rule Deep() {
+            return Sequence(Inner(), EOI);
+        }
+
+        Rule Inner() {
+            return Sequence('[', Optional(Inner()), ']');
+        }
+    }
+
+    @Test
+    public void testSameResultsAsBasicParseRunner() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String[] inputs = {"1+2", "(1+2)-3", "((4)+(5+6))", "1+", "(1", "x", ""};
+        for (String input : inputs) {
+            ParsingResult<Integer> expected = new BasicParseRunner<Integer>(parser.Expression()).run(input);
+            ParsingResult<Integer> actual = new IterativeParseRunner<Integer>(parser.Expression()).run(input);
+            assertEquals(actual.matched, expected.matched, input);
+            assertEquals(actual.resultValue, expected.resultValue, input);
+            assertEquals(printNodeTree(actual), printNodeTree(expected), input);
+        }
+    }
+
+    @Test
+    public void testDeeplyNestedInput() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        int depth = 200000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) sb.append('[');
+        for (int i = 0; i < depth; i++) sb.append(']');
+
+        ParsingResult<Integer> result = new IterativeParseRunner<Integer>(parser.Deep().suppressNode())
+                .run(sb.toString());
+        assertTrue(result.matched);
+
+        sb.setCharAt(depth, ')');
+        result = new IterativeParseRunner<Integer>(parser.Deep().suppressNode()).run(sb.toString());
+        assertTrue(!result.matched);
+    }
+
+    @Test
+    public void testCompositeMatchHandler() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String[] inputs = {"1+2", "(1+2)-3", "((4)+(5+6))", "1+", "(1", "x"};
+        for (String input : inputs) {
+            // the recursive matching reports every match to the handler, inner matches first
+            final StringBuilder expected = new StringBuilder();
+            MatchHandler recording = new MatchHandler() {
+                public boolean match(MatcherContext<?> context) {
+                    boolean matched = context.getMatcher().match(context);
+                    record(expected, context, matched);
+                    return matched;
+                }
+            };
+            new MatcherContext<Integer>(new DefaultInputBuffer(input.toCharArray()),
+                    new DefaultValueStack<Integer>(), new ArrayList<ParseError>(), recording, (Matcher) parser.Expression(),
+                    true).runMatcher();
+
+            final StringBuilder actual = new StringBuilder();
+            final int[] open = new int[1];
+            new IterativeParseRunner<Integer>(parser.Expression(), new IterativeParseRunner.CompositeMatchHandler() {
+                public boolean match(MatcherContext<?> context) {
+                    boolean matched = context.getMatcher().match(context);
+                    record(actual, context, matched);
+                    return matched;
+                }
+
+                public void enterComposite(MatcherContext<?> context) {
+                    open[0]++;
+                }
+
+                public void exitComposite(MatcherContext<?> context, boolean matched) {
+                    open[0]--;
+                    record(actual, context, matched);
+                }
+            }).run(input);
+
+            assertEquals(actual.toString(), expected.toString(), input);
+            assertEquals(open[0], 0, input);
+        }
+    }
+
+    private static void record(StringBuilder sb, MatcherContext<?> context, boolean matched) {
+        sb.append(context.getMatcher().getLabel()).append(' ').append(context.getStartIndex()).append('-')
+                .append(context.getCurrentIndex()).append(matched ? '\n' : '!');
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.parboiled.errors.ErrorUtils.printParseErrors;
+import static org.parboiled.support.ParseTreeUtils.printNodeTree;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ParallelRecoveryTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Object> {
+
+        Rule Expression() {
+            return Sequence(Term(), ZeroOrMore(AnyOf("+-"), Term(), push((Integer) pop() + (Integer) pop())), EOI);
+        }
+
+        Rule Term() {
+            return FirstOf(Number(), Sequence('(', Expression(), ')'));
+        }
+
+        Rule Number() {
+            // the number of digits, which (unlike the number value) is defined for all matches during recovery
+            return Sequence(OneOrMore(CharRange('0', '9')), push(match().length()));
+        }
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSameResultsAsSequentialRecovery() {
+        SimpleErrorRecoveryTest.Parser parser = Parboiled.createParser(SimpleErrorRecoveryTest.Parser.class);
+        String[] inputs = {"AaA", "Alice has anximals", "Alixyce has animals", "Alicexy has animals",
+                "Alize has animals", "Alixce and Emlio lofe animals", "Bob and and Doreen hate cars"};
+        for (String input : inputs) {
+            assertSameResults(parser.Clause(), input);
+        }
+    }
+
+    @Test
+    public void testSameValuesAsSequentialRecovery() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String[] inputs = {"1+2", "1+x2", "(1+2-3", "((4)+(5+6)))", "1++2+(3-)", "x"};
+        for (String input : inputs) {
+            assertSameResults(parser.Expression(), input);
+        }
+    }
+
+    @Test
+    public void testCandidatesTerminateBeforeFixIsApplied() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        RecordingExecutor recordingExecutor = new RecordingExecutor();
+        try {
+            // deleting the 'x' fixes the input, which ends the evaluation while the insertion and replacement
+            // candidates (for the starter chars '0' and '(') might still be pending or running
+            for (String input : new String[] {"1+x2", "(1+x2)-x3+4"}) {
+                recordingExecutor.tasks = 0;
+                ParsingResult<Object> actual = new RecoveringParseRunner<Object>(parser.Expression())
+                        .withRepairExecutor(recordingExecutor).run(input);
+                assertTrue(recordingExecutor.tasks >= 5, input);
+                assertEquals(recordingExecutor.unfinished.get(), 0, input);
+                ParsingResult<Object> expected = new RecoveringParseRunner<Object>(parser.Expression()).run(input);
+                assertEquals(printParseErrors(actual), printParseErrors(expected), input);
+                assertEquals(printNodeTree(actual), printNodeTree(expected), input);
+            }
+        } finally {
+            recordingExecutor.shutdown();
+        }
+    }
+
+    // counts the tasks it is given and how many of them have not yet returned from their call() method
+    private static class RecordingExecutor extends ThreadPoolExecutor {
+        private final AtomicInteger unfinished = new AtomicInteger();
+        private volatile int tasks;
+
+        private RecordingExecutor() {
+            super(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+            tasks++;
+            unfinished.incrementAndGet();
+            return new FutureTask<T>(new Callable<T>() {
+                public T call() throws Exception {
+                    try {
+                        return callable.call();
+                    } finally {
+                        unfinished.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    private void assertSameResults(Rule rule, String input) {
+        ParsingResult<Object> expected = new RecoveringParseRunner<Object>(rule).run(input);
+        ParsingResult<Object> actual = new RecoveringParseRunner<Object>(rule).withRepairExecutor(executor).run(input);
+        assertEquals(actual.matched, expected.matched, input);
+        assertEquals(printParseErrors(actual), printParseErrors(expected), input);
+        assertEquals(printNodeTree(actual), printNodeTree(expected), input);
+        assertEquals(actual.resultValue, expected.resultValue, input);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.common.StringUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ParseBudgetTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Object> {
+
+        // matching "a"s followed by an unexpected char takes exponential time
+        Rule Pathological() {
+            return Sequence(A(), EOI);
+        }
+
+        Rule A() {
+            return FirstOf(Sequence('a', A(), 'b'), Sequence('a', A(), 'c'), 'a');
+        }
+
+        Rule Letters() {
+            return Sequence(ZeroOrMore(Letter()), EOI);
+        }
+
+        Rule Letter() {
+            return CharRange('a', 'z');
+        }
+    }
+
+    private final Parser parser = Parboiled.createParser(Parser.class);
+    private final String pathological = StringUtils.repeat('a', 40) + 'x';
+
+    @Test
+    public void testStepLimit() {
+        assertExceeded(new BasicParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withMaxSteps(10000), ParseBudget.Limit.STEPS);
+        assertExceeded(new ReportingParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withMaxSteps(10000), ParseBudget.Limit.STEPS);
+        assertExceeded(new RecoveringParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withMaxSteps(10000), ParseBudget.Limit.STEPS);
+        assertExceeded(new IterativeParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withMaxSteps(10000), ParseBudget.Limit.STEPS);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        assertExceeded(new BasicParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withTimeout(20), ParseBudget.Limit.TIME);
+    }
+
+    @Test
+    public void testCancellation() {
+        ParseBudget budget = new ParseBudget();
+        budget.cancel();
+        assertExceeded(new ReportingParseRunner<Object>(parser.Letters()), "abc", budget,
+                ParseBudget.Limit.CANCELLED);
+    }
+
+    @Test
+    public void testNodeLimit() {
+        ParseBudget budget = new ParseBudget().withMaxNodes(10);
+        assertTrue(new BasicParseRunner<Object>(parser.Letters()).withBudget(budget).run("abcd").matched);
+        assertExceeded(new BasicParseRunner<Object>(parser.Letters()), "abcdefghijkl", budget,
+                ParseBudget.Limit.NODES);
+    }
+
+    @Test
+    public void testMemoLimit() {
+        assertExceeded(new IncrementalParseRunner<Object>(parser.Pathological()), pathological,
+                new ParseBudget().withMaxMemoEntries(20), ParseBudget.Limit.MEMO_ENTRIES);
+    }
+
+    @Test
+    public void testBudgetIsMeteredPerRun() {
+        ParseRunner<Object> runner = new ReportingParseRunner<Object>(parser.Letters())
+                .withBudget(new ParseBudget().withMaxSteps(100));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(runner.run("abcdefghij").matched);
+        }
+    }
+
+    private static void assertExceeded(AbstractParseRunner<Object> runner, String input, ParseBudget budget,
+                                       ParseBudget.Limit limit) {
+        try {
+            runner.withBudget(budget).run(input);
+            fail();
+        } catch (ParseBudgetExceededException e) {
+            assertEquals(e.limit, limit);
+            assertTrue(e.path != null);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ParserMetricsTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Integer> {
+
+        // sums up the number of digits
+        Rule Sum() {
+            return Sequence(Number(), ZeroOrMore('+', Number(), push(pop() + pop())), EOI);
+        }
+
+        // the first alternative backtracks over all digits of numbers not followed by a '.'
+        Rule Number() {
+            return FirstOf(Sequence(Digits(), '.', Digits(), push(0)), Sequence(Digits(), push(match().length())));
+        }
+
+        Rule Digits() {
+            return OneOrMore(CharRange('0', '9'));
+        }
+    }
+
+    static class OtherParser extends Parser {}
+
+    private static class Recorder implements ParserMetrics {
+        private final List<RunMetrics> runs = new ArrayList<RunMetrics>();
+
+        public void record(RunMetrics run) {
+            runs.add(run);
+        }
+    }
+
+    private final Parser parser = Parboiled.createParser(Parser.class);
+
+    @Test
+    public void testRunMetrics() {
+        Recorder recorder = new Recorder();
+        ParseRunner<Integer> runner = new ReportingParseRunner<Integer>(parser.Sum()).withMetrics(recorder);
+        assertEquals(runner.run("12+345+6").resultValue, Integer.valueOf(6));
+        assertEquals(recorder.runs.size(), 1);
+
+        RunMetrics run = recorder.runs.get(0);
+        assertEquals(run.rootMatcher.getLabel(), "Sum");
+        assertTrue(run.matched);
+        assertEquals(run.characters, 8);
+        assertEquals(run.rewinds, 2 + 3 + 1);
+        assertEquals(run.valueStackSize, 2);
+        assertEquals(run.errors, 0);
+        assertTrue(run.matcherInvocations > 0);
+        assertTrue(run.nodes > 0);
+
+        // the budget counts the same invocations
+        new ReportingParseRunner<Integer>(parser.Sum())
+                .withBudget(new ParseBudget().withMaxSteps(run.matcherInvocations)).run("12+345+6");
+    }
+
+    @Test
+    public void testRecoveryMetrics() {
+        Recorder recorder = new Recorder();
+        ParseRunner<Integer> runner = new RecoveringParseRunner<Integer>(parser.Sum()).withMetrics(recorder);
+        assertTrue(runner.run("1+x2").hasErrors());
+        assertEquals(recorder.runs.size(), 1);
+
+        RunMetrics run = recorder.runs.get(0);
+        assertTrue(run.matched); // on the repaired input
+        assertEquals(run.errors, 1);
+        assertEquals(run.recoveries, 1);
+        assertTrue(run.memoHits + run.memoMisses > 0);
+    }
+
+    @Test
+    public void testJmxMetrics() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JmxParserMetrics metrics = new JmxParserMetrics(server, "org.parboiled.test", Parser.class);
+        // another parser with an equally named entry rule gets its own MBean
+        JmxParserMetrics otherMetrics = new JmxParserMetrics(server, "org.parboiled.test", OtherParser.class);
+        try {
+            ParseRunner<Integer> runner = new BasicParseRunner<Integer>(parser.Sum()).withMetrics(metrics);
+            runner.run("1+2");
+            runner.run("3+");
+            OtherParser otherParser = Parboiled.createParser(OtherParser.class);
+            new BasicParseRunner<Integer>(otherParser.Sum()).withMetrics(otherMetrics).run("4");
+
+            ObjectName name = new ObjectName("org.parboiled.test:type=ParserMetrics,parser=\"" +
+                    Parser.class.getName() + "\",rule=\"Sum\"");
+            assertEquals(server.getAttribute(name, "Runs"), 2L);
+            assertEquals(server.getAttribute(name, "FailedRuns"), 1L);
+            assertEquals(server.getAttribute(name, "Characters"), 5L);
+            assertEquals(metrics.get("Sum").getRuns(), 2L);
+            assertEquals(server.getAttribute(otherMetrics.getObjectName("Sum"), "Runs"), 1L);
+        } finally {
+            metrics.unregister();
+            otherMetrics.unregister();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ProfileExportTest {
+
+    static class Parser extends BaseParser<Object> {
+
+        Rule List() {
+            return Sequence(Item(), ZeroOrMore(';', Item()), EOI);
+        }
+
+        Rule Item() {
+            return OneOrMore(Digit());
+        }
+
+        Rule Digit() {
+            return CharRange('0', '9');
+        }
+    }
+
+    @Test
+    public void testCollapsedStacks() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        ProfilingParseRunner<Object> runner = new ProfilingParseRunner<Object>(parser.List()).withStackProfiling();
+        assertTrue(runner.run("12;3").matched);
+        assertTrue(runner.run("4").matched);
+
+        Map<String, Long> invocations = parse(runner.getReport().printCollapsedStackInvocations());
+        assertEquals(invocations.get("List"), Long.valueOf(2));
+        assertEquals(invocations.get("List;Item"), Long.valueOf(2));
+        assertEquals(invocations.get("List;Item;Digit"), Long.valueOf(5));
+        assertEquals(invocations.get("List;ZeroOrMore;Sequence;'\\u003b'"), Long.valueOf(3));
+        assertEquals(invocations.get("List;ZeroOrMore;Sequence;Item"), Long.valueOf(1));
+        assertEquals(invocations.get("List;ZeroOrMore;Sequence;Item;Digit"), Long.valueOf(2));
+        assertEquals(invocations.get("List;EOI"), Long.valueOf(2));
+
+        // every self time belongs to an invoked rule path
+        for (String stack : parse(runner.getReport().printCollapsedStackTimes()).keySet()) {
+            assertTrue(invocations.containsKey(stack), stack);
+        }
+    }
+
+    @Test
+    public void testRuleProfileEvents() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        ProfilingParseRunner<Object> runner = new ProfilingParseRunner<Object>(parser.List());
+        runner.run("1;2;3");
+        ProfilingParseRunner.Report report = runner.getReport();
+
+        int invokedRules = 0;
+        for (ProfilingParseRunner.RuleReport rep : report.ruleReports) {
+            if (rep.getInvocations() > 0) invokedRules++;
+        }
+        assertEquals(RuleProfileEvents.emit(report), RuleProfileEvents.isAvailable() ? invokedRules : 0);
+    }
+
+    private static Map<String, Long> parse(String collapsedStacks) {
+        Map<String, Long> map = new HashMap<String, Long>();
+        for (String line : collapsedStacks.split("\n")) {
+            int space = line.lastIndexOf(' ');
+            map.put(line.substring(0, space), Long.parseLong(line.substring(space + 1)));
+        }
+        return map;
+    }
+}
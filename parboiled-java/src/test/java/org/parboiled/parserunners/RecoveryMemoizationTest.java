@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import static org.parboiled.errors.ErrorUtils.printParseErrors;
+import static org.parboiled.support.ParseTreeUtils.printNodeTree;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RecoveryMemoizationTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Integer> {
+
+        Rule Document() {
+            return Sequence(push(0), ZeroOrMore(FirstOf(Declaration(), Assignment())), EOI);
+        }
+
+        Rule Declaration() {
+            return Sequence("let", Spacing(), Identifier(), ';', Spacing());
+        }
+
+        Rule Assignment() {
+            return Sequence(Identifier(), '=', Spacing(), Value(), ';', Spacing());
+        }
+
+        Rule Value() {
+            return FirstOf(Number(), Identifier(), List());
+        }
+
+        Rule List() {
+            return Sequence('[', Spacing(), Optional(Value(), ZeroOrMore(',', Spacing(), Value())), ']', Spacing());
+        }
+
+        Rule Identifier() {
+            return Sequence(OneOrMore(CharRange('a', 'z')), Spacing());
+        }
+
+        Rule Number() {
+            // sums up all numbers, the action depends on the error markings of the memoizable Digits rule
+            return Sequence(Digits(), push(pop() + Integer.parseInt(matchOrDefault("0"))), Spacing());
+        }
+
+        Rule Digits() {
+            return OneOrMore(CharRange('0', '9'));
+        }
+
+        Rule Spacing() {
+            return ZeroOrMore(AnyOf(" \n"));
+        }
+    }
+
+    private static class Metrics implements ParserMetrics {
+        private RunMetrics run;
+
+        public void record(RunMetrics run) {
+            this.run = run;
+        }
+    }
+
+    @Test
+    public void testSameResultsWithoutMemoization() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        // multiple errors, where the markers of the earlier fixes (deletions, insertions and resynchronizations)
+        // lie in front of the later errors
+        String[] inputs = {
+                "a = 1;\nb = 2x;\nc = 3;\nd = [1, 2 3];\ne = 4;\n",
+                "a = 1;\nlet 2;\nc = [1,,2];\nlet d;\n",
+                "a = 1;\nb = %%%% ;\nc = 2;\nd = 3 3 3;\ne = 5;\n",
+                "a = 12x;\nb = [,23, x;\nc = [14, [25, 36]];\nd = 47;\n",
+                "a = 1%2;\nb = [x23, ];\nc = [14, [25, 36]];\nd = 47;\n",
+                "a = 12;\nb = [23 x];\nc = [14, [25, 6]];\nd = %47\n",
+                "a = 12;\nb = [23, x];\nc = [14,[ [25, =36];\nd =5 47;\n"
+        };
+        for (String input : inputs) {
+            ParsingResult<Integer> expected =
+                    new RecoveringParseRunner<Integer>(parser.Document()).withoutMemoization().run(input);
+            ParsingResult<Integer> actual = new RecoveringParseRunner<Integer>(parser.Document()).run(input);
+            assertTrue(expected.parseErrors.size() > 1, input);
+            assertEquals(printParseErrors(actual), printParseErrors(expected), input);
+            assertEquals(printNodeTree(actual), printNodeTree(expected), input);
+            assertEquals(actual.resultValue, expected.resultValue, input);
+        }
+    }
+
+    @Test
+    public void testMemoHitsAcrossRuns() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) sb.append("let abc;\n");
+        String input = sb.append("x = 1 2;\ny = [3 4];\nz = [5,, 6];\n").toString();
+
+        Metrics withMemo = new Metrics();
+        Metrics withoutMemo = new Metrics();
+        ParsingResult<Integer> expected = new RecoveringParseRunner<Integer>(parser.Document()).withoutMemoization()
+                .withMetrics(withoutMemo).run(input);
+        ParsingResult<Integer> actual = new RecoveringParseRunner<Integer>(parser.Document())
+                .withMetrics(withMemo).run(input);
+        assertEquals(printParseErrors(actual), printParseErrors(expected));
+        assertEquals(actual.resultValue, expected.resultValue);
+
+        assertEquals(withoutMemo.run.memoHits, 0);
+        assertTrue(withMemo.run.memoHits >= 200, String.valueOf(withMemo.run.memoHits));
+        // the trial runs for the errors at the end skip over the first 200 statements with one memo hit each,
+        // only the basic, reporting and final runs still match them completely
+        assertTrue(withMemo.run.matcherInvocations * 2 < withoutMemo.run.matcherInvocations,
+                withMemo.run.matcherInvocations + " vs. " + withoutMemo.run.matcherInvocations);
+    }
+}
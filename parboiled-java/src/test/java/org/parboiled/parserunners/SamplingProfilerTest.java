@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.matchers.Matcher;
+import org.testng.annotations.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class SamplingProfilerTest {
+
+    static class Parser extends BaseParser<Object> {
+
+        Rule Clause() {
+            return Sequence(OneOrMore(Word(), Optional(',')), '.', EOI);
+        }
+
+        Rule Word() {
+            return Sequence(Spacing(), OneOrMore(Letter()));
+        }
+
+        Rule Letter() {
+            return FirstOf(CharRange('a', 'z'), CharRange('A', 'Z'));
+        }
+
+        Rule Spacing() {
+            return ZeroOrMore(' ');
+        }
+    }
+
+    static class TimedParser extends BaseParser<Object> {
+        static final long SLOW_NANOS = 20000;
+        long spinTime; // the time actually spent in spin()
+
+        Rule Root() {
+            return Sequence(OneOrMore(Pair()), EOI);
+        }
+
+        Rule Pair() {
+            return Sequence(Slow(), Fast());
+        }
+
+        Rule Slow() {
+            return Sequence('s', ACTION(spin()));
+        }
+
+        Rule Fast() {
+            return Ch('f');
+        }
+
+        boolean spin() {
+            long start = System.nanoTime(), now;
+            while ((now = System.nanoTime()) < start + SLOW_NANOS) ;
+            spinTime += now - start;
+            return true;
+        }
+    }
+
+    @Test
+    public void testSamplingCountsMatchFullProfiling() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String[] inputs = {"Some words, and more words.", "Missing the dot", "A."};
+
+        ProfilingParseRunner<Object> full = new ProfilingParseRunner<Object>(parser.Clause());
+        ProfilingParseRunner<Object> sampling = new ProfilingParseRunner<Object>(parser.Clause()).withSampling(7);
+        for (String input : inputs) {
+            assertEquals(sampling.run(input).matched, full.run(input).matched);
+        }
+
+        ProfilingParseRunner.Report fullReport = full.getReport();
+        ProfilingParseRunner.Report samplingReport = sampling.getReport();
+        assertEquals(samplingReport.totalRuns, 3);
+        assertEquals(samplingReport.totalMatches, fullReport.totalMatches);
+        assertEquals(samplingReport.totalMismatches, fullReport.totalMismatches);
+        assertEquals(samplingReport.reinvocations, 0);
+        assertTrue(samplingReport.totalNanoTime > 0);
+
+        Map<Matcher, ProfilingParseRunner.RuleReport> fullRules = byMatcher(fullReport);
+        Map<Matcher, ProfilingParseRunner.RuleReport> samplingRules = byMatcher(samplingReport);
+        assertEquals(samplingRules.keySet(), fullRules.keySet());
+        for (Matcher matcher : fullRules.keySet()) {
+            ProfilingParseRunner.RuleReport expected = fullRules.get(matcher);
+            ProfilingParseRunner.RuleReport actual = samplingRules.get(matcher);
+            assertEquals(actual.getMatches(), expected.getMatches(), matcher.getLabel());
+            assertEquals(actual.getMismatches(), expected.getMismatches(), matcher.getLabel());
+            assertEquals(actual.getMatchSubs(), expected.getMatchSubs(), matcher.getLabel());
+            assertEquals(actual.getMismatchSubs(), expected.getMismatchSubs(), matcher.getLabel());
+        }
+    }
+
+    @Test
+    public void testSampledTimeAttribution() {
+        TimedParser parser = Parboiled.createParser(TimedParser.class);
+        // warm up, so that single (extrapolated) class loading or compilation pauses do not distort the numbers
+        for (int i = 0; i < 100; i++) new ProfilingParseRunner<Object>(parser.Root()).withSampling(3).run("sfsf");
+
+        // the timed invocations are chosen randomly and pauses of the test machine hitting them are amplified by the
+        // extrapolation, so a single measurement can be off by chance, a systematic misattribution fails every attempt
+        String failure = null;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            failure = measureTimeAttribution(parser);
+            if (failure == null) return;
+        }
+        fail(failure);
+    }
+
+    // returns null if the sampled times match the time actually spent, otherwise a description of the mismatch
+    private static String measureTimeAttribution(TimedParser parser) {
+        ProfilingParseRunner<Object> sampling = new ProfilingParseRunner<Object>(parser.Root()).withSampling(3);
+        parser.spinTime = 0;
+        int runs = 300;
+        for (int i = 0; i < runs; i++) assertTrue(sampling.run("sfsf").matched);
+
+        // every rule gets its share of the time, even the ones invoked in lockstep with others or only once per run
+        ProfilingParseRunner.Report report = sampling.getReport();
+        Map<Matcher, ProfilingParseRunner.RuleReport> rules = byMatcher(report);
+        for (Rule rule : new Rule[] {parser.Root(), parser.Pair(), parser.Slow(), parser.Fast()}) {
+            if (rules.get((Matcher) rule).getNanoTime() <= 0) return "no time for " + rule;
+        }
+
+        // and the extrapolated times are close to the actual ones, pauses of the test machine can make the actual times
+        // exceed the nominal spin time
+        long minSpinTime = 2 * runs * TimedParser.SLOW_NANOS;
+        long rootTime = rules.get((Matcher) parser.Root()).getNanoTime();
+        if (rootTime < minSpinTime * 0.6 || rootTime > report.totalNanoTime * 3) {
+            return "Root: " + rootTime + " vs. " + report.totalNanoTime;
+        }
+        long slowTime = rules.get((Matcher) parser.Slow()).getNanoTime();
+        if (slowTime < minSpinTime * 0.6 || slowTime > parser.spinTime * 3) {
+            return "Slow: " + slowTime + " vs. " + parser.spinTime;
+        }
+        long fastTime = rules.get((Matcher) parser.Fast()).getNanoTime();
+        if (fastTime >= slowTime) return "Fast: " + fastTime + " vs. " + slowTime;
+        return null;
+    }
+
+    private static Map<Matcher, ProfilingParseRunner.RuleReport> byMatcher(ProfilingParseRunner.Report report) {
+        Map<Matcher, ProfilingParseRunner.RuleReport> map =
+                new IdentityHashMap<Matcher, ProfilingParseRunner.RuleReport>();
+        for (ProfilingParseRunner.RuleReport ruleReport : report.ruleReports) {
+            if (ruleReport.getInvocations() > 0) map.put(ruleReport.getMatcher(), ruleReport);
+        }
+        return map;
+    }
+}
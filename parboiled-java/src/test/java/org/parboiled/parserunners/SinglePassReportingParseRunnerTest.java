@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.parserunners;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.errors.ParseError;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static org.parboiled.errors.ErrorUtils.printParseErrors;
+import static org.parboiled.support.ParseTreeUtils.printNodeTree;
+import static org.testng.Assert.assertEquals;
+
+public class SinglePassReportingParseRunnerTest {
+
+    @BuildParseTree
+    static class Parser extends BaseParser<Object> {
+
+        Rule Statements() {
+            return Sequence(ZeroOrMore(Statement()), EOI);
+        }
+
+        Rule Statement() {
+            return FirstOf(
+                    Sequence(Keyword("let"), Identifier(), "= ", Value(), "; "),
+                    Sequence(Keyword("print"), Value(), "; ")
+            );
+        }
+
+        Rule Keyword(String keyword) {
+            return Sequence(keyword, TestNot(Sequence(OneOrMore(Letter()), "!")), ' ');
+        }
+
+        Rule Identifier() {
+            return Sequence(OneOrMore(Letter()), ' ');
+        }
+
+        Rule Value() {
+            return FirstOf(Sequence(OneOrMore(CharRange('0', '9')), ' '), Identifier(), "\"string\" ");
+        }
+
+        Rule Letter() {
+            return FirstOf(CharRange('a', 'z'), CharRange('A', 'Z'));
+        }
+    }
+
+    @Test
+    public void testSameResultsAsReportingParseRunner() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        String[] inputs = {"", "let a = 1 ; print a ; ", "let a = 1 ; prin a ; ", "let a = \"strin ; ",
+                "let 1 = a ; ", "letx! = 1 ; ", "print x", "print 12; ", "let a = b ; print \"string\" ;x",
+                "letabc! = 1 ; ", "print a ; letab", "printx! ; let ab! "};
+        // a runner reused for all inputs must not carry over any failures of earlier runs
+        SinglePassReportingParseRunner<Object> reused = new SinglePassReportingParseRunner<Object>(parser.Statements());
+        for (String input : inputs) {
+            ParsingResult<Object> expected = new ReportingParseRunner<Object>(parser.Statements()).run(input);
+            ParsingResult<Object> actual = new SinglePassReportingParseRunner<Object>(parser.Statements()).run(input);
+            assertEquals(actual.matched, expected.matched, input);
+            assertEquals(printParseErrors(actual), printParseErrors(expected), input);
+            reused.withParseErrors(new ArrayList<ParseError>());
+            assertEquals(printParseErrors(reused.run(input)), printParseErrors(expected), input);
+            if (expected.matched) {
+                assertEquals(printNodeTree(actual), printNodeTree(expected), input);
+            }
+        }
+    }
+}
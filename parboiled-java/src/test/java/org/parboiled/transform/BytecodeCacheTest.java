@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.common.FileUtils;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class BytecodeCacheTest {
+
+    public static class Parser extends BaseParser<Integer> {
+        public Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(match().length()), EOI);
+        }
+    }
+
+    @Test
+    public void testCachedParserClasses() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "parboiled-cache-test-" + System.nanoTime());
+        ParserTransformer.setCacheDirectory(dir);
+        try {
+            assertEquals(parse("1234"), Integer.valueOf(4));
+            File[] entries = dir.listFiles();
+            assertNotNull(entries);
+            assertEquals(entries.length, 1);
+            File entry = entries[0];
+
+            // the entry must be used as is, not be rewritten
+            entry.setLastModified(0);
+            assertEquals(parse("12345"), Integer.valueOf(5));
+            assertEquals(dir.listFiles().length, 1);
+            assertEquals(entry.lastModified(), 0);
+
+            // corrupt entries are regenerated
+            FileUtils.writeAllBytes(new byte[] {1, 2, 3}, entry);
+            assertEquals(parse("123456"), Integer.valueOf(6));
+            assertEquals(dir.listFiles().length, 1);
+            assertNotNull(new BytecodeCache(dir).read(entry.getName().replace(".classes", "")));
+        } finally {
+            ParserTransformer.setCacheDirectory(null);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testMissingEntry() {
+        assertNull(new BytecodeCache(new File("does-not-exist")).read("abc"));
+    }
+
+    private static Integer parse(String input) throws Exception {
+        Class<Parser> parserClass = new IsolatingClassLoader(Parser.class).isolate(Parser.class);
+        BaseParser<Integer> parser = Parboiled.createParser(parserClass);
+        Rule rule = (Rule) parserClass.getMethod("Number").invoke(parser);
+        return new BasicParseRunner<Integer>(rule).run(input).resultValue;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class ConcurrentParserCreationTest {
+
+    public static class Parser extends BaseParser<Object> {
+        public Rule Digits() {
+            return OneOrMore(Digit(), push(match()));
+        }
+
+        public Rule Digit() {
+            return CharRange('0', '9');
+        }
+    }
+
+    // transformed concurrently with the first parser
+    public static class OtherParser extends BaseParser<Object> {
+        public Rule Digits() {
+            return OneOrMore(CharRange('0', '9'), push(match()));
+        }
+    }
+
+    @Test
+    public void testConcurrentParserCreation() throws Exception {
+        final int threads = 8;
+        IsolatingClassLoader classLoader = new IsolatingClassLoader(Parser.class, OtherParser.class);
+        final Class<Parser> parserClass = classLoader.isolate(Parser.class);
+        final Class<OtherParser> otherParserClass = classLoader.isolate(OtherParser.class);
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Class<?>>> futures = new ArrayList<Future<Class<?>>>();
+            for (int i = 0; i < threads; i++) {
+                final boolean other = i % 2 == 1;
+                futures.add(executor.submit(new Callable<Class<?>>() {
+                    public Class<?> call() throws Exception {
+                        barrier.await();
+                        return Parboiled.createParser(other ? otherParserClass : parserClass).getClass();
+                    }
+                }));
+            }
+            for (int i = 0; i < threads; i++) {
+                Class<?> extendedClass = futures.get(i).get(30, TimeUnit.SECONDS);
+                assertSame(extendedClass, futures.get(i % 2).get());
+                assertSame(extendedClass.getClassLoader(), classLoader);
+            }
+            assertEquals(futures.get(0).get().getSuperclass(), parserClass);
+            assertEquals(futures.get(1).get().getSuperclass(), otherParserClass);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
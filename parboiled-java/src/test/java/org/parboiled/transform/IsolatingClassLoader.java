@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.common.FileUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads its own copies of the given classes, so every instance has to extend a parser class anew.
+ */
+class IsolatingClassLoader extends ClassLoader {
+    private final Set<String> classNames;
+
+    IsolatingClassLoader(Class<?>... classes) {
+        super(IsolatingClassLoader.class.getClassLoader());
+        classNames = new HashSet<String>();
+        for (Class<?> clazz : classes) classNames.add(clazz.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Class<T> isolate(Class<T> clazz) throws ClassNotFoundException {
+        return (Class<T>) loadClass(clazz.getName());
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!classNames.contains(name)) return super.loadClass(name, resolve);
+        Class<?> clazz = findLoadedClass(name);
+        if (clazz != null) return clazz;
+        byte[] code = FileUtils.readAllBytes(getParent().getResourceAsStream(name.replace('.', '/') + ".class"));
+        return defineClass(name, code, 0, code.length);
+    }
+}
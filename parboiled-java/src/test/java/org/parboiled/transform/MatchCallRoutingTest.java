@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.common.ImmutableList;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.parboiled.transform.AsmTestUtils.getClassDump;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class MatchCallRoutingTest extends TransformationTest {
+
+    private final List<RuleMethodProcessor> processors = ImmutableList.of(
+            new UnusedLabelsRemover(),
+            new ReturnInstructionUnifier(),
+            new InstructionGraphCreator(),
+            new ImplicitActionsConverter(),
+            new InstructionGroupCreator(),
+            new InstructionGroupPreparer(),
+            new ActionClassGenerator(true)
+    );
+
+    static class Parser extends BaseParser<Object> {
+
+        public Rule Values() {
+            return Sequence(IntValue(), ' ', LongValue(), ' ', DoubleValue(), ' ', Word(), EOI);
+        }
+
+        public Rule IntValue() {
+            return Sequence(Digits(), push(Integer.parseInt(match())));
+        }
+
+        public Rule LongValue() {
+            return Sequence(Digits(), push(Long.parseLong(match())));
+        }
+
+        public Rule DoubleValue() {
+            return Sequence(Sequence(Digits(), '.', Digits()), push(Double.parseDouble(match())));
+        }
+
+        public Rule Word() {
+            return Sequence(
+                    OneOrMore(CharRange('a', 'z')),
+                    push(match().equals("yes")),
+                    push(match().hashCode()),
+                    push(match().length()),
+                    push(matchView().toString())
+            );
+        }
+
+        public Rule Digits() {
+            return OneOrMore(CharRange('0', '9'));
+        }
+    }
+
+    @BeforeClass
+    public void setup() throws IOException {
+        setup(Parser.class);
+    }
+
+    @Test
+    public void testMatchCallRouting() throws Exception {
+        assertRouted(getActionCode("IntValue"), "matchAsInt", "java/lang/Integer.parseInt");
+        assertRouted(getActionCode("LongValue"), "matchAsLong", "java/lang/Long.parseLong");
+        assertRouted(getActionCode("DoubleValue"), "matchAsDouble", "java/lang/Double.parseDouble");
+
+        String wordCode = getActionCode("Word");
+        assertRouted(wordCode, "matchEquals", "java/lang/String.equals");
+        assertRouted(wordCode, "matchHash", "java/lang/String.hashCode");
+        assertRouted(wordCode, "matchView", "setContext");
+    }
+
+    @Test
+    public void testRoutedMatchCalls() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        ParsingResult<Object> result = new ReportingParseRunner<Object>(parser.Values()).run("42 9876543210 2.25 yes");
+        assertTrue(result.matched);
+        List<Object> values = new ArrayList<Object>();
+        for (Object value : result.valueStack) values.add(0, value);
+        assertEquals(values, ImmutableList.<Object>of(42, 9876543210L, 2.25, true, "yes".hashCode(), 3, "yes"));
+
+        result = new ReportingParseRunner<Object>(parser.Values()).run("1 2 3.5 no");
+        assertEquals(result.valueStack.peek(3), false);
+    }
+
+    private String getActionCode(String methodName) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (InstructionGroup group : processMethod(methodName, processors).getGroups()) {
+            if (group.getGroupClassCode() != null) sb.append(getClassDump(group.getGroupClassCode()));
+        }
+        return sb.toString();
+    }
+
+    private static void assertRouted(String code, String contextCall, String replaced) {
+        assertTrue(code.contains("INVOKESTATIC org/parboiled/transform/ContextCalls." + contextCall + ' '), code);
+        assertFalse(code.contains(replaced), code);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.common.FileUtils;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ParserGeneratorTest {
+
+    public static class Parser extends BaseParser<Integer> {
+        public Rule Number() {
+            return Sequence(OneOrMore(CharRange('0', '9')), push(match().length()), EOI);
+        }
+    }
+
+    // loads the parser class itself and the classes in the output directory,
+    // so the classes extended at runtime by the other tests are not visible
+    private static class GeneratedClassLoader extends ClassLoader {
+        private final File dir;
+        private final Set<String> generated = new HashSet<String>();
+
+        GeneratedClassLoader(File dir) {
+            super(ParserGeneratorTest.class.getClassLoader());
+            this.dir = dir;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz != null) return clazz;
+            String path = name.replace('.', '/') + ".class";
+            File file = new File(dir, path);
+            byte[] code;
+            if (file.exists()) {
+                code = FileUtils.readAllBytes(file);
+                generated.add(name);
+            } else if (name.equals(Parser.class.getName())) {
+                code = FileUtils.readAllBytes(getParent().getResourceAsStream(path));
+            } else {
+                return super.loadClass(name, resolve);
+            }
+            return defineClass(name, code, 0, code.length);
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            File file = new File(dir, name);
+            try {
+                return file.exists() ? file.toURI().toURL() : null;
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeneratedClassesAreUsed() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "parboiled-generator-test-" + System.nanoTime());
+        try {
+            List<File> files = ParserGenerator.generate(Parser.class, dir);
+            assertTrue(files.size() > 1);
+            for (File file : files) assertTrue(file.exists());
+            assertTrue(new File(dir, "org/parboiled/transform/ParserGeneratorTest$Parser$$parboiled.class").exists());
+
+            GeneratedClassLoader classLoader = new GeneratedClassLoader(dir);
+            Class<? extends BaseParser<Integer>> parserClass =
+                    (Class<? extends BaseParser<Integer>>) classLoader.loadClass(Parser.class.getName());
+            assertTrue(ParserGenerator.isExtensionCurrent(parserClass));
+            BaseParser<Integer> parser = Parboiled.createParser(parserClass);
+            assertEquals(parser.getClass().getName(), Parser.class.getName() + "$$parboiled");
+
+            Rule rule = (Rule) parserClass.getMethod("Number").invoke(parser);
+            assertEquals(new BasicParseRunner<Integer>(rule).run("12345").resultValue, Integer.valueOf(5));
+            assertEquals(classLoader.generated.size(), files.size());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStaleGeneratedClassesAreNotUsed() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "parboiled-generator-test-" + System.nanoTime());
+        try {
+            // the extended parser class is defined by the class loader of the parser class given to the generator
+            ParserGenerator.generate(new IsolatingClassLoader(Parser.class).isolate(Parser.class), dir);
+            String extendedClassName = Parser.class.getName() + "$$parboiled";
+            File hashFile = new File(dir, extendedClassName.replace('.', '/') + ".hash");
+            assertTrue(hashFile.exists());
+            FileUtils.writeAllText("stale", hashFile);
+
+            // the extended parser class generated from "another version" of the parser class is not loaded
+            GeneratedClassLoader classLoader = new GeneratedClassLoader(dir);
+            Class<? extends BaseParser<Integer>> parserClass =
+                    (Class<? extends BaseParser<Integer>>) classLoader.loadClass(Parser.class.getName());
+            assertFalse(ParserGenerator.isExtensionCurrent(parserClass));
+            BaseParser<Integer> parser = Parboiled.createParser(parserClass);
+            assertEquals(parser.getClass().getName(), extendedClassName);
+            assertFalse(classLoader.generated.contains(extendedClassName));
+
+            Rule rule = (Rule) parserClass.getMethod("Number").invoke(parser);
+            assertEquals(new BasicParseRunner<Integer>(rule).run("123").resultValue, Integer.valueOf(3));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+}
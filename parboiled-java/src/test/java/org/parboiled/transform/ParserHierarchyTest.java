@@ -85,40 +85,48 @@ public class ParserHierarchyTest {
         assertEquals(getMethodInstructionList(classNode.getRuleMethods().get("A()Lorg/parboiled/Rule;")), "" +
                 "Method 'A':\n" +
                 " 0     ALOAD 0\n" +
-                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
+                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.rulesOwner$ : Lorg/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled;\n" +
                 " 2     DUP\n" +
                 " 3     IFNULL L0\n" +
-                " 4     ARETURN\n" +
-                " 5    L0\n" +
-                " 6     POP\n" +
-                " 7     NEW org/parboiled/matchers/ProxyMatcher\n" +
-                " 8     DUP\n" +
-                " 9     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                " 4     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.A ()Lorg/parboiled/Rule;\n" +
+                " 5     ARETURN\n" +
+                " 6    L0\n" +
+                " 7     POP\n" +
+                " 8     ALOAD 0\n" +
+                " 9     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
                 "10     DUP\n" +
-                "11     ALOAD 0\n" +
-                "12     SWAP\n" +
-                "13     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
-                "14     ALOAD 0\n" +
-                "15     ALOAD 0\n" +
-                "16     INVOKESPECIAL org/parboiled/transform/ParserHierarchyTest$Parser1.A ()Lorg/parboiled/Rule;\n" +
-                "17     BIPUSH 65\n" +
-                "18     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
-                "19     ICONST_0\n" +
-                "20     ANEWARRAY java/lang/Object\n" +
-                "21     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser2.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
-                "22     DUP\n" +
-                "23     IFNULL L1\n" +
-                "24     LDC \"A\"\n" +
-                "25     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
-                "26    L1\n" +
-                "27     DUP_X1\n" +
-                "28     CHECKCAST org/parboiled/matchers/Matcher\n" +
-                "29     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "11     IFNULL L1\n" +
+                "12     ARETURN\n" +
+                "13    L1\n" +
+                "14     POP\n" +
+                "15     NEW org/parboiled/matchers/ProxyMatcher\n" +
+                "16     DUP\n" +
+                "17     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                "18     DUP\n" +
+                "19     ALOAD 0\n" +
+                "20     SWAP\n" +
+                "21     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
+                "22     ALOAD 0\n" +
+                "23     ALOAD 0\n" +
+                "24     INVOKESPECIAL org/parboiled/transform/ParserHierarchyTest$Parser1.A ()Lorg/parboiled/Rule;\n" +
+                "25     BIPUSH 65\n" +
+                "26     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
+                "27     ICONST_0\n" +
+                "28     ANEWARRAY java/lang/Object\n" +
+                "29     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser2.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
                 "30     DUP\n" +
-                "31     ALOAD 0\n" +
-                "32     SWAP\n" +
-                "33     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
-                "34     ARETURN\n");
+                "31     IFNULL L2\n" +
+                "32     LDC \"A\"\n" +
+                "33     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
+                "34    L2\n" +
+                "35     DUP_X1\n" +
+                "36     CHECKCAST org/parboiled/matchers/Matcher\n" +
+                "37     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "38     DUP\n" +
+                "39     ALOAD 0\n" +
+                "40     SWAP\n" +
+                "41     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$A : Lorg/parboiled/Rule;\n" +
+                "42     ARETURN\n");
         assertEquals(getMethodInstructionList(classNode.getRuleMethods().get("$B()Lorg/parboiled/Rule;")), "" +
                 "Method '$B':\n" +
                 " 0     ALOAD 0\n" +
@@ -138,50 +146,58 @@ public class ParserHierarchyTest {
         assertEquals(getMethodInstructionList(classNode.getRuleMethods().get("B()Lorg/parboiled/Rule;")), "" +
                 "Method 'B':\n" +
                 " 0     ALOAD 0\n" +
-                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
+                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.rulesOwner$ : Lorg/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled;\n" +
                 " 2     DUP\n" +
                 " 3     IFNULL L0\n" +
-                " 4     ARETURN\n" +
-                " 5    L0\n" +
-                " 6     POP\n" +
-                " 7     NEW org/parboiled/matchers/ProxyMatcher\n" +
-                " 8     DUP\n" +
-                " 9     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                " 4     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.B ()Lorg/parboiled/Rule;\n" +
+                " 5     ARETURN\n" +
+                " 6    L0\n" +
+                " 7     POP\n" +
+                " 8     ALOAD 0\n" +
+                " 9     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
                 "10     DUP\n" +
-                "11     ALOAD 0\n" +
-                "12     SWAP\n" +
-                "13     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
-                "14     ALOAD 0\n" +
-                "15     ALOAD 0\n" +
-                "16     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.$B ()Lorg/parboiled/Rule;\n" +
-                "17     BIPUSH 66\n" +
-                "18     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
-                "19     ICONST_1\n" +
-                "20     ANEWARRAY java/lang/Object\n" +
-                "21     DUP\n" +
-                "22     ICONST_0\n" +
-                "23     NEW org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0\n" +
-                "24     DUP\n" +
-                "25     LDC \"B_Action1\"\n" +
-                "26     INVOKESPECIAL org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0.<init> (Ljava/lang/String;)V\n" +
-                "27     DUP\n" +
-                "28     ALOAD 0\n" +
-                "29     PUTFIELD org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0.field$0 : Lorg/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled;\n" +
-                "30     AASTORE\n" +
-                "31     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
+                "11     IFNULL L1\n" +
+                "12     ARETURN\n" +
+                "13    L1\n" +
+                "14     POP\n" +
+                "15     NEW org/parboiled/matchers/ProxyMatcher\n" +
+                "16     DUP\n" +
+                "17     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                "18     DUP\n" +
+                "19     ALOAD 0\n" +
+                "20     SWAP\n" +
+                "21     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
+                "22     ALOAD 0\n" +
+                "23     ALOAD 0\n" +
+                "24     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.$B ()Lorg/parboiled/Rule;\n" +
+                "25     BIPUSH 66\n" +
+                "26     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
+                "27     ICONST_1\n" +
+                "28     ANEWARRAY java/lang/Object\n" +
+                "29     DUP\n" +
+                "30     ICONST_0\n" +
+                "31     NEW org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0\n" +
                 "32     DUP\n" +
-                "33     IFNULL L1\n" +
-                "34     LDC \"B\"\n" +
-                "35     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
-                "36    L1\n" +
-                "37     DUP_X1\n" +
-                "38     CHECKCAST org/parboiled/matchers/Matcher\n" +
-                "39     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "33     LDC \"B_Action1\"\n" +
+                "34     INVOKESPECIAL org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0.<init> (Ljava/lang/String;)V\n" +
+                "35     DUP\n" +
+                "36     ALOAD 0\n" +
+                "37     PUTFIELD org/parboiled/transform/Action$k4qTyX8Zgn8Lm8a0.field$0 : Lorg/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled;\n" +
+                "38     AASTORE\n" +
+                "39     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
                 "40     DUP\n" +
-                "41     ALOAD 0\n" +
-                "42     SWAP\n" +
-                "43     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
-                "44     ARETURN\n");
+                "41     IFNULL L2\n" +
+                "42     LDC \"B\"\n" +
+                "43     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
+                "44    L2\n" +
+                "45     DUP_X1\n" +
+                "46     CHECKCAST org/parboiled/matchers/Matcher\n" +
+                "47     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "48     DUP\n" +
+                "49     ALOAD 0\n" +
+                "50     SWAP\n" +
+                "51     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$B : Lorg/parboiled/Rule;\n" +
+                "52     ARETURN\n");
         assertEquals(getMethodInstructionList(classNode.getRuleMethods().get("$C()Lorg/parboiled/Rule;")), "" +
                 "Method '$C':\n" +
                 " 0     ALOAD 0\n" +
@@ -201,40 +217,48 @@ public class ParserHierarchyTest {
         assertEquals(getMethodInstructionList(classNode.getRuleMethods().get("C()Lorg/parboiled/Rule;")), "" +
                 "Method 'C':\n" +
                 " 0     ALOAD 0\n" +
-                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
+                " 1     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.rulesOwner$ : Lorg/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled;\n" +
                 " 2     DUP\n" +
                 " 3     IFNULL L0\n" +
-                " 4     ARETURN\n" +
-                " 5    L0\n" +
-                " 6     POP\n" +
-                " 7     NEW org/parboiled/matchers/ProxyMatcher\n" +
-                " 8     DUP\n" +
-                " 9     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                " 4     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.C ()Lorg/parboiled/Rule;\n" +
+                " 5     ARETURN\n" +
+                " 6    L0\n" +
+                " 7     POP\n" +
+                " 8     ALOAD 0\n" +
+                " 9     GETFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
                 "10     DUP\n" +
-                "11     ALOAD 0\n" +
-                "12     SWAP\n" +
-                "13     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
-                "14     ALOAD 0\n" +
-                "15     BIPUSH 67\n" +
-                "16     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
-                "17     ALOAD 0\n" +
-                "18     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.$C ()Lorg/parboiled/Rule;\n" +
-                "19     ICONST_0\n" +
-                "20     ANEWARRAY java/lang/Object\n" +
-                "21     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
-                "22     DUP\n" +
-                "23     IFNULL L1\n" +
-                "24     LDC \"C\"\n" +
-                "25     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
-                "26    L1\n" +
-                "27     DUP_X1\n" +
-                "28     CHECKCAST org/parboiled/matchers/Matcher\n" +
-                "29     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "11     IFNULL L1\n" +
+                "12     ARETURN\n" +
+                "13    L1\n" +
+                "14     POP\n" +
+                "15     NEW org/parboiled/matchers/ProxyMatcher\n" +
+                "16     DUP\n" +
+                "17     INVOKESPECIAL org/parboiled/matchers/ProxyMatcher.<init> ()V\n" +
+                "18     DUP\n" +
+                "19     ALOAD 0\n" +
+                "20     SWAP\n" +
+                "21     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
+                "22     ALOAD 0\n" +
+                "23     BIPUSH 67\n" +
+                "24     INVOKESTATIC java/lang/Character.valueOf (C)Ljava/lang/Character;\n" +
+                "25     ALOAD 0\n" +
+                "26     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.$C ()Lorg/parboiled/Rule;\n" +
+                "27     ICONST_0\n" +
+                "28     ANEWARRAY java/lang/Object\n" +
+                "29     INVOKEVIRTUAL org/parboiled/transform/ParserHierarchyTest$Parser3.Sequence (Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)Lorg/parboiled/Rule;\n" +
                 "30     DUP\n" +
-                "31     ALOAD 0\n" +
-                "32     SWAP\n" +
-                "33     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
-                "34     ARETURN\n");
+                "31     IFNULL L2\n" +
+                "32     LDC \"C\"\n" +
+                "33     INVOKEINTERFACE org/parboiled/Rule.label (Ljava/lang/String;)Lorg/parboiled/Rule; (itf)\n" +
+                "34    L2\n" +
+                "35     DUP_X1\n" +
+                "36     CHECKCAST org/parboiled/matchers/Matcher\n" +
+                "37     INVOKEVIRTUAL org/parboiled/matchers/ProxyMatcher.arm (Lorg/parboiled/matchers/Matcher;)V\n" +
+                "38     DUP\n" +
+                "39     ALOAD 0\n" +
+                "40     SWAP\n" +
+                "41     PUTFIELD org/parboiled/transform/ParserHierarchyTest$Parser3$$parboiled.cache$C : Lorg/parboiled/Rule;\n" +
+                "42     ARETURN\n");
     }
 
     @Test
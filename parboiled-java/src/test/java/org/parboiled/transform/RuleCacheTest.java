@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2009-2011 Mathias Doenitz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.parboiled.transform;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.Cached;
+import org.testng.annotations.Test;
+
+import org.objectweb.asm.tree.FieldNode;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class RuleCacheTest {
+
+    enum Kind {A, B}
+
+    static class Parser extends BaseParser<Object> {
+        @Cached
+        public Rule C(char c) { return Sequence(c, c); }
+
+        @Cached
+        public Rule I(int i) { return Sequence(ANY, push(i)); }
+
+        @Cached
+        public Rule L(long l) { return Sequence(ANY, push(l)); }
+
+        @Cached
+        public Rule D(double d) { return Sequence(ANY, push(d)); }
+
+        @Cached
+        public Rule E(Kind kind) { return Sequence(ANY, push(kind)); }
+
+        @Cached
+        public Rule S(String s) { return String(s); }
+    }
+
+    // the overloads are split across the rule methods processed concurrently
+    static class OverloadingParser extends BaseParser<Object> {
+        public Rule A() { return Sequence(N(), 'a'); }
+
+        public Rule B() { return Sequence(A(), 'b'); }
+
+        public Rule C() { return Sequence(B(), 'c'); }
+
+        public Rule D() { return Sequence(C(), 'd'); }
+
+        public Rule N() { return Sequence(N('a'), N('b', 'c'), N(1.0), N(2), N(3L), N("d"), N(true)); }
+
+        @Cached
+        public Rule N(char c) { return Ch(c); }
+
+        @Cached
+        public Rule N(char c, char d) { return Sequence(c, d); }
+
+        @Cached
+        public Rule N(double d) { return Sequence(ANY, push(d)); }
+
+        @Cached
+        public Rule N(int i) { return Sequence(ANY, push(i)); }
+
+        @Cached
+        public Rule N(long l) { return Sequence(ANY, push(l)); }
+
+        @Cached
+        public Rule N(String s) { return String(s); }
+
+        @Cached
+        public Rule N(boolean b) { return Sequence(ANY, push(b)); }
+
+        public Rule X() { return Sequence(D(), 'x'); }
+
+        public Rule Y() { return Sequence(X(), 'y'); }
+
+        public Rule Z() { return Sequence(Y(), 'z'); }
+    }
+
+    @Test
+    public void testDeterministicCacheFields() throws Exception {
+        Map<String, byte[]> classCodes = null;
+        for (int i = 0; i < 20; i++) {
+            Class<?> parserClass = new IsolatingClassLoader(OverloadingParser.class).isolate(OverloadingParser.class);
+            ParserClassNode classNode = ParserTransformer.extendParserClass(parserClass, true);
+            Map<String, byte[]> codes = ParserTransformer.getClassCodes(classNode);
+            if (classCodes == null) {
+                classCodes = codes;
+
+                // the overloads are numbered in the order of their descriptors
+                Class<?> extendedClass = classNode.getExtendedClass();
+                assertEquals(extendedClass.getDeclaredField("cache$N").getType(), Rule.class);
+                assertEquals(extendedClass.getDeclaredField("cache$N2").getType(), CharRuleCache.class);
+                assertEquals(extendedClass.getDeclaredField("cache$N3").getType(), HashMap.class);
+                assertEquals(extendedClass.getDeclaredField("cache$N4").getType(), LongRuleCache.class);
+                assertEquals(extendedClass.getDeclaredField("cache$N7").getType(), HashMap.class);
+
+                // processing the rule methods in another order yields the same fields
+                assertEquals(getCacheFieldNames(processInReverse(parserClass)), getCacheFieldNames(classNode));
+                continue;
+            }
+            assertEquals(codes.keySet(), classCodes.keySet());
+            for (Map.Entry<String, byte[]> entry : codes.entrySet()) {
+                assertTrue(Arrays.equals(entry.getValue(), classCodes.get(entry.getKey())), entry.getKey());
+            }
+        }
+    }
+
+    private static ParserClassNode processInReverse(Class<?> parserClass) throws Exception {
+        ParserClassNode classNode = new ParserClassNode(parserClass);
+        new ClassNodeInitializer().process(classNode);
+        List<RuleMethod> ruleMethods = new ArrayList<RuleMethod>(classNode.getRuleMethods().values());
+        Collections.reverse(ruleMethods);
+        for (RuleMethod ruleMethod : ruleMethods) {
+            if (ruleMethod.hasDontExtend()) continue;
+            for (RuleMethodProcessor processor : ParserTransformer.createRuleMethodProcessors(true)) {
+                if (processor.appliesTo(classNode, ruleMethod)) processor.process(classNode, ruleMethod);
+            }
+        }
+        return classNode;
+    }
+
+    private static List<String> getCacheFieldNames(ParserClassNode classNode) {
+        List<String> names = new ArrayList<String>();
+        for (Object field : classNode.fields) {
+            String name = ((FieldNode) field).name;
+            if (name.startsWith(CachingGenerator.CACHE_FIELD_PREFIX)) names.add(name);
+        }
+        return names;
+    }
+
+    @Test
+    public void testSpecializedCaches() throws Exception {
+        Parser parser = Parboiled.createParser(Parser.class);
+        assertCacheType(parser, "C", CharRuleCache.class);
+        assertCacheType(parser, "I", LongRuleCache.class);
+        assertCacheType(parser, "L", LongRuleCache.class);
+        assertCacheType(parser, "D", LongRuleCache.class);
+        assertCacheType(parser, "E", IdentityRuleCache.class);
+        assertCacheType(parser, "S", HashMap.class);
+        assertCacheType(parser, "Ch", CharRuleCache.class); // the BaseParser helpers are covered as well
+
+        assertSame(parser.C('a'), parser.C('a'));
+        assertSame(parser.C('€'), parser.C('€'));
+        assertNotSame(parser.C('a'), parser.C('b'));
+        assertNotSame(parser.C('a'), parser.C('š')); // same low byte, different page
+
+        Rule[] rules = new Rule[1000];
+        for (int i = 0; i < rules.length; i++) rules[i] = parser.I(i - 500);
+        for (int i = 0; i < rules.length; i++) assertSame(parser.I(i - 500), rules[i]);
+        assertNotSame(parser.L(1L << 32), parser.L(0));
+        assertSame(parser.L(Long.MIN_VALUE), parser.L(Long.MIN_VALUE));
+
+        // doubles are keyed like Double.equals(...)
+        assertSame(parser.D(Double.NaN), parser.D(Double.NaN));
+        assertNotSame(parser.D(0.0), parser.D(-0.0));
+
+        assertSame(parser.E(Kind.A), parser.E(Kind.A));
+        assertSame(parser.E(null), parser.E(null));
+        assertNotSame(parser.E(Kind.A), parser.E(Kind.B));
+        assertNotSame(parser.E(Kind.A), parser.E(null));
+
+        assertSame(parser.S("abc"), parser.S(new String("abc")));
+    }
+
+    @Test
+    public void testSharedCaches() {
+        Parser parser = Parboiled.createParser(Parser.class);
+        Rule c = parser.C('x');
+        Rule i = parser.I(7);
+        Rule e = parser.E(Kind.B);
+
+        Parser copy = (Parser) parser.newInstanceSharingRules();
+        assertSame(copy.C('x'), c);
+        assertSame(copy.I(7), i);
+        assertSame(copy.E(Kind.B), e);
+
+        // rules created through the copy are created by (and cached in) the original
+        Rule c2 = copy.C('y');
+        assertSame(parser.C('y'), c2);
+        assertSame(copy.C('y'), c2);
+    }
+
+    private static void assertCacheType(Parser parser, String method, Class<?> cacheType) throws Exception {
+        assertEquals(parser.getClass().getDeclaredField(CachingGenerator.CACHE_FIELD_PREFIX + method).getType(),
+                cacheType, method);
+    }
+}
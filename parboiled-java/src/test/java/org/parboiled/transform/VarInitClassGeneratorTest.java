@@ -146,13 +146,11 @@ public class VarInitClassGeneratorTest extends TransformationTest {
                 "    CHECKCAST java/util/List\n" +
                 "    ALOAD 0\n" +
                 "    GETFIELD org/parboiled/transform/Action$ha3NOiBr9DZ3I2Sh.field$1 : Lorg/parboiled/transform/VarInitClassGeneratorTest$Parser$$parboiled;\n" +
-                "    DUP\n" +
                 "    ALOAD 1\n" +
-                "    INVOKEINTERFACE org/parboiled/ContextAware.setContext (Lorg/parboiled/Context;)V (itf)\n" +
-                "    INVOKEVIRTUAL org/parboiled/transform/VarInitClassGeneratorTest$Parser.match ()Ljava/lang/String;\n" +
+                "    INVOKESTATIC org/parboiled/transform/ContextCalls.match (Lorg/parboiled/BaseActions;Lorg/parboiled/Context;)Ljava/lang/String;\n" +
                 "    INVOKEINTERFACE java/util/List.add (Ljava/lang/Object;)Z (itf)\n" +
                 "    IRETURN\n" +
-                "    MAXSTACK = 4\n" +
+                "    MAXSTACK = 3\n" +
                 "    MAXLOCALS = 2\n" +
                 "}\n");
     }